@@ -2,8 +2,10 @@ package by.osinovii.hacathonback;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class HacathonBackApplication {
 
     public static void main(String[] args) {
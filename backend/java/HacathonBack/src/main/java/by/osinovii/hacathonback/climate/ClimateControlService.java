@@ -0,0 +1,243 @@
+package by.osinovii.hacathonback.climate;
+
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.iot.IoTAction;
+import by.osinovii.hacathonback.iot.IoTCommandSupersededException;
+import by.osinovii.hacathonback.iot.IoTGateway;
+import by.osinovii.hacathonback.repositories.RoomRepository;
+import by.osinovii.hacathonback.scheduling.HashedTimingWheel;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import by.osinovii.hacathonback.telemetry.TelemetryStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Замкнутый контур регулирования температуры в комнатах.
+ * Раз в interval-ms для каждой комнаты сравнивается последняя температура из телеметрии
+ * с уставкой: нагрев включается ниже уставки на hysteresis и выключается при достижении уставки,
+ * охлаждение - симметрично. Если комната не занята (статус не OCCUPIED), уставка смещается
+ * на eco-setback в экономичную сторону.
+ *
+ * Нагреватель управляется каналом 1, кондиционер - каналом 2 контроллера комнаты;
+ * команды отправляются только при смене режима. Контуры всех комнат обслуживает
+ * одно колесо таймеров, у каждой комнаты свой переиспользуемый таймер.
+ * Контуры создаются при запуске для всех комнат и затем для каждой сохраненной комнаты
+ * (RoomService); уставки комнат, которых нет в реестре, отклоняются.
+ */
+@Service
+@Slf4j
+public class ClimateControlService {
+
+    // Допустимый диапазон уставки
+    public static final double MIN_SETPOINT = 5;
+    public static final double MAX_SETPOINT = 35;
+
+    private final TelemetryService telemetryService;
+    private final RoomRegistry roomRegistry;
+    private final RoomRepository roomRepository;
+    private final IoTGateway ioTGateway;
+
+    private final long intervalMs;
+    private final double defaultSetpoint;
+    private final double hysteresis;
+    private final double ecoSetback;
+
+    private final HashedTimingWheel wheel;
+    private final Map<String, RoomLoop> loops = new ConcurrentHashMap<>();
+    // Контуры новых комнат создаются только после запуска, если транспорт управляет каналами
+    private volatile boolean running;
+
+    /**
+     * Состояние контура комнаты
+     */
+    public record ControlStatus(double setpoint, ClimateMode mode, boolean eco) {
+    }
+
+    private final class RoomLoop implements Runnable {
+        final String roomNumber;
+        final HashedTimingWheel.Timer timer;
+        volatile double setpoint;
+        volatile boolean eco;
+        // null - режим устройства неизвестен, первая же команда его задает
+        volatile ClimateMode mode;
+
+        RoomLoop(String roomNumber, double setpoint) {
+            this.roomNumber = roomNumber;
+            this.setpoint = setpoint;
+            this.timer = wheel.newTimer(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                step(this);
+            } finally {
+                timer.schedule(intervalMs);
+            }
+        }
+    }
+
+    public ClimateControlService(TelemetryService telemetryService,
+                                 RoomRegistry roomRegistry,
+                                 RoomRepository roomRepository,
+                                 IoTGateway ioTGateway,
+                                 @Value("${hotel.climate.interval-ms:30000}") long intervalMs,
+                                 @Value("${hotel.climate.default-setpoint:22}") double defaultSetpoint,
+                                 @Value("${hotel.climate.hysteresis:0.5}") double hysteresis,
+                                 @Value("${hotel.climate.eco-setback:3}") double ecoSetback,
+                                 @Value("${hotel.climate.tick-ms:100}") long tickMs,
+                                 @Value("${hotel.climate.wheel-size:1024}") int wheelSize) {
+        this.telemetryService = telemetryService;
+        this.roomRegistry = roomRegistry;
+        this.roomRepository = roomRepository;
+        this.ioTGateway = ioTGateway;
+        this.intervalMs = intervalMs;
+        this.defaultSetpoint = defaultSetpoint;
+        this.hysteresis = hysteresis;
+        this.ecoSetback = ecoSetback;
+        this.wheel = new HashedTimingWheel("climate-control", tickMs, wheelSize);
+    }
+
+    /**
+     * Запуск контуров всех комнат. Первые шаги распределяются по интервалу,
+     * чтобы комнаты не опрашивались в один тик
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!ioTGateway.supports(IoTAction.CHANNEL_1_ON) || !ioTGateway.supports(IoTAction.CHANNEL_2_ON)) {
+            // Иначе каждый шаг повторял бы заведомо неудачные команды
+            log.warn("Транспорт IoT не управляет каналами нагревателя и кондиционера - контур регулирования температуры отключен");
+            return;
+        }
+        // Флаг ставится до чтения комнат: комната, сохраненная во время чтения, не останется без контура
+        running = true;
+        for (Room room : roomRepository.findAll()) {
+            loopOf(room.getRoomNumber());
+        }
+        wheel.start();
+        log.info("Контур регулирования температуры запущен для {} комнат", loops.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wheel.stop();
+    }
+
+    /**
+     * Контур для комнаты, сохраненной после запуска; вызывается после фиксации сохранения
+     */
+    public void onRoomSaved(Room room) {
+        if (running) {
+            loopOf(room.getRoomNumber());
+        }
+    }
+
+    /**
+     * Новая уставка комнаты; шаг регулирования выполняется на ближайшем тике
+     */
+    public ControlStatus setSetpoint(String roomNumber, double setpoint) {
+        if (setpoint < MIN_SETPOINT || setpoint > MAX_SETPOINT) {
+            throw new IllegalArgumentException("Температура должна быть от " + MIN_SETPOINT + " до " + MAX_SETPOINT + "°C");
+        }
+        if (roomRegistry.findByNumber(roomNumber).isEmpty()) {
+            // Иначе контур и таймер создавались бы для любого переданного номера
+            throw new IllegalArgumentException("Комната " + roomNumber + " не найдена");
+        }
+        RoomLoop loop = loopOf(roomNumber);
+        loop.setpoint = setpoint;
+        loop.timer.schedule(0);
+        return new ControlStatus(setpoint, loop.mode == null ? ClimateMode.IDLE : loop.mode, loop.eco);
+    }
+
+    public Optional<ControlStatus> getStatus(String roomNumber) {
+        RoomLoop loop = loops.get(roomNumber);
+        return loop == null
+                ? Optional.empty()
+                : Optional.of(new ControlStatus(loop.setpoint, loop.mode == null ? ClimateMode.IDLE : loop.mode, loop.eco));
+    }
+
+    public int loopCount() {
+        return loops.size();
+    }
+
+    /**
+     * Новый режим по гистерезису: нагрев включается при temperature <= target - hysteresis
+     * и выключается при temperature >= target, охлаждение - при >= target + hysteresis и <= target.
+     * В экономичном режиме цель нагрева ниже, а цель охлаждения выше уставки на setback
+     */
+    static ClimateMode decide(ClimateMode current, double temperature, double setpoint,
+                              double hysteresis, double setback, boolean eco) {
+        double heatTarget = eco ? setpoint - setback : setpoint;
+        double coolTarget = eco ? setpoint + setback : setpoint;
+
+        if (current == ClimateMode.HEATING) {
+            return temperature >= heatTarget ? ClimateMode.IDLE : ClimateMode.HEATING;
+        }
+        if (current == ClimateMode.COOLING) {
+            return temperature <= coolTarget ? ClimateMode.IDLE : ClimateMode.COOLING;
+        }
+        if (temperature <= heatTarget - hysteresis) {
+            return ClimateMode.HEATING;
+        }
+        if (temperature >= coolTarget + hysteresis) {
+            return ClimateMode.COOLING;
+        }
+        return ClimateMode.IDLE;
+    }
+
+    private RoomLoop loopOf(String roomNumber) {
+        return loops.computeIfAbsent(roomNumber, number -> {
+            RoomLoop loop = new RoomLoop(number, defaultSetpoint);
+            loop.timer.schedule(Math.floorMod(number.hashCode(), intervalMs));
+            return loop;
+        });
+    }
+
+    private void step(RoomLoop loop) {
+        Optional<TelemetryStore.Climate> climate = telemetryService.getClimate(loop.roomNumber);
+        if (climate.isEmpty()) {
+            // Устройство комнаты еще не присылало показаний - регулировать нечего
+            return;
+        }
+        boolean eco = roomRegistry.findByNumber(loop.roomNumber)
+                .map(room -> !"OCCUPIED".equals(room.getStatus()))
+                .orElse(true);
+        loop.eco = eco;
+
+        ClimateMode previous = loop.mode;
+        ClimateMode next = decide(previous == null ? ClimateMode.IDLE : previous,
+                climate.get().temperature(), loop.setpoint, hysteresis, ecoSetback, eco);
+        if (next == previous) {
+            return;
+        }
+        loop.mode = next;
+        log.debug("Комната {}: режим {} -> {} (температура {}, уставка {}, эко {})",
+                loop.roomNumber, previous, next, climate.get().temperature(), loop.setpoint, eco);
+
+        send(loop, next == ClimateMode.HEATING ? IoTAction.CHANNEL_1_ON : IoTAction.CHANNEL_1_OFF);
+        send(loop, next == ClimateMode.COOLING ? IoTAction.CHANNEL_2_ON : IoTAction.CHANNEL_2_OFF);
+    }
+
+    private void send(RoomLoop loop, IoTAction action) {
+        ioTGateway.submit(loop.roomNumber, action).whenComplete((response, error) -> {
+            if (error instanceof IoTCommandSupersededException) {
+                // Команду заменила более поздняя команда контура - режим определит она
+                return;
+            }
+            if (error != null || !response.success()) {
+                // Режим устройства неизвестен - следующий шаг повторит команды
+                loop.mode = null;
+            }
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package by.osinovii.hacathonback.climate;
+
+/**
+ * Режим климатической установки комнаты
+ */
+public enum ClimateMode {
+    IDLE,       // нагрев и охлаждение выключены
+    HEATING,    // включен нагреватель (канал 1)
+    COOLING     // включен кондиционер (канал 2)
+}
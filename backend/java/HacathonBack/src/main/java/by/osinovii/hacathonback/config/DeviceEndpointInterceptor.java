@@ -0,0 +1,56 @@
+package by.osinovii.hacathonback.config;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Сообщения контроллеров комнат (/app/device/...) принимаются только от сессий эндпоинта /device-ws.
+ * При рукопожатии на /device-ws сессия помечается атрибутом, а кадры SEND на /app/device/...
+ * из других сессий (/ws, /guest-ws) отклоняются - клиент получает кадр ERROR.
+ */
+public class DeviceEndpointInterceptor implements ChannelInterceptor, HandshakeInterceptor {
+
+    public static final String DEVICE_SESSION_ATTRIBUTE = "device-endpoint";
+    public static final String DEVICE_DESTINATION_PREFIX = "/app/device/";
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(DEVICE_SESSION_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SEND) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(DEVICE_DESTINATION_PREFIX)) {
+            return message;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null && Boolean.TRUE.equals(attributes.get(DEVICE_SESSION_ATTRIBUTE))) {
+            return message;
+        }
+        throw new MessageDeliveryException(message,
+                "Сообщения на " + destination + " принимаются только через эндпоинт /device-ws");
+    }
+}
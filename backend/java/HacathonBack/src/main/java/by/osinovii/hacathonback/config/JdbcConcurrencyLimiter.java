@@ -0,0 +1,64 @@
+package by.osinovii.hacathonback.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ограничение числа одновременно выполняющихся обработчиков @MessageMapping.
+ * В виртуальных потоках обработчиков может быть сколько угодно, а соединений с БД - столько,
+ * сколько в пуле Hikari: лишние обработчики ждут разрешения здесь (виртуальный поток при этом
+ * освобождает поток-носитель), а не соединения в пуле, где ожидание ограничено таймаутом.
+ * Подписки и сообщения брокеру не ограничиваются. Используется только в режиме виртуальных потоков.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.stomp.virtual-threads", havingValue = "true")
+public class JdbcConcurrencyLimiter implements ExecutorChannelInterceptor {
+
+    private final Semaphore permits;
+
+    public JdbcConcurrencyLimiter(
+            @Value("${hotel.stomp.jdbc-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Число одновременных обработчиков должно быть положительным");
+        }
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (isLimited(message, handler)) {
+            permits.acquireUninterruptibly();
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                    Exception ex) {
+        if (isLimited(message, handler)) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Обработчики, ожидающие разрешения
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private static boolean isLimited(Message<?> message, MessageHandler handler) {
+        return handler instanceof SimpAnnotationMethodMessageHandler
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE;
+    }
+}
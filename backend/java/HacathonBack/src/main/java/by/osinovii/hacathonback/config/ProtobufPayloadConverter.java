@@ -0,0 +1,70 @@
+package by.osinovii.hacathonback.config;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Конвертер protobuf-сообщений (классы из controller.proto) для STOMP.
+ * Исходящие protobuf-объекты сериализуются в бинарный вид с типом application/octet-stream -
+ * для такого типа STOMP отправляет бинарный WebSocket-кадр (кроме SockJS-сессий).
+ * Входящие кадры разбираются только при явном content-type (octet-stream или x-protobuf),
+ * поэтому JSON-сообщения по-прежнему обрабатывает Jackson.
+ */
+public class ProtobufPayloadConverter extends AbstractMessageConverter {
+
+    public static final MimeType PROTOBUF = new MimeType("application", "x-protobuf");
+
+    private final Map<Class<?>, Parser<?>> parsers = new ConcurrentHashMap<>();
+
+    public ProtobufPayloadConverter() {
+        super(MimeTypeUtils.APPLICATION_OCTET_STREAM, PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Message.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canConvertFrom(org.springframework.messaging.Message<?> message, Class<?> targetClass) {
+        return getMimeType(message.getHeaders()) != null && super.canConvertFrom(message, targetClass);
+    }
+
+    @Override
+    protected Object convertFromInternal(org.springframework.messaging.Message<?> message, Class<?> targetClass,
+                                         Object conversionHint) {
+        Object payload = message.getPayload();
+        if (!(payload instanceof byte[] bytes)) {
+            return null;
+        }
+        try {
+            return parserFor(targetClass).parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new MessageConversionException(message, "Некорректное protobuf-сообщение: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return ((Message) payload).toByteArray();
+    }
+
+    private Parser<?> parserFor(Class<?> messageClass) {
+        return parsers.computeIfAbsent(messageClass, clazz -> {
+            try {
+                return ((Message) clazz.getMethod("getDefaultInstance").invoke(null)).getParserForType();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Не удалось получить парсер для " + clazz.getName(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package by.osinovii.hacathonback.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+
+/**
+ * Привязка сессии STOMP к requesterId клиента.
+ * Персональные ответы отправляются через convertAndSendToUser(requesterId, ...), а это работает
+ * только для сессий с пользователем. Клиент передает свой requesterId в заголовке requester-id
+ * кадра CONNECT и затем получает ответы, подписавшись на /user/queue/...
+ */
+public class RequesterIdInterceptor implements ChannelInterceptor {
+
+    public static final String REQUESTER_ID_HEADER = "requester-id";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT || accessor.getUser() != null) {
+            return message;
+        }
+        String requesterId = accessor.getFirstNativeHeader(REQUESTER_ID_HEADER);
+        if (StringUtils.hasText(requesterId)) {
+            accessor.setUser(new RequesterPrincipal(requesterId));
+        }
+        return message;
+    }
+
+    record RequesterPrincipal(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
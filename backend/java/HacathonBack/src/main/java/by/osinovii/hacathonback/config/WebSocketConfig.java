@@ -1,8 +1,14 @@
 package by.osinovii.hacathonback.config;
 
+import by.osinovii.hacathonback.metrics.StompChannelMetricsInterceptor;
+import by.osinovii.hacathonback.metrics.StompMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -12,8 +18,14 @@ import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompMetrics stompMetrics;
+    // Есть только при hotel.stomp.virtual-threads=true
+    private final ObjectProvider<JdbcConcurrencyLimiter> jdbcConcurrencyLimiter;
+    private final DeviceEndpointInterceptor deviceEndpointInterceptor = new DeviceEndpointInterceptor();
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Префикс для топиков, на которые будут подписываться клиенты
@@ -26,6 +38,32 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Пользователь сессии из заголовка requester-id кадра CONNECT (для ответов в /user/queue/...),
+        // сообщения устройств только из сессий /device-ws, размеры входящих кадров и учет подписок
+        registration.interceptors(
+                new RequesterIdInterceptor(),
+                deviceEndpointInterceptor,
+                new StompChannelMetricsInterceptor(stompMetrics, StompChannelMetricsInterceptor.Direction.INBOUND));
+
+        // Режим виртуальных потоков: каждое входящее сообщение обрабатывается в своем виртуальном потоке,
+        // и обработчики, ждущие БД или устройство, не занимают потоки пула. Число одновременных
+        // обработчиков ограничено числом соединений с БД; время ожидания в метрики обработчика не входит
+        JdbcConcurrencyLimiter limiter = jdbcConcurrencyLimiter.getIfAvailable();
+        if (limiter != null) {
+            registration.executor(new VirtualThreadTaskExecutor("stomp-inbound-"));
+            registration.interceptors(limiter);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Размеры кадров, доставляемых клиентам
+        registration.interceptors(
+                new StompChannelMetricsInterceptor(stompMetrics, StompChannelMetricsInterceptor.Direction.OUTBOUND));
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Основной эндпоинт для подключения WebSocket
@@ -37,10 +75,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/guest-ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        
+        // Эндпоинт для контроллеров комнат: чистый WebSocket без SockJS,
+        // чтобы protobuf-кадры передавались в бинарном виде
+        registry.addEndpoint("/device-ws")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(deviceEndpointInterceptor);
     }
     
     @Override
     public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Protobuf-сообщения устройств (выбирается по типу объекта и content-type). Первым в списке:
+        // Spring Boot раньше добавляет свой Jackson-конвертер, который берется сериализовать любой объект
+        messageConverters.add(0, new ProtobufPayloadConverter());
+        
         // Добавляем конвертер для поддержки нового формата сообщений
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         messageConverters.add(converter);
@@ -0,0 +1,344 @@
+package by.osinovii.hacathonback.controller;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасное хранилище комнат и гостей для /app/socket.
+ * Комнаты и гости - неизменяемые записи в ConcurrentHashMap. Любое изменение гостя выполняется
+ * под блокировкой его ключа: операции, затрагивающие гостя и комнату, читают запись и записывают
+ * новую под блокировкой, и изменение без блокировки между чтением и записью было бы потеряно.
+ * Блокировки берутся из фиксированного набора (по хешу ключа) в порядке возрастания номера,
+ * поэтому операции работают параллельно для разных комнат и без взаимных блокировок.
+ */
+@Component
+public class LegacyStateStore {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private final Map<String, RoomState> rooms = new ConcurrentHashMap<>();
+    private final Map<String, GuestState> guests = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    public record GuestInfo(
+            @JsonProperty("id") String id,
+            @JsonProperty("first_name") String firstName,
+            @JsonProperty("last_name") String lastName) {
+    }
+
+    public record Lights(
+            @JsonProperty("bathroom") boolean bathroom,
+            @JsonProperty("bedroom") boolean bedroom,
+            @JsonProperty("hallway") boolean hallway) {
+    }
+
+    public record Sensors(
+            @JsonProperty("temperature") double temperature,
+            @JsonProperty("humidity") int humidity,
+            @JsonProperty("pressure") int pressure,
+            @JsonProperty("lights") Lights lights) {
+    }
+
+    public record RoomState(
+            @JsonProperty("id") String id,
+            @JsonProperty("room_number") String roomNumber,
+            @JsonProperty("room_type") String roomType,
+            @JsonProperty("status") String status,
+            @JsonProperty("price_per_night") int pricePerNight,
+            @JsonProperty("created_at") String createdAt,
+            @JsonProperty("updated_at") String updatedAt,
+            @JsonProperty("doorLocked") boolean doorLocked,
+            @JsonProperty("max_guests") int maxGuests,
+            @JsonProperty("guests") List<GuestInfo> guests,
+            @JsonProperty("sensors") Sensors sensors) {
+
+        public RoomState {
+            guests = List.copyOf(guests);
+        }
+
+        @JsonProperty("current_guests_count")
+        public int currentGuestsCount() {
+            return guests.size();
+        }
+
+        RoomState withStatus(String newStatus, String now) {
+            return new RoomState(id, roomNumber, roomType, newStatus, pricePerNight, createdAt, now,
+                    doorLocked, maxGuests, guests, sensors);
+        }
+
+        RoomState withGuests(String newStatus, List<GuestInfo> newGuests, String now) {
+            return new RoomState(id, roomNumber, roomType, newStatus, pricePerNight, createdAt, now,
+                    doorLocked, maxGuests, newGuests, sensors);
+        }
+    }
+
+    public record GuestState(
+            @JsonProperty("id") String id,
+            @JsonProperty("first_name") String firstName,
+            @JsonProperty("last_name") String lastName,
+            @JsonProperty("email") String email,
+            @JsonProperty("phone") String phone,
+            @JsonProperty("room_id") String roomId,
+            @JsonProperty("check_in_date") String checkInDate,
+            @JsonProperty("check_out_date") String checkOutDate,
+            @JsonProperty("created_at") String createdAt,
+            @JsonProperty("updated_at") String updatedAt) {
+
+        GuestState touched(String now) {
+            return new GuestState(id, firstName, lastName, email, phone, roomId, checkInDate, checkOutDate,
+                    createdAt, now);
+        }
+
+        GuestState withPhone(String newPhone, String now) {
+            return new GuestState(id, firstName, lastName, email, newPhone, roomId, checkInDate, checkOutDate,
+                    createdAt, now);
+        }
+
+        GuestState checkedIn(String newRoomId, String date, String now) {
+            return new GuestState(id, firstName, lastName, email, phone, newRoomId, date, checkOutDate,
+                    createdAt, now);
+        }
+
+        GuestState checkedOut(String date, String now) {
+            return new GuestState(id, firstName, lastName, email, phone, null, checkInDate, date,
+                    createdAt, now);
+        }
+
+        GuestInfo info() {
+            return new GuestInfo(id, firstName, lastName);
+        }
+    }
+
+    /**
+     * Изменения гостя из update_guest. Поле null - не изменяется.
+     * checkIn - гость заселяется в roomId, checkOut - гость выселяется.
+     */
+    public record GuestUpdate(String phone, boolean checkIn, boolean checkOut, String roomId, String date) {
+    }
+
+    /**
+     * Результат назначения нескольких гостей
+     */
+    public record Assignment(RoomState room, int assignedGuests) {
+    }
+
+    public LegacyStateStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        initDemoData();
+    }
+
+    public Collection<RoomState> getRooms() {
+        return List.copyOf(rooms.values());
+    }
+
+    public Collection<GuestState> getGuests() {
+        return List.copyOf(guests.values());
+    }
+
+    /**
+     * Обновление статуса комнаты (status == null - только дата изменения)
+     */
+    public RoomState updateRoom(String roomId, String status) {
+        RoomState updated = rooms.computeIfPresent(roomId,
+                (id, room) -> room.withStatus(status != null ? status : room.status(), now()));
+        if (updated == null) {
+            throw new IllegalArgumentException("Комната с ID " + roomId + " не найдена");
+        }
+        return updated;
+    }
+
+    public GuestState addGuest(String firstName, String lastName, String email, String phone) {
+        String guestId = UUID.randomUUID().toString().replace("-", "").substring(0, 9);
+        String now = now();
+        GuestState guest = new GuestState(guestId, firstName, lastName, email, phone, null, null, null, now, now);
+        guests.put(guestId, guest);
+        return guest;
+    }
+
+    public GuestState updateGuest(String guestId, GuestUpdate update) {
+        if (!update.checkIn()) {
+            // Изменяется только сам гость - достаточно блокировки гостя
+            return withLocks(List.of(guestKey(guestId)), () -> {
+                GuestState updated = guests.computeIfPresent(guestId, (id, guest) -> applyOwnFields(guest, update));
+                if (updated == null) {
+                    throw new IllegalArgumentException("Гость с ID " + guestId + " не найден");
+                }
+                return updated;
+            });
+        }
+
+        return withLocks(List.of(guestKey(guestId), roomKey(update.roomId())), () -> {
+            GuestState guest = guests.get(guestId);
+            if (guest == null) {
+                throw new IllegalArgumentException("Гость с ID " + guestId + " не найден");
+            }
+            if (!rooms.containsKey(update.roomId())) {
+                throw new IllegalArgumentException("Комната с ID " + update.roomId() + " не найдена");
+            }
+            String now = now();
+            GuestState updated = applyOwnFields(guest, update)
+                    .checkedIn(update.roomId(), update.date() != null ? update.date() : now, now);
+            guests.put(guestId, updated);
+            rooms.computeIfPresent(update.roomId(), (id, room) -> {
+                List<GuestInfo> roomGuests = new ArrayList<>(room.guests());
+                roomGuests.add(updated.info());
+                return room.withGuests("occupied", roomGuests, now);
+            });
+            return updated;
+        });
+    }
+
+    /**
+     * Удаление гостя. Если гость жил в комнате, он удаляется из ее списка гостей,
+     * а опустевшая комната становится свободной.
+     */
+    public void deleteGuest(String guestId) {
+        while (true) {
+            GuestState snapshot = guests.get(guestId);
+            if (snapshot == null) {
+                throw new IllegalArgumentException("Гость с ID " + guestId + " не найден");
+            }
+            String roomId = snapshot.roomId();
+            List<String> keys = roomId == null
+                    ? List.of(guestKey(guestId))
+                    : List.of(guestKey(guestId), roomKey(roomId));
+            boolean done = withLocks(keys, () -> {
+                GuestState guest = guests.get(guestId);
+                if (guest == null) {
+                    throw new IllegalArgumentException("Гость с ID " + guestId + " не найден");
+                }
+                if (!Objects.equals(guest.roomId(), roomId)) {
+                    // Гостя переселили, пока мы ждали блокировку - повторяем с новой комнатой
+                    return false;
+                }
+                if (roomId != null) {
+                    rooms.computeIfPresent(roomId, (id, room) -> {
+                        List<GuestInfo> roomGuests = new ArrayList<>(room.guests());
+                        roomGuests.removeIf(info -> info.id().equals(guestId));
+                        return room.withGuests(roomGuests.isEmpty() ? "free" : room.status(), roomGuests, now());
+                    });
+                }
+                guests.remove(guestId);
+                return true;
+            });
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Атомарное назначение нескольких гостей в одну комнату: либо назначаются все, либо никто.
+     * Текущий список гостей комнаты заменяется новым.
+     */
+    public Assignment assignMultipleGuests(String roomId, List<String> guestIds, String checkInDate) {
+        List<String> keys = new ArrayList<>(guestIds.size() + 1);
+        keys.add(roomKey(roomId));
+        guestIds.forEach(guestId -> keys.add(guestKey(guestId)));
+
+        return withLocks(keys, () -> {
+            if (!rooms.containsKey(roomId)) {
+                throw new IllegalArgumentException("Комната с ID " + roomId + " не найдена");
+            }
+            for (String guestId : guestIds) {
+                if (!guests.containsKey(guestId)) {
+                    throw new IllegalArgumentException("Гость с ID " + guestId + " не найден");
+                }
+            }
+
+            String now = now();
+            String date = checkInDate != null ? checkInDate : now;
+            List<GuestInfo> roomGuests = new ArrayList<>(guestIds.size());
+            for (String guestId : guestIds) {
+                GuestState updated = guests.get(guestId).checkedIn(roomId, date, now);
+                guests.put(guestId, updated);
+                roomGuests.add(updated.info());
+            }
+            RoomState room = rooms.computeIfPresent(roomId, (id, current) -> current.withGuests("occupied", roomGuests, now));
+            return new Assignment(room, guestIds.size());
+        });
+    }
+
+    private GuestState applyOwnFields(GuestState guest, GuestUpdate update) {
+        String now = now();
+        GuestState updated = update.phone() != null ? guest.withPhone(update.phone(), now) : guest.touched(now);
+        if (update.checkOut()) {
+            updated = updated.checkedOut(update.date() != null ? update.date() : now, now);
+        }
+        return updated;
+    }
+
+    /**
+     * Выполнение действия под блокировками всех ключей.
+     * Блокировки берутся по возрастанию номера, что исключает взаимные блокировки.
+     */
+    private <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        keys.forEach(key -> indexes.add(Math.floorMod(key.hashCode(), LOCK_STRIPES)));
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.size());
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                lock.lock();
+                acquired.add(lock);
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    private static String roomKey(String roomId) {
+        return "room:" + roomId;
+    }
+
+    private static String guestKey(String guestId) {
+        return "guest:" + guestId;
+    }
+
+    // Получение текущей даты-времени в формате ISO
+    private static String now() {
+        return LocalDateTime.now().atOffset(ZoneOffset.UTC)
+                .format(ISO_FORMATTER);
+    }
+
+    // Инициализация демонстрационных данных
+    private void initDemoData() {
+        String now = now();
+        for (int i = 1; i <= 5; i++) {
+            String roomId = "1000" + i;
+            Sensors sensors = new Sensors(22.0 + i, 45 + i, 1013, new Lights(false, false, false));
+            rooms.put(roomId, new RoomState(
+                    roomId,
+                    "10" + i,
+                    i <= 3 ? "standart" : (i == 4 ? "deluxe" : "suite"),
+                    "free",
+                    100 * i,
+                    now,
+                    now,
+                    true,
+                    i == 5 ? 4 : (i >= 3 ? 3 : 2),
+                    List.of(),
+                    sensors));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package by.osinovii.hacathonback.controller;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Типизированные команды и ответы протокола /app/socket.
+ * Команды связываются напрямую из поля data входящего сообщения,
+ * ответы сериализуются без промежуточного дерева JsonNode.
+ */
+final class SocketProtocol {
+
+    private SocketProtocol() {
+    }
+
+    // Команды
+
+    record UpdateRoomCommand(
+            @JsonProperty("id") String id,
+            @JsonProperty("status") String status) {
+    }
+
+    record AddGuestCommand(
+            @JsonProperty("first_name") String firstName,
+            @JsonProperty("last_name") String lastName,
+            @JsonProperty("email") String email,
+            @JsonProperty("phone") String phone) {
+    }
+
+    /**
+     * roomId: null - поле не передано, Optional.empty() - передан null (выселение)
+     */
+    record UpdateGuestCommand(
+            @JsonProperty("id") String id,
+            @JsonProperty("phone") String phone,
+            @JsonProperty("room_id") Optional<String> roomId,
+            @JsonProperty("check_in_date") String checkInDate,
+            @JsonProperty("check_out_date") String checkOutDate) {
+    }
+
+    record DeleteGuestCommand(
+            @JsonProperty("id") String id) {
+    }
+
+    record AssignMultipleGuestsCommand(
+            @JsonProperty("room_id") String roomId,
+            @JsonProperty("guest_ids") List<String> guestIds,
+            @JsonProperty("check_in_date") String checkInDate) {
+    }
+
+    // Ответы
+
+    record Response(
+            @JsonProperty("action") String action,
+            @JsonProperty("data") Object data) {
+    }
+
+    record RoomsData(
+            @JsonProperty("rooms") Collection<LegacyStateStore.RoomState> rooms) {
+    }
+
+    record GuestsData(
+            @JsonProperty("guests") Collection<LegacyStateStore.GuestState> guests) {
+    }
+
+    record RoomUpdatedData(
+            @JsonProperty("id") String id,
+            @JsonProperty("status") String status,
+            @JsonProperty("updated_at") String updatedAt) {
+    }
+
+    record GuestDeletedData(
+            @JsonProperty("success") boolean success,
+            @JsonProperty("message") String message,
+            @JsonProperty("id") String id) {
+    }
+
+    record GuestsAssignedData(
+            @JsonProperty("success") boolean success,
+            @JsonProperty("room_id") String roomId,
+            @JsonProperty("assigned_guests") int assignedGuests,
+            @JsonProperty("updated_room") LegacyStateStore.RoomState updatedRoom) {
+    }
+
+    record ErrorData(
+            @JsonProperty("success") boolean success,
+            @JsonProperty("message") String message) {
+    }
+}
@@ -1,423 +1,294 @@
 package by.osinovii.hacathonback.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import by.osinovii.hacathonback.controller.SocketProtocol.*;
+import by.osinovii.hacathonback.metrics.StompMetrics;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @Controller
 public class WebSocketController {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new Jdk8Module())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    // Читатели и писатель создаются один раз и переиспользуются для всех сообщений
+    private static final ObjectReader UPDATE_ROOM_READER = OBJECT_MAPPER.readerFor(UpdateRoomCommand.class);
+    private static final ObjectReader ADD_GUEST_READER = OBJECT_MAPPER.readerFor(AddGuestCommand.class);
+    private static final ObjectReader UPDATE_GUEST_READER = OBJECT_MAPPER.readerFor(UpdateGuestCommand.class);
+    private static final ObjectReader DELETE_GUEST_READER = OBJECT_MAPPER.readerFor(DeleteGuestCommand.class);
+    private static final ObjectReader ASSIGN_GUESTS_READER = OBJECT_MAPPER.readerFor(AssignMultipleGuestsCommand.class);
+    private static final ObjectWriter RESPONSE_WRITER = OBJECT_MAPPER.writerFor(Response.class);
+    
+    private static final byte[] FALLBACK_ERROR = "{\"action\":\"error\",\"data\":{\"success\":false,\"message\":\"Ошибка создания ответа\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    
+    /**
+     * Ответ на сообщение: json отправляется либо запросившей сессии (topic == null),
+     * либо, для изменений, только в топик затронутой комнаты или гостя
+     */
+    private record Reply(byte[] json, String topic, boolean error) {
+        static Reply toRequester(byte[] json) {
+            return new Reply(json, null, false);
+        }
+        
+        static Reply event(byte[] json, String topic) {
+            return new Reply(json, topic, false);
+        }
+        
+        static Reply error(byte[] json) {
+            return new Reply(json, null, true);
+        }
+    }
     
     // Хранилище комнат и гостей (для демонстрации)
-    private Map<String, Map<String, Object>> rooms = new HashMap<>();
-    private Map<String, Map<String, Object>> guests = new HashMap<>();
+    private final LegacyStateStore store;
     
-    public WebSocketController() {
-        // Инициализация демо-комнат
-        initDemoData();
+    public WebSocketController(SimpMessagingTemplate messagingTemplate, LegacyStateStore store) {
+        this.messagingTemplate = messagingTemplate;
+        this.store = store;
     }
     
-    // Основная точка входа для всех WebSocket сообщений
+    /**
+     * Основная точка входа для всех WebSocket сообщений.
+     * Сообщение читается потоково: action извлекается парсером, data сохраняется
+     * в TokenBuffer и связывается с типизированной командой без построения дерева.
+     * 
+     * Ответы на запросы и ошибки получает только запросившая сессия (подписка /user/queue/messages).
+     * Событие об изменении отправляется ровно в один топик и получают его только подписчики
+     * затронутой сущности (в том числе запросивший, если он ее отображает):
+     * /topic/rooms/{id} - изменения комнаты, /topic/guests/{id} - изменения гостя
+     * (в том числе заселение), /topic/guests - новые гости.
+     */
     @MessageMapping("/socket")
-    @SendTo("/topic/messages")
-    public String handleSocketMessage(String message) {
-        try {
-            // Разбор входящего сообщения
-            JsonNode rootNode = objectMapper.readTree(message);
-            String action = rootNode.get("action").asText();
-            JsonNode data = rootNode.get("data");
-            
-            // Выбор действия в зависимости от action
-            switch (action) {
-                case "get_rooms":
-                    return getRooms();
-                case "update_room":
-                    return updateRoom(data);
-                case "get_guests":
-                    return getGuests();
-                case "add_guest":
-                    return addGuest(data);
-                case "update_guest":
-                    return updateGuest(data);
-                case "delete_guest":
-                    return deleteGuest(data);
-                case "assign_multiple_guests":
-                    return assignMultipleGuests(data);
-                default:
-                    return createErrorResponse("Неизвестное действие: " + action);
+    public void handleSocketMessage(Message<byte[]> message) {
+        Reply reply = dispatch(message.getPayload());
+        
+        if (reply.topic() != null) {
+            messagingTemplate.send(reply.topic(), toJsonMessage(reply.json(), null, false));
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            messagingTemplate.send("/user/" + sessionId + "/queue/messages",
+                    toJsonMessage(reply.json(), sessionId, reply.error()));
+        }
+    }
+    
+    private Reply dispatch(byte[] payload) {
+        String action = null;
+        TokenBuffer data = null;
+        try (JsonParser parser = OBJECT_MAPPER.createParser(payload)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING) {
+                // Старые клиенты присылают сообщение как JSON-строку с JSON внутри
+                return dispatch(parser.getText().getBytes(StandardCharsets.UTF_8));
+            }
+            if (token != JsonToken.START_OBJECT) {
+                return createErrorResponse("Ошибка обработки сообщения: ожидается JSON-объект");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("action".equals(field)) {
+                    action = parser.getValueAsString();
+                } else if ("data".equals(field)) {
+                    data = new TokenBuffer(parser);
+                    data.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
             }
-            
         } catch (Exception e) {
             return createErrorResponse("Ошибка обработки сообщения: " + e.getMessage());
         }
+        
+        if (action == null) {
+            return createErrorResponse("Ошибка обработки сообщения: не указано действие");
+        }
+        
+        // Выбор действия в зависимости от action
+        return switch (action) {
+            case "get_rooms" -> getRooms();
+            case "update_room" -> updateRoom(data);
+            case "get_guests" -> getGuests();
+            case "add_guest" -> addGuest(data);
+            case "update_guest" -> updateGuest(data);
+            case "delete_guest" -> deleteGuest(data);
+            case "assign_multiple_guests" -> assignMultipleGuests(data);
+            default -> createErrorResponse("Неизвестное действие: " + action);
+        };
     }
     
     // Получение списка всех комнат
-    private String getRooms() {
+    private Reply getRooms() {
         try {
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "initial_data");
-            
-            ObjectNode dataNode = objectMapper.createObjectNode();
-            dataNode.set("rooms", objectMapper.valueToTree(rooms.values()));
-            
-            response.set("data", dataNode);
-            return objectMapper.writeValueAsString(response);
+            return Reply.toRequester(write("initial_data", new RoomsData(store.getRooms())));
         } catch (Exception e) {
             return createErrorResponse("Ошибка при получении комнат: " + e.getMessage());
         }
     }
     
     // Обновление информации о комнате
-    private String updateRoom(JsonNode data) {
+    private Reply updateRoom(TokenBuffer data) {
         try {
-            String roomId = data.get("id").asText();
-            
-            if (!rooms.containsKey(roomId)) {
-                return createErrorResponse("Комната с ID " + roomId + " не найдена");
-            }
-            
-            Map<String, Object> room = rooms.get(roomId);
-            
-            // Обновляем статус если он указан
-            if (data.has("status")) {
-                room.put("status", data.get("status").asText());
-            }
+            UpdateRoomCommand command = read(UPDATE_ROOM_READER, data);
             
-            // Обновляем дату изменения
-            room.put("updated_at", getCurrentIsoDateTime());
+            // Обновляем статус, если он указан, и дату изменения
+            LegacyStateStore.RoomState room = store.updateRoom(command.id(), command.status());
             
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "update_room");
-            
-            ObjectNode responseData = objectMapper.createObjectNode();
-            responseData.put("id", roomId);
-            responseData.put("status", (String) room.get("status"));
-            responseData.put("updated_at", (String) room.get("updated_at"));
-            
-            response.set("data", responseData);
-            return objectMapper.writeValueAsString(response);
+            return Reply.event(write("update_room", new RoomUpdatedData(command.id(), room.status(), room.updatedAt())),
+                    roomTopic(command.id()));
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(e.getMessage());
         } catch (Exception e) {
             return createErrorResponse("Ошибка при обновлении комнаты: " + e.getMessage());
         }
     }
     
     // Получение списка всех гостей
-    private String getGuests() {
+    private Reply getGuests() {
         try {
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "initial_data");
-            
-            ObjectNode dataNode = objectMapper.createObjectNode();
-            dataNode.set("guests", objectMapper.valueToTree(guests.values()));
-            
-            response.set("data", dataNode);
-            return objectMapper.writeValueAsString(response);
+            return Reply.toRequester(write("initial_data", new GuestsData(store.getGuests())));
         } catch (Exception e) {
             return createErrorResponse("Ошибка при получении гостей: " + e.getMessage());
         }
     }
     
     // Добавление нового гостя
-    private String addGuest(JsonNode data) {
+    private Reply addGuest(TokenBuffer data) {
         try {
-            // Генерируем новый ID
-            String guestId = UUID.randomUUID().toString().replace("-", "").substring(0, 9);
-            
-            Map<String, Object> newGuest = new HashMap<>();
-            newGuest.put("id", guestId);
-            newGuest.put("first_name", data.get("first_name").asText());
-            newGuest.put("last_name", data.get("last_name").asText());
-            newGuest.put("email", data.get("email").asText());
-            newGuest.put("phone", data.get("phone").asText());
-            newGuest.put("room_id", null);
-            newGuest.put("check_in_date", null);
-            newGuest.put("check_out_date", null);
-            newGuest.put("created_at", getCurrentIsoDateTime());
-            newGuest.put("updated_at", getCurrentIsoDateTime());
+            AddGuestCommand command = read(ADD_GUEST_READER, data);
             
-            // Сохраняем гостя
-            guests.put(guestId, newGuest);
+            LegacyStateStore.GuestState newGuest = store.addGuest(
+                    command.firstName(), command.lastName(), command.email(), command.phone());
             
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "add_guest");
-            response.set("data", objectMapper.valueToTree(newGuest));
-            
-            return objectMapper.writeValueAsString(response);
+            return Reply.event(write("add_guest", newGuest), "/topic/guests");
         } catch (Exception e) {
             return createErrorResponse("Ошибка при добавлении гостя: " + e.getMessage());
         }
     }
     
     // Обновление информации о госте
-    private String updateGuest(JsonNode data) {
+    private Reply updateGuest(TokenBuffer data) {
         try {
-            String guestId = data.get("id").asText();
-            
-            if (!guests.containsKey(guestId)) {
-                return createErrorResponse("Гость с ID " + guestId + " не найден");
-            }
-            
-            Map<String, Object> guest = guests.get(guestId);
-            
-            // Обновление полей гостя, если они указаны
-            if (data.has("phone")) {
-                guest.put("phone", data.get("phone").asText());
-            }
-            
-            // Обработка заселения и выселения
-            if (data.has("room_id")) {
-                if (data.get("room_id").isNull()) {
-                    // Выселение гостя
-                    guest.put("room_id", null);
-                    
-                    if (data.has("check_out_date")) {
-                        guest.put("check_out_date", data.get("check_out_date").asText());
-                    } else {
-                        guest.put("check_out_date", getCurrentIsoDateTime());
-                    }
-                } else {
-                    // Заселение гостя
-                    String roomId = data.get("room_id").asText();
-                    
-                    // Проверка существования комнаты
-                    if (!rooms.containsKey(roomId)) {
-                        return createErrorResponse("Комната с ID " + roomId + " не найдена");
-                    }
-                    
-                    guest.put("room_id", roomId);
-                    
-                    if (data.has("check_in_date")) {
-                        guest.put("check_in_date", data.get("check_in_date").asText());
-                    } else {
-                        guest.put("check_in_date", getCurrentIsoDateTime());
-                    }
-                    
-                    // Обновляем статус комнаты
-                    Map<String, Object> room = rooms.get(roomId);
-                    room.put("status", "occupied");
-                    room.put("updated_at", getCurrentIsoDateTime());
-                    
-                    // Добавляем гостя в список гостей комнаты
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> roomGuests = (List<Map<String, Object>>) room.getOrDefault("guests", new ArrayList<>());
-                    
-                    // Создаем краткую информацию о госте для комнаты
-                    Map<String, Object> guestInfo = new HashMap<>();
-                    guestInfo.put("id", guest.get("id"));
-                    guestInfo.put("first_name", guest.get("first_name"));
-                    guestInfo.put("last_name", guest.get("last_name"));
-                    
-                    roomGuests.add(guestInfo);
-                    room.put("guests", roomGuests);
-                    room.put("current_guests_count", roomGuests.size());
-                }
-            }
+            UpdateGuestCommand command = read(UPDATE_GUEST_READER, data);
             
-            guest.put("updated_at", getCurrentIsoDateTime());
+            boolean checkOut = command.roomId() != null && command.roomId().isEmpty();
+            boolean checkIn = command.roomId() != null && command.roomId().isPresent();
+            String date = checkIn ? command.checkInDate() : command.checkOutDate();
             
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "update_guest");
-            response.set("data", objectMapper.valueToTree(guest));
+            // Заселение и выселение обрабатываются атомарно вместе с обновлением комнаты
+            LegacyStateStore.GuestState guest = store.updateGuest(command.id(),
+                    new LegacyStateStore.GuestUpdate(command.phone(), checkIn, checkOut,
+                            checkIn ? command.roomId().get() : null, date));
             
-            return objectMapper.writeValueAsString(response);
+            return Reply.event(write("update_guest", guest), guestTopic(guest.id()));
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(e.getMessage());
         } catch (Exception e) {
             return createErrorResponse("Ошибка при обновлении гостя: " + e.getMessage());
         }
     }
     
     // Удаление гостя
-    private String deleteGuest(JsonNode data) {
+    private Reply deleteGuest(TokenBuffer data) {
         try {
-            String guestId = data.get("id").asText();
+            DeleteGuestCommand command = read(DELETE_GUEST_READER, data);
             
-            if (!guests.containsKey(guestId)) {
-                return createErrorResponse("Гость с ID " + guestId + " не найден");
-            }
-            
-            // Получаем информацию о госте перед удалением
-            Map<String, Object> guest = guests.get(guestId);
-            
-            // Если гость был в комнате, обновляем информацию о комнате
-            if (guest.get("room_id") != null) {
-                String roomId = (String) guest.get("room_id");
-                
-                if (rooms.containsKey(roomId)) {
-                    Map<String, Object> room = rooms.get(roomId);
-                    
-                    // Удаляем гостя из списка гостей комнаты
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> roomGuests = (List<Map<String, Object>>) room.get("guests");
-                    roomGuests.removeIf(g -> g.get("id").equals(guestId));
-                    
-                    room.put("current_guests_count", roomGuests.size());
-                    
-                    // Если нет больше гостей, меняем статус комнаты
-                    if (roomGuests.isEmpty()) {
-                        room.put("status", "free");
-                    }
-                    
-                    room.put("updated_at", getCurrentIsoDateTime());
-                }
-            }
-            
-            // Удаляем гостя
-            guests.remove(guestId);
+            // Гость удаляется вместе с обновлением его комнаты
+            store.deleteGuest(command.id());
             
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "delete_guest");
-            
-            ObjectNode responseData = objectMapper.createObjectNode();
-            responseData.put("success", true);
-            responseData.put("message", "Гость успешно удален");
-            responseData.put("id", guestId);
-            
-            response.set("data", responseData);
-            return objectMapper.writeValueAsString(response);
+            return Reply.event(write("delete_guest", new GuestDeletedData(true, "Гость успешно удален", command.id())),
+                    guestTopic(command.id()));
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(e.getMessage());
         } catch (Exception e) {
             return createErrorResponse("Ошибка при удалении гостя: " + e.getMessage());
         }
     }
     
     // Назначение нескольких гостей в одну комнату
-    private String assignMultipleGuests(JsonNode data) {
+    private Reply assignMultipleGuests(TokenBuffer data) {
         try {
-            String roomId = data.get("room_id").asText();
-            JsonNode guestIdsNode = data.get("guest_ids");
-            String checkInDate = data.has("check_in_date") ? 
-                data.get("check_in_date").asText() : getCurrentIsoDateTime();
-            
-            if (!rooms.containsKey(roomId)) {
-                return createErrorResponse("Комната с ID " + roomId + " не найдена");
-            }
-            
-            Map<String, Object> room = rooms.get(roomId);
-            List<String> guestIds = new ArrayList<>();
-            
-            for (JsonNode guestIdNode : guestIdsNode) {
-                guestIds.add(guestIdNode.asText());
-            }
-            
-            // Проверяем существование всех гостей
-            for (String guestId : guestIds) {
-                if (!guests.containsKey(guestId)) {
-                    return createErrorResponse("Гость с ID " + guestId + " не найден");
-                }
-            }
-            
-            // Обновляем информацию о комнате
-            room.put("status", "occupied");
-            
-            // Очищаем текущий список гостей комнаты
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> roomGuests = new ArrayList<>();
-            room.put("guests", roomGuests);
-            
-            // Обновляем информацию о гостях
-            for (String guestId : guestIds) {
-                Map<String, Object> guest = guests.get(guestId);
-                
-                // Обновляем информацию о госте
-                guest.put("room_id", roomId);
-                guest.put("check_in_date", checkInDate);
-                guest.put("updated_at", getCurrentIsoDateTime());
-                
-                // Добавляем краткую информацию о госте в комнату
-                Map<String, Object> guestInfo = new HashMap<>();
-                guestInfo.put("id", guest.get("id"));
-                guestInfo.put("first_name", guest.get("first_name"));
-                guestInfo.put("last_name", guest.get("last_name"));
-                
-                roomGuests.add(guestInfo);
-            }
-            
-            room.put("current_guests_count", roomGuests.size());
-            room.put("updated_at", getCurrentIsoDateTime());
+            AssignMultipleGuestsCommand command = read(ASSIGN_GUESTS_READER, data);
             
-            // Формируем ответ
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "assign_multiple_guests");
+            // Все гости назначаются атомарно: либо все, либо никто
+            LegacyStateStore.Assignment assignment = store.assignMultipleGuests(
+                    command.roomId(), command.guestIds(), command.checkInDate());
             
-            ObjectNode responseData = objectMapper.createObjectNode();
-            responseData.put("success", true);
-            responseData.put("room_id", roomId);
-            responseData.put("assigned_guests", guestIds.size());
-            responseData.set("updated_room", objectMapper.valueToTree(room));
-            
-            response.set("data", responseData);
-            return objectMapper.writeValueAsString(response);
+            return Reply.event(write("assign_multiple_guests", new GuestsAssignedData(
+                    true, command.roomId(), assignment.assignedGuests(), assignment.room())),
+                    roomTopic(command.roomId()));
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(e.getMessage());
         } catch (Exception e) {
             return createErrorResponse("Ошибка при назначении гостей: " + e.getMessage());
         }
     }
     
-    // Вспомогательный метод для создания ответа с ошибкой
-    private String createErrorResponse(String message) {
-        try {
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("action", "error");
-            
-            ObjectNode data = objectMapper.createObjectNode();
-            data.put("success", false);
-            data.put("message", message);
-            
-            response.set("data", data);
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            return "{\"action\":\"error\",\"data\":{\"success\":false,\"message\":\"Ошибка создания ответа\"}}";
+    private static <T> T read(ObjectReader reader, TokenBuffer data) throws IOException {
+        if (data == null) {
+            throw new IOException("отсутствует поле data");
+        }
+        try (JsonParser parser = data.asParser()) {
+            return reader.readValue(parser);
         }
     }
     
-    // Получение текущей даты-времени в формате ISO
-    private String getCurrentIsoDateTime() {
-        return LocalDateTime.now().atOffset(ZoneOffset.UTC)
-                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'"));
+    private static byte[] write(String action, Object data) throws IOException {
+        return RESPONSE_WRITER.writeValueAsBytes(new Response(action, data));
     }
     
-    // Инициализация демонстрационных данных
-    private void initDemoData() {
-        // Создание нескольких комнат
-        for (int i = 1; i <= 5; i++) {
-            String roomId = "1000" + i;
-            Map<String, Object> room = new HashMap<>();
-            room.put("id", roomId);
-            room.put("room_number", "10" + i);
-            room.put("room_type", i <= 3 ? "standart" : (i == 4 ? "deluxe" : "suite"));
-            room.put("status", "free");
-            room.put("price_per_night", 100 * i);
-            room.put("created_at", getCurrentIsoDateTime());
-            room.put("updated_at", getCurrentIsoDateTime());
-            room.put("doorLocked", true);
-            room.put("max_guests", i == 5 ? 4 : (i >= 3 ? 3 : 2));
-            room.put("current_guests_count", 0);
-            
-            // Добавляем пустой список гостей
-            room.put("guests", new ArrayList<>());
-            
-            // Добавляем данные с датчиков
-            Map<String, Object> sensors = new HashMap<>();
-            sensors.put("temperature", 22.0 + i);
-            sensors.put("humidity", 45 + i);
-            sensors.put("pressure", 1013);
-            
-            Map<String, Boolean> lights = new HashMap<>();
-            lights.put("bathroom", false);
-            lights.put("bedroom", false);
-            lights.put("hallway", false);
-            
-            sensors.put("lights", lights);
-            room.put("sensors", sensors);
-            
-            rooms.put(roomId, room);
+    private static String roomTopic(String roomId) {
+        return "/topic/rooms/" + roomId;
+    }
+    
+    private static String guestTopic(String guestId) {
+        return "/topic/guests/" + guestId;
+    }
+    
+    // Вспомогательный метод для создания ответа с ошибкой (только запросившей сессии)
+    private static Reply createErrorResponse(String message) {
+        try {
+            return Reply.error(write("error", new ErrorData(false, message)));
+        } catch (Exception e) {
+            return Reply.error(FALLBACK_ERROR);
+        }
+    }
+    
+    // Готовый JSON отправляется как есть, без повторной сериализации конвертером.
+    // sessionId нужен для адресации /user/{sessionId}/... конкретной сессии,
+    // заголовок ответа с ошибкой - для метрик обработчика (клиенту не передается)
+    private static Message<byte[]> toJsonMessage(byte[] json, String sessionId, boolean error) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        if (error) {
+            accessor.setHeader(StompMetrics.ERROR_REPLY_HEADER, Boolean.TRUE);
         }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
     }
-} 
\ No newline at end of file
+}
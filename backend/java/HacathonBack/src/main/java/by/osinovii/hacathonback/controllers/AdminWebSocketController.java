@@ -2,9 +2,14 @@ package by.osinovii.hacathonback.controllers;
 
 import by.osinovii.hacathonback.entities.Guest;
 import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.eventlog.EventLog;
+import by.osinovii.hacathonback.iot.DeviceStateRegistry;
+import by.osinovii.hacathonback.messaging.BroadcastCollapser;
 import by.osinovii.hacathonback.services.AdminService;
 import by.osinovii.hacathonback.services.GuestService;
 import by.osinovii.hacathonback.services.RoomService;
+import by.osinovii.hacathonback.telemetry.TelemetryRollupService;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -19,6 +24,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * WebSocket контроллер для администраторов отеля.
@@ -29,39 +36,199 @@ import java.util.Optional;
 @Slf4j
 public class AdminWebSocketController {
 
+    // Количество результатов поиска гостей по умолчанию
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    // Количество событий журнала устройств в одном ответе
+    private static final int DEFAULT_EVENTS_LIMIT = 500;
+    private static final int MAX_EVENTS_LIMIT = 5000;
+
+    // Размер страницы при постраничной выдаче списков
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final SimpMessagingTemplate messagingTemplate;
     private final RoomService roomService;
     private final GuestService guestService;
     private final AdminService adminService;
+    private final BroadcastCollapser broadcastCollapser;
+    private final TelemetryService telemetryService;
+    private final EventLog eventLog;
+    private final DeviceStateRegistry deviceStateRegistry;
 
     /**
-     * Получение списка всех комнат
+     * Получение списка всех комнат.
+     * Одновременные запросы объединяются в одну рассылку (см. BroadcastCollapser).
      */
     @MessageMapping("/admin/rooms")
-    @SendTo("/topic/admin/rooms")
-    public List<Room> getAllRooms() {
+    public void getAllRooms() {
         log.info("Администратор запрашивает список всех комнат");
-        return roomService.getAllRooms();
+        broadcastCollapser.broadcast("/topic/admin/rooms", roomService::getAllRooms);
     }
 
     /**
      * Получение списка всех гостей
      */
     @MessageMapping("/admin/guests")
-    @SendTo("/topic/admin/guests")
-    public List<Guest> getAllGuests() {
+    public void getAllGuests() {
         log.info("Администратор запрашивает список всех гостей");
-        return guestService.getAllGuests();
+        broadcastCollapser.broadcast("/topic/admin/guests", guestService::getAllGuests);
+    }
+
+    /**
+     * Дельта-синхронизация комнат: комнаты, измененные после версии sinceVersion,
+     * или полный список, если sinceVersion не передан или устарел
+     */
+    @MessageMapping("/admin/rooms/changes")
+    public void getRoomChanges(@Payload Map<String, Object> payload) {
+        try {
+            Object since = payload.get("sinceVersion");
+            Long sinceVersion = since == null ? null : Long.valueOf(since.toString());
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            log.debug("Администратор запрашивает изменения комнат после версии {}", sinceVersion);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/room-changes",
+                    roomService.getRoomChanges(sinceVersion)
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при получении изменений комнат", e);
+            handleError(payload, "Ошибка при получении изменений комнат: " + e.getMessage());
+        }
+    }
+
+    /**
+     * История климата комнаты для графиков.
+     * Параметры: roomNumber, from и to - миллисекунды эпохи (по умолчанию последние сутки),
+     * maxPoints - максимум точек, по которому выбирается разрешение (минуты, часы или дни)
+     */
+    @MessageMapping("/admin/rooms/climate-history")
+    public void getClimateHistory(@Payload Map<String, Object> payload) {
+        try {
+            String roomNumber = (String) payload.get("roomNumber");
+            long to = ((Number) payload.getOrDefault("to", System.currentTimeMillis())).longValue();
+            long from = ((Number) payload.getOrDefault("from", to - 86_400_000L)).longValue();
+            int maxPoints = ((Number) payload.getOrDefault("maxPoints",
+                    TelemetryRollupService.DEFAULT_MAX_POINTS)).intValue();
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            log.debug("Администратор запрашивает историю климата комнаты {}", roomNumber);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/climate-history",
+                    telemetryService.getClimateHistory(roomNumber, from, to, maxPoints)
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при получении истории климата", e);
+            handleError(payload, "Ошибка при получении истории климата: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Текущее состояние устройств комнаты (свет, замок, каналы)
+     */
+    @MessageMapping("/admin/rooms/device-state")
+    public void getDeviceState(@Payload Map<String, Object> payload) {
+        try {
+            String roomNumber = (String) payload.get("roomNumber");
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("roomNumber", roomNumber);
+            response.put("state", deviceStateRegistry.getState(roomNumber).orElse(null));
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/device-state",
+                    response
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при получении состояния устройств", e);
+            handleError(payload, "Ошибка при получении состояния устройств: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Журнал событий дверей и устройств комнаты для аудита.
+     * Параметры: roomNumber, from и to - миллисекунды эпохи (по умолчанию последние сутки), limit
+     */
+    @MessageMapping("/admin/rooms/device-events")
+    public void getDeviceEvents(@Payload Map<String, Object> payload) {
+        try {
+            String roomNumber = (String) payload.get("roomNumber");
+            long to = ((Number) payload.getOrDefault("to", System.currentTimeMillis())).longValue();
+            long from = ((Number) payload.getOrDefault("from", to - 86_400_000L)).longValue();
+            int limit = Math.min(((Number) payload.getOrDefault("limit", DEFAULT_EVENTS_LIMIT)).intValue(),
+                    MAX_EVENTS_LIMIT);
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            log.debug("Администратор запрашивает журнал событий комнаты {}", roomNumber);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/device-events",
+                    eventLog.query(roomNumber, from, to, limit)
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при получении журнала событий", e);
+            handleError(payload, "Ошибка при получении журнала событий: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Постраничное получение гостей.
+     * Параметры: after - курсор (ID последнего полученного гостя), pageSize.
+     * На запрос отправляется одна страница; следующую клиент запрашивает с after = nextCursor,
+     * поэтому темп выдачи задает клиент, а обработчик не занят всей таблицей.
+     */
+    @MessageMapping("/admin/guests/page")
+    public void getGuestsPage(@Payload Map<String, Object> payload) {
+        try {
+            log.info("Администратор запрашивает постраничный список гостей");
+            sendPage(payload, "/queue/admin/guests-page", guestService::getGuestsPage, Guest::getId);
+        } catch (Exception e) {
+            log.error("Ошибка при получении списка гостей", e);
+            handleError(payload, "Ошибка при получении списка гостей: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Постраничное получение комнат (параметры как у /admin/guests/page)
+     */
+    @MessageMapping("/admin/rooms/page")
+    public void getRoomsPage(@Payload Map<String, Object> payload) {
+        try {
+            log.info("Администратор запрашивает постраничный список комнат");
+            sendPage(payload, "/queue/admin/rooms-page", roomService::getRoomsPage, Room::getId);
+        } catch (Exception e) {
+            log.error("Ошибка при получении списка комнат", e);
+            handleError(payload, "Ошибка при получении списка комнат: " + e.getMessage());
+        }
     }
 
     /**
      * Получение статистики отеля
      */
     @MessageMapping("/admin/stats")
-    @SendTo("/topic/admin/stats")
-    public Map<String, Object> getHotelStats() {
+    public void getHotelStats() {
         log.info("Администратор запрашивает статистику отеля");
-        return adminService.getHotelStats();
+        broadcastCollapser.broadcast("/topic/admin/stats", adminService::getHotelStats);
+    }
+
+    /**
+     * Метрики схлопывания рассылок: запросы, вычисления и доля схлопнутых запросов по топикам
+     */
+    @MessageMapping("/admin/broadcast-metrics")
+    public void getBroadcastMetrics(@Payload Map<String, Object> payload) {
+        String requesterId = payload.getOrDefault("requesterId", "0").toString();
+        messagingTemplate.convertAndSendToUser(
+                requesterId,
+                "/queue/admin/broadcast-metrics",
+                broadcastCollapser.getMetrics()
+        );
     }
 
     /**
@@ -234,6 +401,97 @@ public class AdminWebSocketController {
         }
     }
 
+    /**
+     * Групповое заселение гостей администратором.
+     * Все гости сохраняются в одной транзакции, администраторам отправляется одно общее уведомление.
+     */
+    @MessageMapping("/admin/guests/check-in-bulk")
+    public void checkInGuests(@Payload Map<String, Object> payload) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("guests");
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            List<GuestService.CheckInRequest> requests = items == null ? List.of() : items.stream()
+                    .map(item -> new GuestService.CheckInRequest(
+                            (String) item.get("firstName"),
+                            (String) item.get("lastName"),
+                            (String) item.get("email"),
+                            (String) item.get("phone"),
+                            (String) item.get("roomNumber"),
+                            item.containsKey("checkOutDate") 
+                                    ? LocalDate.parse((String) item.get("checkOutDate")) 
+                                    : null))
+                    .toList();
+            
+            log.info("Администратор заселяет группу из {} гостей", requests.size());
+            
+            List<Guest> savedGuests = guestService.checkInGuests(requests);
+            
+            // Одно уведомление всем администраторам на всю группу
+            Map<String, Object> event = new HashMap<>();
+            event.put("bulk", true);
+            event.put("count", savedGuests.size());
+            event.put("guests", savedGuests);
+            messagingTemplate.convertAndSend("/topic/admin/guest-checked-in", event);
+            
+            // Отправка подтверждения запрашивающему администратору
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Заселено гостей: " + savedGuests.size());
+            response.put("guests", savedGuests);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/check-in-result",
+                    response
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при групповом заселении гостей", e);
+            handleError(payload, "Ошибка при групповом заселении гостей: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Групповое выселение гостей администратором
+     */
+    @MessageMapping("/admin/guests/check-out-bulk")
+    public void checkOutGuests(@Payload Map<String, Object> payload) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<Number> ids = (List<Number>) payload.get("guestIds");
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            List<Long> guestIds = ids == null ? List.of() : ids.stream().map(Number::longValue).toList();
+            
+            log.info("Администратор выселяет группу из {} гостей", guestIds.size());
+            
+            List<Map<String, Object>> checkouts = guestService.checkOutGuests(guestIds);
+            
+            // Одно уведомление всем администраторам на всю группу
+            Map<String, Object> event = new HashMap<>();
+            event.put("bulk", true);
+            event.put("count", checkouts.size());
+            event.put("checkouts", checkouts);
+            messagingTemplate.convertAndSend("/topic/admin/guest-checked-out", event);
+            
+            // Отправка подтверждения запрашивающему администратору
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Выселено гостей: " + checkouts.size());
+            response.put("checkouts", checkouts);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/check-out-result",
+                    response
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при групповом выселении гостей", e);
+            handleError(payload, "Ошибка при групповом выселении гостей: " + e.getMessage());
+        }
+    }
+
     /**
      * Обработка запросов гостей на продление проживания
      */
@@ -295,10 +553,31 @@ public class AdminWebSocketController {
      * Получение всех запросов на продление проживания
      */
     @MessageMapping("/admin/extend-stay-requests")
-    @SendTo("/topic/admin/extend-stay-requests")
-    public List<Map<String, Object>> getExtendStayRequests() {
+    public void getExtendStayRequests() {
         log.info("Администратор запрашивает список запросов на продление проживания");
-        return adminService.getExtendStayRequests();
+        broadcastCollapser.broadcast("/topic/admin/extend-stay-requests", adminService::getExtendStayRequests);
+    }
+
+    /**
+     * Отчет по заездам и выездам на ближайшие дни (для службы уборки)
+     */
+    @MessageMapping("/admin/housekeeping-report")
+    public void getHousekeepingReport(@Payload Map<String, Object> payload) {
+        try {
+            int days = ((Number) payload.getOrDefault("days", 1)).intValue();
+            String requesterId = payload.getOrDefault("requesterId", "0").toString();
+            
+            log.info("Администратор запрашивает отчет по заездам и выездам на {} дн.", days);
+            
+            messagingTemplate.convertAndSendToUser(
+                    requesterId,
+                    "/queue/admin/housekeeping-report",
+                    adminService.getHousekeepingReport(days)
+            );
+        } catch (Exception e) {
+            log.error("Ошибка при формировании отчета по заездам и выездам", e);
+            handleError(payload, "Ошибка при формировании отчета: " + e.getMessage());
+        }
     }
 
     /**
@@ -309,11 +588,12 @@ public class AdminWebSocketController {
         try {
             String searchTerm = (String) payload.get("searchTerm");
             String searchField = (String) payload.getOrDefault("searchField", "lastName");
+            int limit = ((Number) payload.getOrDefault("limit", DEFAULT_SEARCH_LIMIT)).intValue();
             String requesterId = payload.getOrDefault("requesterId", "0").toString();
             
             log.info("Администратор ищет гостей по полю {}: {}", searchField, searchTerm);
             
-            List<Guest> results = guestService.searchGuests(searchTerm, searchField);
+            List<Guest> results = guestService.searchGuests(searchTerm, searchField, limit);
             
             messagingTemplate.convertAndSendToUser(
                     requesterId,
@@ -326,6 +606,34 @@ public class AdminWebSocketController {
         }
     }
 
+    /**
+     * Отправка одной страницы запрашивающему администратору.
+     * Сообщение содержит items, nextCursor (null на последней странице) и last.
+     */
+    private <T> void sendPage(Map<String, Object> payload, String destination,
+                               BiFunction<Long, Integer, List<T>> loader, Function<T, Long> idOf) {
+        String requesterId = payload.getOrDefault("requesterId", "0").toString();
+        Object after = payload.get("after");
+        Long cursor = after == null ? null : Long.valueOf(after.toString());
+        int pageSize = ((Number) payload.getOrDefault("pageSize", DEFAULT_PAGE_SIZE)).intValue();
+        pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<T> items = loader.apply(cursor, pageSize + 1);
+        boolean last = items.size() <= pageSize;
+        if (!last) {
+            items = items.subList(0, pageSize);
+        }
+        cursor = items.isEmpty() ? cursor : idOf.apply(items.get(items.size() - 1));
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", last ? null : cursor.toString());
+        page.put("last", last);
+
+        messagingTemplate.convertAndSendToUser(requesterId, destination, page);
+    }
+
     /**
      * Общие методы обработки ошибок
      */
@@ -0,0 +1,44 @@
+package by.osinovii.hacathonback.controllers;
+
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.iot.DeviceStateIngestor;
+import by.osinovii.hacathonback.iot.proto.State;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+
+/**
+ * WebSocket контроллер для контроллеров комнат (эндпоинт /device-ws).
+ * Устройства отправляют состояние в бинарном protobuf-формате (сообщение State
+ * из controller.proto, content-type application/x-protobuf или application/octet-stream).
+ * Показания датчиков сохраняются в телеметрию, состояние устройств - в реестр,
+ * а состояние рассылается подписчикам комнаты тоже в бинарном виде (см. DeviceStateIngestor).
+ * Сессии других эндпоинтов сюда не попадают (см. DeviceEndpointInterceptor), а состояние
+ * неизвестных комнат отбрасывается.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceWebSocketController {
+
+    private final DeviceStateIngestor deviceStateIngestor;
+    private final RoomRegistry roomRegistry;
+
+    /**
+     * Состояние датчиков и исполнительных устройств комнаты
+     */
+    @MessageMapping("/device/{roomNumber}/state")
+    public void onDeviceState(@DestinationVariable String roomNumber, @Payload State state) {
+        if (roomRegistry.findByNumber(roomNumber).isEmpty()) {
+            log.warn("Состояние от устройства неизвестной комнаты {} отброшено", roomNumber);
+            return;
+        }
+        log.debug("Состояние устройства комнаты {}: температура {}, влажность {}",
+                roomNumber, state.getTemperature(), state.getHumidity());
+
+        deviceStateIngestor.ingest(roomNumber, state);
+    }
+}
@@ -16,6 +16,7 @@ import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * WebSocket контроллер для гостей отеля с ограниченным доступом.
@@ -143,13 +144,8 @@ public class GuestWebSocketController {
                 Room room = guest.getRoom();
                 
                 // Вызов сервиса для симуляции открытия двери
-                Map<String, Object> response = hotelService.simulateDoorOpen(guestId, room.getRoomNumber());
-                
-                messagingTemplate.convertAndSendToUser(
-                        requesterId,
-                        "/queue/door-status",
-                        response
-                );
+                replyWhenDone(hotelService.simulateDoorOpen(guestId, room.getRoomNumber()),
+                        requesterId, "/queue/door-status", payload, "Ошибка при открытии двери");
             } else {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
@@ -184,13 +180,8 @@ public class GuestWebSocketController {
                 Room room = guest.getRoom();
                 
                 // Вызов сервиса для симуляции закрытия двери
-                Map<String, Object> response = hotelService.simulateDoorClose(guestId, room.getRoomNumber());
-                
-                messagingTemplate.convertAndSendToUser(
-                        requesterId,
-                        "/queue/door-status",
-                        response
-                );
+                replyWhenDone(hotelService.simulateDoorClose(guestId, room.getRoomNumber()),
+                        requesterId, "/queue/door-status", payload, "Ошибка при закрытии двери");
             } else {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
@@ -269,7 +260,7 @@ public class GuestWebSocketController {
     }
     
     /**
-     * Получение статуса климатической системы в комнате (заглушка)
+     * Получение статуса климатической системы в комнате
      */
     @MessageMapping("/guest/climate")
     public void getClimateStatus(@Payload Map<String, Object> payload) {
@@ -310,7 +301,7 @@ public class GuestWebSocketController {
     }
     
     /**
-     * Установка температуры в комнате (заглушка)
+     * Установка температуры в комнате
      */
     @MessageMapping("/guest/climate/set-temperature")
     public void setTemperature(@Payload Map<String, Object> payload) {
@@ -327,13 +318,8 @@ public class GuestWebSocketController {
                 String roomNumber = guest.getRoom().getRoomNumber();
                 
                 // Установка температуры через сервис
-                Map<String, Object> response = hotelService.setTemperature(guestId, roomNumber, temperature);
-                
-                messagingTemplate.convertAndSendToUser(
-                        requesterId,
-                        "/queue/climate-update",
-                        response
-                );
+                replyWhenDone(hotelService.setTemperature(guestId, roomNumber, temperature),
+                        requesterId, "/queue/climate-update", payload, "Ошибка при установке температуры");
             } else {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
@@ -351,6 +337,22 @@ public class GuestWebSocketController {
         }
     }
     
+    /**
+     * Ответ на команду устройству отправляется, когда шлюз ее завершит:
+     * поток обработчика не ждет устройство комнаты
+     */
+    private void replyWhenDone(CompletableFuture<Map<String, Object>> future, String requesterId,
+                               String destination, Map<String, Object> payload, String errorMessage) {
+        future.whenComplete((response, error) -> {
+            if (error != null) {
+                log.error(errorMessage, error);
+                handleError(payload, errorMessage + ": " + error.getMessage());
+                return;
+            }
+            messagingTemplate.convertAndSendToUser(requesterId, destination, response);
+        });
+    }
+    
     /**
      * Общий метод обработки ошибок
      */
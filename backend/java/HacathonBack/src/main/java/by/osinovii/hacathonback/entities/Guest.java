@@ -16,7 +16,9 @@ import java.util.Objects;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Guest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Пул последовательности вместо IDENTITY: позволяет Hibernate вставлять гостей пакетами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "guests_id_seq")
+    @SequenceGenerator(name = "guests_id_seq", sequenceName = "guests_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name", nullable = false, length = 100)
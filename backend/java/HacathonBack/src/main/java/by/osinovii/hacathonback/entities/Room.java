@@ -32,6 +32,10 @@ public class Room {
     @Column(name="price_per_night", nullable = false, precision = 10, scale = 2)
     private BigDecimal pricePerNight;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name="created_at", nullable = false, updatable = false)
     private OffsetDateTime createdAt;
 
@@ -0,0 +1,48 @@
+package by.osinovii.hacathonback.entities;
+
+import by.osinovii.hacathonback.telemetry.Resolution;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Сохраненный блок агрегатов телеметрии комнаты (см. RollupBlock).
+ * Одна строка покрывает час минутных, сутки часовых или 30 дней суточных агрегатов.
+ */
+@Entity
+@Table(name = "telemetry_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"room_number", "resolution", "block_start"}))
+@Data
+public class TelemetryRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "telemetry_rollups_id_seq")
+    @SequenceGenerator(name = "telemetry_rollups_id_seq", sequenceName = "telemetry_rollups_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "room_number", nullable = false, length = 10)
+    private String roomNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Resolution resolution;
+
+    // Начало блока в миллисекундах эпохи (UTC)
+    @Column(name = "block_start", nullable = false)
+    private Long blockStart;
+
+    @Column(name = "bucket_count", nullable = false)
+    private Integer bucketCount;
+
+    @Column(nullable = false)
+    private byte[] data;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+}
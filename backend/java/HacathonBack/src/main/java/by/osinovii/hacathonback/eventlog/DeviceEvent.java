@@ -0,0 +1,11 @@
+package by.osinovii.hacathonback.eventlog;
+
+import by.osinovii.hacathonback.iot.IoTAction;
+
+/**
+ * Запись журнала устройств. sequence - порядковый номер записи в журнале,
+ * guestId и correlationId равны 0, если неизвестны.
+ */
+public record DeviceEvent(long sequence, long timeMillis, DeviceEventType type, IoTAction action,
+                          String roomNumber, long guestId, long correlationId, float value) {
+}
@@ -0,0 +1,48 @@
+package by.osinovii.hacathonback.eventlog;
+
+import by.osinovii.hacathonback.iot.IoTCommand;
+import by.osinovii.hacathonback.iot.IoTCommandListener;
+import by.osinovii.hacathonback.iot.IoTCommandSupersededException;
+import by.osinovii.hacathonback.iot.IoTResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Запись команд шлюза IoT и их результатов в журнал событий
+ */
+@Component
+@RequiredArgsConstructor
+public class DeviceEventRecorder implements IoTCommandListener {
+
+    private final EventLog eventLog;
+
+    @Override
+    public void onRequested(IoTCommand command, long guestId) {
+        eventLog.append(DeviceEventType.REQUESTED, command.action(), command.deviceId(), guestId,
+                command.correlationId(), command.value());
+    }
+
+    @Override
+    public void onSent(IoTCommand command) {
+        eventLog.append(DeviceEventType.SENT, command.action(), command.deviceId(), command.guestId(),
+                command.correlationId(), command.value());
+    }
+
+    @Override
+    public void onCompleted(IoTCommand command, IoTResponse response, Throwable error) {
+        DeviceEventType type;
+        if (error instanceof IoTCommandSupersededException) {
+            type = DeviceEventType.SUPERSEDED;
+        } else if (error instanceof TimeoutException) {
+            type = DeviceEventType.TIMED_OUT;
+        } else if (error != null || !response.success()) {
+            type = DeviceEventType.FAILED;
+        } else {
+            type = DeviceEventType.SUCCEEDED;
+        }
+        eventLog.append(type, command.action(), command.deviceId(), command.guestId(),
+                command.correlationId(), command.value());
+    }
+}
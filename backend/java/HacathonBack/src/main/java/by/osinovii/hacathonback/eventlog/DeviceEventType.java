@@ -0,0 +1,13 @@
+package by.osinovii.hacathonback.eventlog;
+
+/**
+ * Тип события журнала устройств
+ */
+public enum DeviceEventType {
+    REQUESTED,      // гость или администратор запросил действие
+    SENT,           // команда отправлена устройству
+    SUCCEEDED,      // устройство выполнило команду
+    FAILED,         // устройство отклонило команду или транспорт вернул ошибку
+    TIMED_OUT,      // устройство не ответило за таймаут шлюза
+    SUPERSEDED      // команда не отправлена: в очереди ее заменила более поздняя команда группы
+}
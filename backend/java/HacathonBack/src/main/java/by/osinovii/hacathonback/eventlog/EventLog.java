@@ -0,0 +1,343 @@
+package by.osinovii.hacathonback.eventlog;
+
+import by.osinovii.hacathonback.iot.IoTAction;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал событий устройств (открытие дверей, команды и их результаты) для аудита.
+ * Записи фиксированного размера дописываются в сегменты, отображенные в память;
+ * заполненный сегмент закрывается и начинается новый. Отображенным остается только
+ * текущий сегмент: от закрытых в памяти хранятся границы, а файл открывается на время
+ * query/replay. Хранится не больше max-segments сегментов, старейшие удаляются.
+ *
+ * Запись на диск групповая: фоновый поток раз в fsync-interval-ms сбрасывает все накопленные
+ * записи одним вызовом force, поэтому append не ждет диска. Кому нужна гарантия сохранения,
+ * ждет awaitDurable(sequence).
+ */
+@Component
+@Slf4j
+public class EventLog {
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    // Закрытые сегменты по возрастанию номеров записей
+    private final List<SealedSegment> sealed = new CopyOnWriteArrayList<>();
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Long>> durableWaiters = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-log-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Состояние записи, защищено блокировкой журнала. Смена сегмента выполняет файловый
+    // ввод-вывод под блокировкой, а монитор закрепил бы виртуальный поток за потоком-носителем
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final byte[] record = new byte[EventLogSegment.RECORD_SIZE];
+    private volatile EventLogSegment active;
+    private long lastTimeMillis;
+
+    // Записи с номерами меньше committed видны читателям, меньше durable - сброшены на диск
+    private volatile long committedSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Заполненный сегмент: номер первой записи, число записей и время первой и последней
+     */
+    private record SealedSegment(long baseSequence, int count, long firstTimeMillis, long lastTimeMillis) {
+    }
+
+    public EventLog(@Value("${hotel.events.dir:./data/events}") String directory,
+                    @Value("${hotel.events.segment-records:1048576}") int segmentRecords,
+                    @Value("${hotel.events.fsync-interval-ms:2}") long fsyncIntervalMs,
+                    @Value("${hotel.events.max-segments:20}") int maxSegments) {
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("hotel.events.max-segments должен быть положительным");
+        }
+        this.directory = Path.of(directory);
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал событий в " + directory, e);
+        }
+        flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Журнал событий устройств: {} сегментов, {} записей", sealed.size() + 1, committedSequence);
+    }
+
+    /**
+     * Добавление события. Возвращает номер записи
+     */
+    public long append(DeviceEventType type, IoTAction action, String roomNumber, long guestId,
+                       long correlationId, double value) {
+        byte[] room = roomNumber == null ? new byte[0] : roomNumber.getBytes(StandardCharsets.UTF_8);
+        // Номер комнаты хранится не длиннее 12 байт
+        int roomLength = Math.min(room.length, EventLogSegment.ROOM_BYTES);
+
+        appendLock.lock();
+        try {
+            if (active.isFull()) {
+                roll();
+            }
+            // Время в журнале не убывает, даже если системные часы сдвинулись назад
+            long now = Math.max(System.currentTimeMillis(), lastTimeMillis);
+            lastTimeMillis = now;
+            EventLogSegment.encode(record, crc, now, type, action, room, roomLength, guestId, correlationId,
+                    (float) value);
+            active.append(record);
+            long sequence = committedSequence;
+            committedSequence = sequence + 1;
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Завершается, когда запись с номером sequence сброшена на диск
+     */
+    public CompletableFuture<Long> awaitDurable(long sequence) {
+        if (sequence < durableSequence) {
+            return CompletableFuture.completedFuture(sequence);
+        }
+        CompletableFuture<Long> waiter = durableWaiters.computeIfAbsent(sequence, s -> new CompletableFuture<>());
+        // Сброс мог произойти между проверкой и регистрацией
+        if (sequence < durableSequence) {
+            durableWaiters.remove(sequence, waiter);
+            waiter.complete(sequence);
+        }
+        return waiter;
+    }
+
+    /**
+     * События комнаты за период [from, to] в порядке записи, не больше limit.
+     * Сегменты вне периода пропускаются, начало периода в сегменте ищется бинарным поиском
+     */
+    public List<DeviceEvent> query(String roomNumber, long fromMillis, long toMillis, int limit) {
+        byte[] room = roomNumber.getBytes(StandardCharsets.UTF_8);
+        int roomLength = Math.min(room.length, EventLogSegment.ROOM_BYTES);
+        long end = committedSequence;
+        EventLogSegment current = active;
+
+        List<DeviceEvent> events = new ArrayList<>();
+        for (SealedSegment info : sealed) {
+            // Сегмент, закрытый после чтения active, читается как текущий
+            if (info.baseSequence() >= current.baseSequence() || info.firstTimeMillis() > toMillis) {
+                return events;
+            }
+            if (info.lastTimeMillis() < fromMillis) {
+                continue;
+            }
+            try (EventLogSegment segment = openSealed(info)) {
+                if (segment != null
+                        && collect(segment, info.count(), room, roomLength, fromMillis, toMillis, limit, events)) {
+                    return events;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка чтения сегмента журнала событий", e);
+            }
+        }
+        int count = visibleCount(current, end);
+        if (count > 0) {
+            collect(current, count, room, roomLength, fromMillis, toMillis, limit, events);
+        }
+        return events;
+    }
+
+    /**
+     * Последовательное чтение всех событий начиная с номера fromSequence
+     */
+    public void replay(long fromSequence, Consumer<DeviceEvent> consumer) {
+        long end = committedSequence;
+        EventLogSegment current = active;
+        for (SealedSegment info : sealed) {
+            if (info.baseSequence() >= current.baseSequence()) {
+                break;
+            }
+            if (info.baseSequence() + info.count() <= fromSequence) {
+                continue;
+            }
+            try (EventLogSegment segment = openSealed(info)) {
+                if (segment != null) {
+                    replay(segment, info.count(), fromSequence, consumer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка чтения сегмента журнала событий", e);
+            }
+        }
+        replay(current, visibleCount(current, end), fromSequence, consumer);
+    }
+
+    public long size() {
+        return committedSequence;
+    }
+
+    /**
+     * Групповой сброс на диск всех записей, добавленных с прошлого сброса
+     */
+    void flush() {
+        long target = committedSequence;
+        long from = durableSequence;
+        if (target == from) {
+            return;
+        }
+        // Сегмент читается после target: записи до target в предыдущих сегментах
+        // уже сброшены при их закрытии (roll)
+        EventLogSegment current = active;
+        try {
+            current.force((int) Math.max(from - current.baseSequence(), 0), visibleCount(current, target));
+            durableSequence = target;
+        } catch (Exception e) {
+            log.error("Ошибка при сбросе журнала событий на диск", e);
+            return;
+        }
+        var completed = durableWaiters.headMap(target);
+        completed.forEach((sequence, waiter) -> waiter.complete(sequence));
+        completed.clear();
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdownNow();
+        appendLock.lock();
+        try {
+            flush();
+            active.force(0, active.count());
+            active.close();
+        } catch (IOException e) {
+            log.warn("Ошибка при закрытии сегмента журнала событий", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static int visibleCount(EventLogSegment segment, long end) {
+        return (int) Math.min(segment.count(), Math.max(end - segment.baseSequence(), 0));
+    }
+
+    /**
+     * События комнаты из первых count записей сегмента. Возвращает true, если дальше искать не нужно
+     * (набран limit или пройден конец периода)
+     */
+    private static boolean collect(EventLogSegment segment, int count, byte[] room, int roomLength,
+                                   long fromMillis, long toMillis, int limit, List<DeviceEvent> events) {
+        if (segment.timeAt(count - 1) < fromMillis) {
+            return false;
+        }
+        for (int i = segment.lowerBound(fromMillis, count); i < count; i++) {
+            if (segment.timeAt(i) > toMillis) {
+                return true;
+            }
+            if (segment.roomEquals(i, room, roomLength)) {
+                events.add(segment.read(i));
+                if (events.size() >= limit) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void replay(EventLogSegment segment, int count, long fromSequence, Consumer<DeviceEvent> consumer) {
+        if (segment.baseSequence() + count <= fromSequence) {
+            return;
+        }
+        for (int i = (int) Math.max(fromSequence - segment.baseSequence(), 0); i < count; i++) {
+            consumer.accept(segment.read(i));
+        }
+    }
+
+    /**
+     * Открытие закрытого сегмента на время чтения; null, если его уже удалило ограничение числа сегментов
+     */
+    private EventLogSegment openSealed(SealedSegment info) throws IOException {
+        try {
+            return EventLogSegment.openReadOnly(directory, info.baseSequence(), info.count());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void seal(EventLogSegment segment) throws IOException {
+        if (segment.count() > 0) {
+            sealed.add(new SealedSegment(segment.baseSequence(), segment.count(),
+                    segment.timeAt(0), segment.timeAt(segment.count() - 1)));
+        }
+        segment.close();
+    }
+
+    /**
+     * Удаление старейших сегментов сверх max-segments (вместе с текущим)
+     */
+    private void enforceRetention() throws IOException {
+        while (sealed.size() > maxSegments - 1) {
+            SealedSegment oldest = sealed.remove(0);
+            Files.deleteIfExists(EventLogSegment.fileName(directory, oldest.baseSequence()));
+            log.info("Журнал событий: удален сегмент с записи {} ({} записей)", oldest.baseSequence(), oldest.count());
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("events-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring("events-".length(), name.length() - ".log".length())))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < bases.size() - 1; i++) {
+            seal(EventLogSegment.open(directory, bases.get(i), segmentRecords));
+        }
+        active = EventLogSegment.open(directory, bases.isEmpty() ? 0 : bases.get(bases.size() - 1), segmentRecords);
+        enforceRetention();
+        committedSequence = active.baseSequence() + active.count();
+        durableSequence = committedSequence;
+        if (active.count() > 0) {
+            lastTimeMillis = active.timeAt(active.count() - 1);
+        } else if (!sealed.isEmpty()) {
+            lastTimeMillis = sealed.get(sealed.size() - 1).lastTimeMillis();
+        }
+    }
+
+    private void roll() {
+        try {
+            EventLogSegment previous = active;
+            previous.force(0, previous.count());
+            active = EventLogSegment.open(directory, previous.baseSequence() + previous.count(), segmentRecords);
+            // Читатели, успевшие взять previous как текущий, дочитают его: отображение
+            // освобождается только когда на сегмент не остается ссылок
+            seal(previous);
+            enforceRetention();
+            log.info("Журнал событий: новый сегмент с записи {}", active.baseSequence());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала событий", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package by.osinovii.hacathonback.eventlog;
+
+import by.osinovii.hacathonback.iot.IoTAction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Сегмент журнала: файл фиксированного размера из записей по 48 байт, отображенный в память.
+ * Отображение освобождается сборщиком мусора, когда на сегмент не остается ссылок.
+ * <pre>
+ *  0  long  время (мс эпохи)      24 float значение
+ *  8  long  correlationId         28 byte  тип, 29 byte действие, 30 byte длина номера комнаты
+ * 16  long  guestId               32 byte[12] номер комнаты (UTF-8), 44 int CRC32 байтов 0..43
+ * </pre>
+ * Запись с неверной контрольной суммой (в том числе нулевая) означает конец данных.
+ */
+class EventLogSegment implements AutoCloseable {
+
+    static final int RECORD_SIZE = 48;
+    static final int ROOM_BYTES = 12;
+
+    private static final int CRC_OFFSET = 44;
+    private static final DeviceEventType[] TYPES = DeviceEventType.values();
+    private static final IoTAction[] ACTIONS = IoTAction.values();
+
+    private final long baseSequence;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int count;
+
+    private EventLogSegment(long baseSequence, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+        this.baseSequence = baseSequence;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Path fileName(Path directory, long baseSequence) {
+        return directory.resolve(String.format("events-%020d.log", baseSequence));
+    }
+
+    /**
+     * Открытие или создание сегмента. Если сегмент не заполнен до конца,
+     * число записей определяется сканированием до первой некорректной записи
+     */
+    static EventLogSegment open(Path directory, long baseSequence, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(fileName(directory, baseSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        EventLogSegment segment = new EventLogSegment(baseSequence, capacity, channel, buffer);
+
+        CRC32 crc = new CRC32();
+        byte[] record = new byte[RECORD_SIZE];
+        if (segment.isValid(capacity - 1, crc, record)) {
+            segment.count = capacity;
+        } else {
+            while (segment.count < capacity && segment.isValid(segment.count, crc, record)) {
+                segment.count++;
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Открытие заполненного сегмента только для чтения: число записей известно,
+     * отображается только занятая часть файла
+     */
+    static EventLogSegment openReadOnly(Path directory, long baseSequence, int count) throws IOException {
+        FileChannel channel = FileChannel.open(fileName(directory, baseSequence), StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) count * RECORD_SIZE);
+            EventLogSegment segment = new EventLogSegment(baseSequence, count, channel, buffer);
+            segment.count = count;
+            return segment;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long baseSequence() {
+        return baseSequence;
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    /**
+     * Добавление подготовленной записи (вызывается под блокировкой журнала)
+     */
+    void append(byte[] record) {
+        buffer.put(count * RECORD_SIZE, record);
+        count++;
+    }
+
+    long timeAt(int index) {
+        return buffer.getLong(index * RECORD_SIZE);
+    }
+
+    boolean roomEquals(int index, byte[] room, int roomLength) {
+        int offset = index * RECORD_SIZE;
+        if (buffer.get(offset + 30) != roomLength) {
+            return false;
+        }
+        for (int i = 0; i < roomLength; i++) {
+            if (buffer.get(offset + 32 + i) != room[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    DeviceEvent read(int index) {
+        int offset = index * RECORD_SIZE;
+        byte[] room = new byte[buffer.get(offset + 30)];
+        buffer.get(offset + 32, room);
+        return new DeviceEvent(baseSequence + index,
+                buffer.getLong(offset),
+                TYPES[buffer.get(offset + 28)],
+                ACTIONS[buffer.get(offset + 29)],
+                new String(room, StandardCharsets.UTF_8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 8),
+                buffer.getFloat(offset + 24));
+    }
+
+    /**
+     * Первая запись среди первых limit со временем не раньше timeMillis (время в журнале не убывает)
+     */
+    int lowerBound(long timeMillis, int limit) {
+        int low = 0;
+        int high = limit;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < timeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Сброс на диск записей [from, to)
+     */
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from * RECORD_SIZE, (to - from) * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Закрытие файла; несброшенные записи нужно сбросить до этого (force)
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Заполнение записи в буфере record
+     */
+    static void encode(byte[] record, CRC32 crc, long timeMillis, DeviceEventType type, IoTAction action,
+                       byte[] room, int roomLength, long guestId, long correlationId, float value) {
+        ByteBuffer out = ByteBuffer.wrap(record);
+        out.putLong(0, timeMillis);
+        out.putLong(8, correlationId);
+        out.putLong(16, guestId);
+        out.putFloat(24, value);
+        out.put(28, (byte) type.ordinal());
+        out.put(29, (byte) action.ordinal());
+        out.put(30, (byte) roomLength);
+        out.put(31, (byte) 0);
+        for (int i = 0; i < ROOM_BYTES; i++) {
+            out.put(32 + i, i < roomLength ? room[i] : 0);
+        }
+        crc.reset();
+        crc.update(record, 0, CRC_OFFSET);
+        out.putInt(CRC_OFFSET, (int) crc.getValue());
+    }
+
+    private boolean isValid(int index, CRC32 crc, byte[] record) {
+        buffer.get(index * RECORD_SIZE, record);
+        crc.reset();
+        crc.update(record, 0, CRC_OFFSET);
+        return ByteBuffer.wrap(record).getInt(CRC_OFFSET) == (int) crc.getValue()
+                && record[28] >= 0 && record[28] < TYPES.length
+                && record[29] >= 0 && record[29] < ACTIONS.length
+                && record[30] >= 0 && record[30] <= ROOM_BYTES;
+    }
+}
@@ -0,0 +1,260 @@
+package by.osinovii.hacathonback.index;
+
+import by.osinovii.hacathonback.entities.Guest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Триграммный индекс для поиска гостей по подстроке.
+ * Для каждого поля хранит отображение "триграмма -> ID гостей"; кандидаты находятся
+ * пересечением списков триграмм запроса и затем проверяются по нормализованному значению.
+ * Запросы короче трех символов проверяются прямым перебором нормализованных значений в памяти.
+ */
+@Component
+@Slf4j
+public class GuestSearchIndex {
+
+    /**
+     * Поля поиска и их вес при ранжировании
+     */
+    public enum Field {
+        LAST_NAME("lastName", 5, true),
+        FIRST_NAME("firstName", 4, true),
+        EMAIL("email", 3, true),
+        PHONE("phone", 2, false),
+        ROOM_NUMBER("roomNumber", 1, false);
+
+        private final String searchField;
+        private final int weight;
+        private final boolean caseInsensitive;
+
+        Field(String searchField, int weight, boolean caseInsensitive) {
+            this.searchField = searchField;
+            this.weight = weight;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        String normalize(String value) {
+            if (value == null) {
+                return null;
+            }
+            return caseInsensitive ? value.toLowerCase(Locale.ROOT) : value;
+        }
+    }
+
+    // Поля, по которым ищет режим по умолчанию (как и раньше, без номера комнаты)
+    private static final Field[] DEFAULT_FIELDS = {Field.LAST_NAME, Field.FIRST_NAME, Field.EMAIL, Field.PHONE};
+
+    private static final int EXACT_MATCH = 3;
+    private static final int PREFIX_MATCH = 2;
+    private static final int SUBSTRING_MATCH = 1;
+
+    private final Map<Long, String[]> docs = new ConcurrentHashMap<>();
+    private final Map<Field, Map<Long, Set<Long>>> postings = new EnumMap<>(Field.class);
+
+    private volatile boolean loaded;
+
+    private record Hit(long guestId, int score) {
+    }
+
+    public GuestSearchIndex() {
+        for (Field field : Field.values()) {
+            postings.put(field, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Полная перестройка индекса
+     */
+    public synchronized void rebuild(Collection<Guest> guests) {
+        docs.clear();
+        postings.values().forEach(Map::clear);
+        guests.forEach(this::index);
+        loaded = true;
+        log.info("Поисковый индекс гостей перестроен: {} гостей", guests.size());
+    }
+
+    /**
+     * Добавление или обновление гостя после сохранения
+     */
+    public synchronized void put(Guest guest) {
+        if (guest == null || guest.getId() == null) {
+            return;
+        }
+        unindex(guest.getId());
+        index(guest);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Поиск гостей. searchField - одно из полей ("lastName", "firstName", "email",
+     * "phone", "roomNumber"), любое другое значение означает поиск по ФИО, email и телефону.
+     * Возвращает ID гостей, отсортированные по убыванию релевантности, не более limit штук.
+     */
+    public List<Long> search(String searchTerm, String searchField, int limit) {
+        if (searchTerm == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Field[] fields = resolveFields(searchField);
+
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Field field : fields) {
+            String query = field.normalize(searchTerm);
+            for (Long guestId : candidates(field, query)) {
+                String[] doc = docs.get(guestId);
+                if (doc == null) {
+                    continue;
+                }
+                int match = match(doc[field.ordinal()], query);
+                if (match > 0) {
+                    scores.merge(guestId, match * 10 + field.weight, Math::max);
+                }
+            }
+        }
+        return topK(scores, limit);
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    private static Field[] resolveFields(String searchField) {
+        for (Field field : Field.values()) {
+            if (field.searchField.equals(searchField)) {
+                return new Field[]{field};
+            }
+        }
+        return DEFAULT_FIELDS;
+    }
+
+    private Collection<Long> candidates(Field field, String query) {
+        if (query.length() < 3) {
+            return docs.keySet();
+        }
+        Map<Long, Set<Long>> fieldPostings = postings.get(field);
+        List<Set<Long>> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Set<Long> ids = fieldPostings.get(trigram(query, i));
+            if (ids == null || ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> smallest = lists.get(0);
+        List<Long> result = new ArrayList<>();
+        for (Long guestId : smallest) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(guestId);
+            }
+            if (inAll) {
+                result.add(guestId);
+            }
+        }
+        return result;
+    }
+
+    private static int match(String value, String query) {
+        if (value == null) {
+            return 0;
+        }
+        if (value.equals(query)) {
+            return EXACT_MATCH;
+        }
+        if (value.startsWith(query)) {
+            return PREFIX_MATCH;
+        }
+        return value.contains(query) ? SUBSTRING_MATCH : 0;
+    }
+
+    private static List<Long> topK(Map<Long, Integer> scores, int limit) {
+        // Лучший результат - больший балл, при равенстве меньший ID
+        Comparator<Hit> ranking = Comparator.comparingInt(Hit::score).reversed()
+                .thenComparingLong(Hit::guestId);
+        PriorityQueue<Hit> heap = new PriorityQueue<>(Math.min(limit, Math.max(scores.size(), 1)) + 1,
+                ranking.reversed());
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            heap.add(new Hit(entry.getKey(), entry.getValue()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(ranking);
+        List<Long> result = new ArrayList<>(hits.size());
+        hits.forEach(hit -> result.add(hit.guestId()));
+        return result;
+    }
+
+    private void index(Guest guest) {
+        long guestId = guest.getId();
+        String[] doc = new String[Field.values().length];
+        doc[Field.LAST_NAME.ordinal()] = Field.LAST_NAME.normalize(guest.getLastName());
+        doc[Field.FIRST_NAME.ordinal()] = Field.FIRST_NAME.normalize(guest.getFirstName());
+        doc[Field.EMAIL.ordinal()] = Field.EMAIL.normalize(guest.getEmail());
+        doc[Field.PHONE.ordinal()] = Field.PHONE.normalize(guest.getPhone());
+        doc[Field.ROOM_NUMBER.ordinal()] = guest.getRoom() == null
+                ? null
+                : Field.ROOM_NUMBER.normalize(guest.getRoom().getRoomNumber());
+
+        for (Field field : Field.values()) {
+            String value = doc[field.ordinal()];
+            if (value == null) {
+                continue;
+            }
+            Map<Long, Set<Long>> fieldPostings = postings.get(field);
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                fieldPostings.computeIfAbsent(trigram(value, i), t -> ConcurrentHashMap.newKeySet()).add(guestId);
+            }
+        }
+        docs.put(guestId, doc);
+    }
+
+    private void unindex(Long guestId) {
+        String[] doc = docs.remove(guestId);
+        if (doc == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            String value = doc[field.ordinal()];
+            if (value == null) {
+                continue;
+            }
+            Map<Long, Set<Long>> fieldPostings = postings.get(field);
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                long key = trigram(value, i);
+                Set<Long> ids = fieldPostings.get(key);
+                if (ids != null) {
+                    ids.remove(guestId);
+                    if (ids.isEmpty()) {
+                        fieldPostings.remove(key, ids);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long trigram(String value, int offset) {
+        return ((long) value.charAt(offset) << 32)
+                | ((long) value.charAt(offset + 1) << 16)
+                | value.charAt(offset + 2);
+    }
+}
@@ -0,0 +1,115 @@
+package by.osinovii.hacathonback.index;
+
+import by.osinovii.hacathonback.entities.Guest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Индекс заездов и выездов гостей по дням (ключ - LocalDate.toEpochDay()).
+ * Отвечает на вопросы "кто заезжает/выезжает в день D" и "в диапазоне дней"
+ * без перебора всех гостей.
+ */
+@Component
+@Slf4j
+public class GuestStayIndex {
+
+    private final NavigableMap<Long, Set<Long>> arrivals = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Long, Set<Long>> departures = new ConcurrentSkipListMap<>();
+    private final Map<Long, Stay> stays = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    private record Stay(long checkInDay, long checkOutDay) {
+    }
+
+    /**
+     * Полная перестройка индекса
+     */
+    public synchronized void rebuild(Collection<Guest> guests) {
+        arrivals.clear();
+        departures.clear();
+        stays.clear();
+        guests.forEach(this::index);
+        loaded = true;
+        log.info("Индекс заездов и выездов перестроен: {} гостей", guests.size());
+    }
+
+    /**
+     * Добавление или обновление гостя после сохранения
+     */
+    public synchronized void put(Guest guest) {
+        if (guest == null || guest.getId() == null) {
+            return;
+        }
+        unindex(guest.getId());
+        index(guest);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * ID гостей, заезжающих в диапазоне дат включительно
+     */
+    public List<Long> arrivalsBetween(LocalDate from, LocalDate to) {
+        return collect(arrivals, from, to);
+    }
+
+    /**
+     * ID гостей, выезжающих в диапазоне дат включительно
+     */
+    public List<Long> departuresBetween(LocalDate from, LocalDate to) {
+        return collect(departures, from, to);
+    }
+
+    private static List<Long> collect(NavigableMap<Long, Set<Long>> buckets, LocalDate from, LocalDate to) {
+        List<Long> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        buckets.subMap(from.toEpochDay(), true, to.toEpochDay(), true)
+                .values()
+                .forEach(result::addAll);
+        return result;
+    }
+
+    private void index(Guest guest) {
+        if (guest.getCheckInDate() == null || guest.getCheckOutDate() == null) {
+            return;
+        }
+        Stay stay = new Stay(guest.getCheckInDate().toEpochDay(), guest.getCheckOutDate().toEpochDay());
+        stays.put(guest.getId(), stay);
+        arrivals.computeIfAbsent(stay.checkInDay(), d -> ConcurrentHashMap.newKeySet()).add(guest.getId());
+        departures.computeIfAbsent(stay.checkOutDay(), d -> ConcurrentHashMap.newKeySet()).add(guest.getId());
+    }
+
+    private void unindex(Long guestId) {
+        Stay stay = stays.remove(guestId);
+        if (stay == null) {
+            return;
+        }
+        removeFrom(arrivals, stay.checkInDay(), guestId);
+        removeFrom(departures, stay.checkOutDay(), guestId);
+    }
+
+    private static void removeFrom(NavigableMap<Long, Set<Long>> buckets, long day, Long guestId) {
+        Set<Long> ids = buckets.get(day);
+        if (ids != null) {
+            ids.remove(guestId);
+            if (ids.isEmpty()) {
+                buckets.remove(day, ids);
+            }
+        }
+    }
+}
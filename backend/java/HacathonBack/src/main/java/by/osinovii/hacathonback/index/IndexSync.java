@@ -0,0 +1,31 @@
+package by.osinovii.hacathonback.index;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Синхронизация индексов в памяти с транзакциями БД.
+ * Внутри транзакции изменение индекса откладывается до ее фиксации,
+ * чтобы откат не оставлял в индексах несуществующих данных.
+ */
+public final class IndexSync {
+
+    private IndexSync() {
+    }
+
+    /**
+     * Выполнить действие после фиксации текущей транзакции (или сразу, если транзакции нет)
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
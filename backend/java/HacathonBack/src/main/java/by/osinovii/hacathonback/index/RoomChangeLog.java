@@ -0,0 +1,94 @@
+package by.osinovii.hacathonback.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Журнал изменений комнат для дельта-синхронизации клиентов.
+ * Каждое изменение комнаты получает следующий номер глобальной версии.
+ * Для каждой комнаты хранится только последняя версия, поэтому ответ на
+ * "изменения после версии V" содержит каждую измененную комнату один раз.
+ * Журнал ограничен по размеру; клиент, отставший дальше хранимого окна,
+ * должен получить полный снимок.
+ */
+@Component
+public class RoomChangeLog {
+
+    private final int maxRetained;
+
+    private final NavigableMap<Long, Long> roomIdByVersion = new TreeMap<>();
+    private final Map<Long, Long> versionByRoom = new HashMap<>();
+
+    // Версия начинается с текущего времени в мс, чтобы после перезапуска сервера
+    // версии не повторялись и клиенты со старой версией получали полный снимок
+    private long version = System.currentTimeMillis();
+    // Изменения с версией не выше этой уже не хранятся
+    private long floorVersion = version;
+
+    /**
+     * Результат запроса изменений: текущая версия и ID измененных комнат
+     */
+    public record Delta(long version, List<Long> roomIds) {
+    }
+
+    public RoomChangeLog(@Value("${hotel.rooms.change-log-size:10000}") int maxRetained) {
+        this.maxRetained = maxRetained;
+    }
+
+    /**
+     * Зарегистрировать изменение комнаты, возвращает новую версию
+     */
+    public synchronized long record(Long roomId) {
+        long next = ++version;
+        Long previous = versionByRoom.put(roomId, next);
+        if (previous != null) {
+            roomIdByVersion.remove(previous);
+        }
+        roomIdByVersion.put(next, roomId);
+
+        while (roomIdByVersion.size() > maxRetained) {
+            Map.Entry<Long, Long> oldest = roomIdByVersion.pollFirstEntry();
+            versionByRoom.remove(oldest.getValue(), oldest.getKey());
+            floorVersion = oldest.getKey();
+        }
+        return next;
+    }
+
+    /**
+     * Сброс журнала (например, после перестройки реестра из БД):
+     * все клиенты с более старой версией получат полный снимок
+     */
+    public synchronized void reset() {
+        roomIdByVersion.clear();
+        versionByRoom.clear();
+        floorVersion = version;
+    }
+
+    public synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * Комнаты, измененные после sinceVersion.
+     * Пустой результат означает, что изменения уже не хранятся и нужен полный снимок.
+     */
+    public synchronized Optional<Delta> changesSince(long sinceVersion) {
+        if (sinceVersion < floorVersion || sinceVersion > version) {
+            return Optional.empty();
+        }
+        return Optional.of(new Delta(version,
+                new ArrayList<>(roomIdByVersion.tailMap(sinceVersion, false).values())));
+    }
+
+    public synchronized int size() {
+        return roomIdByVersion.size();
+    }
+}
@@ -0,0 +1,143 @@
+package by.osinovii.hacathonback.index;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Отсортированный индекс цен комнат. Цена хранится в копейках (long) в паре
+ * параллельных массивов, отсортированных по цене, поэтому поиск диапазона
+ * выполняется двоичным поиском за O(log n + k) без создания BigDecimal на строку.
+ * Читатели работают с неизменяемым снимком, запись заменяет снимок целиком.
+ */
+public class RoomPriceIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private volatile Snapshot snapshot = new Snapshot(EMPTY, EMPTY);
+
+    private record Snapshot(long[] cents, long[] roomIds) {
+    }
+
+    /**
+     * Перевод цены в копейки. Для нижней границы диапазона округляем вверх,
+     * для верхней - вниз, чтобы не захватить лишние комнаты.
+     */
+    public static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.setScale(2, roundingMode).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Полная перестройка индекса
+     */
+    public synchronized void rebuild(long[] roomIds, long[] cents) {
+        int n = roomIds.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> cents[a] != cents[b]
+                ? Long.compare(cents[a], cents[b])
+                : Long.compare(roomIds[a], roomIds[b]));
+        long[] sortedCents = new long[n];
+        long[] sortedIds = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedCents[i] = cents[order[i]];
+            sortedIds[i] = roomIds[order[i]];
+        }
+        snapshot = new Snapshot(sortedCents, sortedIds);
+    }
+
+    /**
+     * Установка цены комнаты. Если цена не изменилась, снимок не пересоздается.
+     */
+    public synchronized void put(long roomId, long priceCents) {
+        Snapshot current = snapshot;
+        int pos = positionOf(current, roomId);
+        if (pos >= 0 && current.cents()[pos] == priceCents) {
+            return;
+        }
+        Snapshot withoutRoom = pos >= 0 ? removeAt(current, pos) : current;
+        snapshot = insert(withoutRoom, roomId, priceCents);
+    }
+
+    public synchronized void remove(long roomId) {
+        Snapshot current = snapshot;
+        int pos = positionOf(current, roomId);
+        if (pos >= 0) {
+            snapshot = removeAt(current, pos);
+        }
+    }
+
+    /**
+     * ID комнат с ценой в диапазоне [minCents, maxCents], по возрастанию цены
+     */
+    public long[] range(long minCents, long maxCents) {
+        Snapshot current = snapshot;
+        if (minCents > maxCents) {
+            return EMPTY;
+        }
+        int from = lowerBound(current.cents(), minCents);
+        int to = maxCents == Long.MAX_VALUE
+                ? current.cents().length
+                : lowerBound(current.cents(), maxCents + 1);
+        return from >= to ? EMPTY : Arrays.copyOfRange(current.roomIds(), from, to);
+    }
+
+    public int size() {
+        return snapshot.roomIds().length;
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int positionOf(Snapshot snapshot, long roomId) {
+        long[] ids = snapshot.roomIds();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == roomId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Snapshot removeAt(Snapshot snapshot, int pos) {
+        int n = snapshot.roomIds().length;
+        long[] cents = new long[n - 1];
+        long[] ids = new long[n - 1];
+        System.arraycopy(snapshot.cents(), 0, cents, 0, pos);
+        System.arraycopy(snapshot.roomIds(), 0, ids, 0, pos);
+        System.arraycopy(snapshot.cents(), pos + 1, cents, pos, n - pos - 1);
+        System.arraycopy(snapshot.roomIds(), pos + 1, ids, pos, n - pos - 1);
+        return new Snapshot(cents, ids);
+    }
+
+    private static Snapshot insert(Snapshot snapshot, long roomId, long priceCents) {
+        int n = snapshot.roomIds().length;
+        int pos = lowerBound(snapshot.cents(), priceCents);
+        // При равной цене сохраняем порядок по ID
+        while (pos < n && snapshot.cents()[pos] == priceCents && snapshot.roomIds()[pos] < roomId) {
+            pos++;
+        }
+        long[] cents = new long[n + 1];
+        long[] ids = new long[n + 1];
+        System.arraycopy(snapshot.cents(), 0, cents, 0, pos);
+        System.arraycopy(snapshot.roomIds(), 0, ids, 0, pos);
+        cents[pos] = priceCents;
+        ids[pos] = roomId;
+        System.arraycopy(snapshot.cents(), pos, cents, pos + 1, n - pos);
+        System.arraycopy(snapshot.roomIds(), pos, ids, pos + 1, n - pos);
+        return new Snapshot(cents, ids);
+    }
+}
@@ -0,0 +1,251 @@
+package by.osinovii.hacathonback.index;
+
+import by.osinovii.hacathonback.entities.Room;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр комнат в памяти с хеш-индексами по ID, номеру, статусу и типу
+ * и отсортированным индексом цен.
+ * Заполняется целиком при старте и обновляется сквозной записью из RoomService,
+ * поэтому точечные запросы не обращаются к базе данных.
+ *
+ * Реестр хранит собственные копии комнат, а возвращаемые объекты общие для всех читателей
+ * и не должны изменяться: изменения вносятся в копию (copyOf), которая попадает в реестр
+ * только после фиксации транзакции.
+ */
+@Component
+@Slf4j
+public class RoomRegistry {
+
+    private final Map<Long, Room> byId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idByNumber = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> idsByStatus = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> idsByType = new ConcurrentHashMap<>();
+    private final RoomPriceIndex priceIndex = new RoomPriceIndex();
+
+    // Ключи, под которыми комната сейчас лежит в индексах
+    private final Map<Long, IndexedKeys> keysById = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    private record IndexedKeys(String roomNumber, String status, String roomType, long priceCents) {
+    }
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    /**
+     * Полная перестройка реестра по списку комнат из БД
+     */
+    public synchronized void rebuild(Collection<Room> rooms) {
+        byId.clear();
+        idByNumber.clear();
+        idsByStatus.clear();
+        idsByType.clear();
+        keysById.clear();
+        rooms.forEach(this::index);
+
+        long[] ids = new long[keysById.size()];
+        long[] cents = new long[keysById.size()];
+        int n = 0;
+        for (Map.Entry<Long, IndexedKeys> entry : keysById.entrySet()) {
+            if (entry.getValue().priceCents() != NO_PRICE) {
+                ids[n] = entry.getKey();
+                cents[n] = entry.getValue().priceCents();
+                n++;
+            }
+        }
+        priceIndex.rebuild(Arrays.copyOf(ids, n), Arrays.copyOf(cents, n));
+        loaded = true;
+        log.info("Реестр комнат перестроен: {} комнат", rooms.size());
+    }
+
+    /**
+     * Добавление или обновление комнаты после сохранения в БД
+     */
+    public synchronized void put(Room room) {
+        if (room == null || room.getId() == null) {
+            return;
+        }
+        IndexedKeys previous = unindex(room.getId());
+        IndexedKeys current = index(room);
+        if (previous == null || previous.priceCents() != current.priceCents()) {
+            if (current.priceCents() == NO_PRICE) {
+                priceIndex.remove(room.getId());
+            } else {
+                priceIndex.put(room.getId(), current.priceCents());
+            }
+        }
+    }
+
+    /**
+     * Удаление комнаты из реестра (например, после конфликта версий)
+     */
+    public synchronized void evict(Long roomId) {
+        if (unindex(roomId) != null) {
+            priceIndex.remove(roomId);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Optional<Room> findById(Long roomId) {
+        return roomId == null ? Optional.empty() : Optional.ofNullable(byId.get(roomId));
+    }
+
+    public Optional<Room> findByNumber(String roomNumber) {
+        if (roomNumber == null) {
+            return Optional.empty();
+        }
+        Long id = idByNumber.get(roomNumber);
+        return id == null ? Optional.empty() : Optional.ofNullable(byId.get(id));
+    }
+
+    public List<Room> findByStatus(String status) {
+        return resolve(idsByStatus.get(status));
+    }
+
+    public List<Room> findByType(String roomType) {
+        return resolve(idsByType.get(roomType));
+    }
+
+    /**
+     * Статус, под которым комната проиндексирована (последнее сохраненное значение)
+     */
+    public Optional<String> statusOf(Long roomId) {
+        IndexedKeys keys = roomId == null ? null : keysById.get(roomId);
+        return keys == null ? Optional.empty() : Optional.of(keys.status());
+    }
+
+    /**
+     * Цена в копейках, под которой комната проиндексирована
+     */
+    public OptionalLong priceCentsOf(Long roomId) {
+        IndexedKeys keys = roomId == null ? null : keysById.get(roomId);
+        return keys == null || keys.priceCents() == NO_PRICE
+                ? OptionalLong.empty()
+                : OptionalLong.of(keys.priceCents());
+    }
+
+    /**
+     * Комнаты с ценой в диапазоне [minPrice, maxPrice] по возрастанию цены.
+     * Тип и статус необязательны (null - без фильтра).
+     */
+    public List<Room> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, String roomType, String status) {
+        long minCents = minPrice == null ? Long.MIN_VALUE : RoomPriceIndex.toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : RoomPriceIndex.toCents(maxPrice, RoundingMode.FLOOR);
+        long[] ids = priceIndex.range(minCents, maxCents);
+
+        List<Room> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            IndexedKeys keys = keysById.get(id);
+            if (keys == null
+                    || (roomType != null && !roomType.equals(keys.roomType()))
+                    || (status != null && !status.equals(keys.status()))) {
+                continue;
+            }
+            Room room = byId.get(id);
+            if (room != null) {
+                result.add(room);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Отдельная копия комнаты для изменения и сохранения
+     */
+    public static Room copyOf(Room room) {
+        Room copy = new Room();
+        copy.setId(room.getId());
+        copy.setRoomNumber(room.getRoomNumber());
+        copy.setRoomType(room.getRoomType());
+        copy.setStatus(room.getStatus());
+        copy.setPricePerNight(room.getPricePerNight());
+        copy.setVersion(room.getVersion());
+        copy.setCreatedAt(room.getCreatedAt());
+        copy.setUpdatedAt(room.getUpdatedAt());
+        return copy;
+    }
+
+    private IndexedKeys index(Room source) {
+        // Вызывающий код может и дальше изменять переданный объект
+        Room room = copyOf(source);
+        Long id = room.getId();
+        long priceCents = room.getPricePerNight() == null
+                ? NO_PRICE
+                : RoomPriceIndex.toCents(room.getPricePerNight(), RoundingMode.HALF_UP);
+        IndexedKeys keys = new IndexedKeys(room.getRoomNumber(), room.getStatus(), room.getRoomType(), priceCents);
+        byId.put(id, room);
+        keysById.put(id, keys);
+        if (keys.roomNumber() != null) {
+            idByNumber.put(keys.roomNumber(), id);
+        }
+        if (keys.status() != null) {
+            idsByStatus.computeIfAbsent(keys.status(), s -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if (keys.roomType() != null) {
+            idsByType.computeIfAbsent(keys.roomType(), t -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        return keys;
+    }
+
+    private IndexedKeys unindex(Long id) {
+        byId.remove(id);
+        IndexedKeys keys = keysById.remove(id);
+        if (keys == null) {
+            return null;
+        }
+        if (keys.roomNumber() != null) {
+            idByNumber.remove(keys.roomNumber(), id);
+        }
+        removeFrom(idsByStatus, keys.status(), id);
+        removeFrom(idsByType, keys.roomType(), id);
+        return keys;
+    }
+
+    private static void removeFrom(Map<String, Set<Long>> index, String key, Long id) {
+        if (key == null) {
+            return;
+        }
+        Set<Long> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    private List<Room> resolve(Set<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Room> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Room room = byId.get(id);
+            if (room != null) {
+                result.add(room);
+            }
+        }
+        result.sort(Comparator.comparing(Room::getId));
+        return result;
+    }
+}
@@ -0,0 +1,310 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.iot.proto.ChannelStates;
+import by.osinovii.hacathonback.iot.proto.ClientMessage;
+import by.osinovii.hacathonback.iot.proto.ControllerResponse;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.Info;
+import by.osinovii.hacathonback.iot.proto.LighStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.iot.proto.States;
+import by.osinovii.hacathonback.iot.proto.Statuses;
+import by.osinovii.hacathonback.scheduling.HashedTimingWheel;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Симулятор контроллеров комнат, работающий с сообщениями controller.proto:
+ * принимает ClientMessage (SetState, GetState, GetInfo), отвечает ControllerResponse
+ * и периодически сообщает State с показаниями датчиков.
+ *
+ * Устройства распределены по циклам событий - колесам таймеров, по devicesPerLoop устройств
+ * на поток. Все изменения состояния устройства выполняются в потоке его цикла, поэтому
+ * обходятся без блокировок, а 10 тысяч комнат обслуживают около десяти потоков.
+ *
+ * Каждое устройство получает собственные генераторы случайных чисел, производные от seed
+ * и номера комнаты, поэтому при одинаковой последовательности команд его показания,
+ * задержки и отказы повторяются от запуска к запуску.
+ */
+@Slf4j
+public class DeviceSimulator {
+
+    /**
+     * stateIntervalMs - период отправки State (0 - только после изменения состояния),
+     * jitter - относительный разброс задержек и периода, errorRate и dropRate - доли команд,
+     * на которые устройство отвечает ошибкой или не отвечает вовсе
+     */
+    public record Settings(long seed, long latencyMs, long stateIntervalMs, double jitter,
+                           double errorRate, double dropRate, int devicesPerLoop, long tickMs, int wheelSize) {
+    }
+
+    /**
+     * Получатель кадров ControllerResponse с состоянием, которые устройства отправляют сами
+     */
+    @FunctionalInterface
+    public interface StateSink {
+        void accept(String deviceId, byte[] controllerResponse);
+    }
+
+    // Тепловая модель комнаты: температура снаружи, утечка тепла (доля разницы в секунду),
+    // скорость нагрева и охлаждения (°C в секунду)
+    private static final float AMBIENT_TEMPERATURE = 16f;
+    private static final float HEAT_LEAK = 1f / 3600;
+    private static final float HEATING_RATE = 1f / 300;
+    private static final float COOLING_RATE = 1f / 300;
+
+    private final Settings settings;
+    private final StateSink sink;
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final List<HashedTimingWheel> loops = new ArrayList<>();
+    private int createdDevices;
+    private boolean running;
+
+    /**
+     * Виртуальный контроллер комнаты. Поля состояния меняются только в потоке цикла устройства
+     */
+    private final class Device implements Runnable {
+        final String id;
+        final HashedTimingWheel loop;
+        final HashedTimingWheel.Timer reportTimer;
+        // Показания датчиков (только поток цикла) и задержки/отказы команд (вызывающие потоки)
+        final SplittableRandom sensorRandom;
+        final SplittableRandom commandRandom;
+
+        boolean lightOn;
+        boolean doorLocked = true;
+        boolean channel1On;
+        boolean channel2On;
+        float temperature;
+        float humidity;
+        float pressure;
+        long nextReportDelay;
+
+        Device(String id, HashedTimingWheel loop, long seed) {
+            this.id = id;
+            this.loop = loop;
+            this.reportTimer = loop.newTimer(this);
+            SplittableRandom root = new SplittableRandom(seed);
+            this.sensorRandom = root.split();
+            this.commandRandom = root.split();
+            this.temperature = 20f + (float) sensorRandom.nextDouble(4);
+            this.humidity = 35f + (float) sensorRandom.nextDouble(20);
+            this.pressure = 1005f + (float) sensorRandom.nextDouble(15);
+        }
+
+        /**
+         * Плановая отправка State: датчики "проживают" прошедший период, затем следующий срок
+         */
+        @Override
+        public void run() {
+            evolve(nextReportDelay / 1000f);
+            report();
+            scheduleReport(jittered(settings.stateIntervalMs(), sensorRandom));
+        }
+
+        void scheduleReport(long delayMs) {
+            nextReportDelay = delayMs;
+            reportTimer.schedule(delayMs);
+        }
+
+        void evolve(float seconds) {
+            float heat = (AMBIENT_TEMPERATURE - temperature) * HEAT_LEAK
+                    + (channel1On ? HEATING_RATE : 0)
+                    - (channel2On ? COOLING_RATE : 0);
+            temperature = clamp(temperature + heat * seconds + (float) sensorRandom.nextGaussian() * 0.05f, 5f, 40f);
+            // Кондиционер сушит воздух
+            humidity = clamp(humidity + (float) sensorRandom.nextGaussian() * 0.3f - (channel2On ? 0.001f * seconds : 0),
+                    15f, 85f);
+            pressure = clamp(pressure + (float) sensorRandom.nextGaussian() * 0.1f, 980f, 1040f);
+        }
+
+        void report() {
+            try {
+                sink.accept(id, ControllerResponse.newBuilder().setState(state()).build().toByteArray());
+            } catch (Exception e) {
+                log.warn("Ошибка приема состояния симулированного устройства {}", id, e);
+            }
+        }
+
+        State state() {
+            return State.newBuilder()
+                    .setLightOn(lightOn ? LighStates.On : LighStates.Off)
+                    .setDoorLock(doorLocked ? DoorLockStates.Close : DoorLockStates.Open)
+                    .setChannel1(channel1On ? ChannelStates.ChannelOn : ChannelStates.ChannelOff)
+                    .setChannel2(channel2On ? ChannelStates.ChannelOn : ChannelStates.ChannelOff)
+                    .setTemperature(temperature)
+                    .setHumidity(humidity)
+                    .setPressure(pressure)
+                    .build();
+        }
+
+        void handle(ClientMessage message, boolean fail, CompletableFuture<byte[]> reply) {
+            ControllerResponse.Builder response = ControllerResponse.newBuilder();
+            boolean changed = false;
+            switch (message.getMessageCase()) {
+                case SET_STATE -> {
+                    if (!fail) {
+                        changed = apply(message.getSetState().getState());
+                    }
+                    response.setStatus(fail ? Statuses.Error : Statuses.Ok);
+                }
+                case GET_STATE -> {
+                    if (fail) {
+                        response.setStatus(Statuses.Error);
+                    } else {
+                        response.setState(state());
+                    }
+                }
+                case GET_INFO -> response.setInfo(Info.newBuilder()
+                        .setBleName("room-" + id)
+                        .setMac(mac(id.hashCode())));
+                case MESSAGE_NOT_SET -> response.setStatus(Statuses.Error);
+            }
+            reply.complete(response.build().toByteArray());
+            // Контроллер сообщает новое состояние сразу после изменения
+            if (changed) {
+                report();
+            }
+        }
+
+        boolean apply(States state) {
+            switch (state) {
+                case LightOn -> lightOn = true;
+                case LightOff -> lightOn = false;
+                case DoorLockOpen -> doorLocked = false;
+                case DoorLockClose -> doorLocked = true;
+                case Channel1On -> channel1On = true;
+                case Channel1Off -> channel1On = false;
+                case Channel2On -> channel2On = true;
+                case Channel2Off -> channel2On = false;
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public DeviceSimulator(Settings settings, StateSink sink) {
+        if (settings.devicesPerLoop() < 1 || settings.errorRate() + settings.dropRate() > 1) {
+            throw new IllegalArgumentException("Некорректные параметры симулятора: " + settings);
+        }
+        this.settings = settings;
+        this.sink = sink;
+    }
+
+    /**
+     * Добавление устройства; первый State отправляется в случайный момент периода,
+     * чтобы устройства не отчитывались одновременно
+     */
+    public void register(String deviceId) {
+        device(deviceId);
+    }
+
+    /**
+     * Отправка кадра ClientMessage устройству. Ответ - кадр ControllerResponse
+     * через задержку latencyMs с разбросом; при отказе без ответа результат не завершается
+     * (шлюз завершит команду по таймауту)
+     */
+    public CompletableFuture<byte[]> send(String deviceId, byte[] clientMessage) {
+        ClientMessage message;
+        try {
+            message = ClientMessage.parseFrom(clientMessage);
+        } catch (InvalidProtocolBufferException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Device device = device(deviceId);
+
+        long delay;
+        boolean drop;
+        boolean fail;
+        synchronized (device.commandRandom) {
+            delay = jittered(settings.latencyMs(), device.commandRandom);
+            double roll = device.commandRandom.nextDouble();
+            drop = roll < settings.dropRate();
+            fail = !drop && roll < settings.dropRate() + settings.errorRate();
+        }
+
+        CompletableFuture<byte[]> reply = new CompletableFuture<>();
+        if (!drop) {
+            // Команда выполняется в потоке цикла устройства
+            device.loop.newTimer(() -> device.handle(message, fail, reply)).schedule(delay);
+        }
+        return reply;
+    }
+
+    public synchronized void start() {
+        running = true;
+        loops.forEach(HashedTimingWheel::start);
+        log.info("Симулятор устройств: {} устройств, {} циклов событий", devices.size(), loops.size());
+    }
+
+    public synchronized void stop() {
+        running = false;
+        loops.forEach(HashedTimingWheel::stop);
+    }
+
+    public int deviceCount() {
+        return devices.size();
+    }
+
+    synchronized int loopCount() {
+        return loops.size();
+    }
+
+    /**
+     * Один тик всех циклов (для тестов без запуска потоков)
+     */
+    synchronized void tick() {
+        loops.forEach(HashedTimingWheel::tick);
+    }
+
+    private Device device(String deviceId) {
+        Device device = devices.get(deviceId);
+        return device != null ? device : devices.computeIfAbsent(deviceId, this::createDevice);
+    }
+
+    private Device createDevice(String deviceId) {
+        HashedTimingWheel loop;
+        synchronized (this) {
+            int loopIndex = createdDevices++ / settings.devicesPerLoop();
+            if (loopIndex == loops.size()) {
+                loop = new HashedTimingWheel("device-sim-" + loopIndex, settings.tickMs(), settings.wheelSize());
+                loops.add(loop);
+                if (running) {
+                    loop.start();
+                }
+            } else {
+                loop = loops.get(loopIndex);
+            }
+        }
+        Device device = new Device(deviceId, loop, settings.seed() * 0x9E3779B97F4A7C15L ^ deviceId.hashCode());
+        if (settings.stateIntervalMs() > 0) {
+            device.scheduleReport(device.sensorRandom.nextLong(settings.stateIntervalMs()) + 1);
+        }
+        return device;
+    }
+
+    private long jittered(long base, SplittableRandom random) {
+        if (settings.jitter() <= 0 || base <= 0) {
+            return base;
+        }
+        double factor = 1 + settings.jitter() * (2 * random.nextDouble() - 1);
+        return Math.max(0, Math.round(base * factor));
+    }
+
+    private static String mac(int hash) {
+        return String.format("02:00:%02x:%02x:%02x:%02x", hash >>> 24, (hash >>> 16) & 0xFF, (hash >>> 8) & 0xFF, hash & 0xFF);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
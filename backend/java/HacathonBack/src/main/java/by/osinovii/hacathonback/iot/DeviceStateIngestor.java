@@ -0,0 +1,68 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.iot.proto.ChannelStates;
+import by.osinovii.hacathonback.iot.proto.ControllerResponse;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.LighStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Прием состояния от контроллеров комнат, общий для /device-ws и симулятора устройств:
+ * показания датчиков сохраняются в телеметрию, состояние устройств - в реестр,
+ * а подписчикам комнаты рассылается JSON-представление состояния. Protobuf используется только
+ * на /device-ws между сервером и контроллерами: браузерные эндпоинты /ws и /guest-ws работают
+ * через SockJS, который передает только текстовые кадры.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceStateIngestor {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TelemetryService telemetryService;
+    private final DeviceStateRegistry deviceStateRegistry;
+
+    /**
+     * Состояние комнаты для подписчиков /topic/devices/{roomNumber}/state
+     */
+    public record DeviceStateEvent(String roomNumber, DeviceStateRegistry.DeviceState devices,
+                                   float temperature, float humidity, float pressure) {
+
+        static DeviceStateEvent of(String roomNumber, State state) {
+            return new DeviceStateEvent(roomNumber,
+                    new DeviceStateRegistry.DeviceState(state.getLightOn() == LighStates.On,
+                            state.getDoorLock() == DoorLockStates.Close,
+                            state.getChannel1() == ChannelStates.ChannelOn,
+                            state.getChannel2() == ChannelStates.ChannelOn),
+                    state.getTemperature(), state.getHumidity(), state.getPressure());
+        }
+    }
+
+    public void ingest(String roomNumber, State state) {
+        telemetryService.ingest(roomNumber, state);
+        deviceStateRegistry.apply(roomNumber, state);
+
+        messagingTemplate.convertAndSend("/topic/devices/" + roomNumber + "/state",
+                DeviceStateEvent.of(roomNumber, state));
+    }
+
+    /**
+     * Кадр ControllerResponse от контроллера; учитываются только кадры с состоянием
+     */
+    public void ingest(String roomNumber, byte[] controllerResponse) {
+        try {
+            ControllerResponse response = ControllerResponse.parseFrom(controllerResponse);
+            if (response.hasState()) {
+                ingest(roomNumber, response.getState());
+            }
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Некорректный кадр ControllerResponse от устройства комнаты {}", roomNumber, e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.iot.proto.ChannelStates;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.LighStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.iot.proto.States;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Состояние исполнительных устройств комнат (свет, замок двери, каналы 1 и 2),
+ * упакованное в одно int на комнату. На каждое устройство два бита: "состояние известно"
+ * и значение (включено / заперто). Бит DIRTY отмечает несохраненные изменения.
+ * Изменения применяются через CAS без блокировок.
+ *
+ * Сохранение отложенное: комната с изменениями попадает в очередь один раз, сколько бы событий
+ * ни пришло до сохранения, и раз в flush-interval-ms все такие комнаты пишутся пакетным upsert.
+ * Поэтому нагрузка на БД ограничена числом комнат за интервал, а не числом событий.
+ * Слоты не освобождаются, поэтому выдаются только комнатам из реестра комнат.
+ */
+@Component
+@Slf4j
+public class DeviceStateRegistry implements IoTCommandListener {
+
+    public static final int LIGHT = 0;
+    public static final int DOOR_LOCK = 1;
+    public static final int CHANNEL_1 = 2;
+    public static final int CHANNEL_2 = 3;
+
+    private static final int STATE_MASK = 0xFF;
+    private static final int DIRTY = 1 << 8;
+
+    private static final String UPSERT_SQL = "INSERT INTO room_device_states (room_number, state, updated_at) "
+            + "VALUES (?, ?, now()) "
+            + "ON CONFLICT (room_number) DO UPDATE SET state = EXCLUDED.state, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RoomRegistry roomRegistry;
+    private final int maxRooms;
+    private final int batchSize;
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final String[] roomNumbers;
+    private final AtomicIntegerArray states;
+    private final Queue<Integer> dirtySlots = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Состояние устройств комнаты; null - состояние устройства неизвестно
+     */
+    public record DeviceState(Boolean lightOn, Boolean doorLocked, Boolean channel1On, Boolean channel2On) {
+    }
+
+    public DeviceStateRegistry(JdbcTemplate jdbcTemplate,
+                               RoomRegistry roomRegistry,
+                               @Value("${hotel.devices.max-rooms:16384}") int maxRooms,
+                               @Value("${hotel.devices.flush-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.roomRegistry = roomRegistry;
+        this.maxRooms = maxRooms;
+        this.batchSize = batchSize;
+        this.roomNumbers = new String[maxRooms];
+        this.states = new AtomicIntegerArray(maxRooms);
+    }
+
+    /**
+     * Полное состояние, присланное контроллером комнаты
+     */
+    public boolean apply(String roomNumber, State state) {
+        int bits = encode(LIGHT, state.getLightOn() == LighStates.On)
+                | encode(DOOR_LOCK, state.getDoorLock() == DoorLockStates.Close)
+                | encode(CHANNEL_1, state.getChannel1() == ChannelStates.ChannelOn)
+                | encode(CHANNEL_2, state.getChannel2() == ChannelStates.ChannelOn);
+        return update(roomNumber, STATE_MASK, bits);
+    }
+
+    /**
+     * Состояние одного устройства после выполненной команды SetState
+     */
+    public boolean apply(String roomNumber, States state) {
+        return switch (state) {
+            case LightOn -> update(roomNumber, LIGHT, true);
+            case LightOff -> update(roomNumber, LIGHT, false);
+            case DoorLockClose -> update(roomNumber, DOOR_LOCK, true);
+            case DoorLockOpen -> update(roomNumber, DOOR_LOCK, false);
+            case Channel1On -> update(roomNumber, CHANNEL_1, true);
+            case Channel1Off -> update(roomNumber, CHANNEL_1, false);
+            case Channel2On -> update(roomNumber, CHANNEL_2, true);
+            case Channel2Off -> update(roomNumber, CHANNEL_2, false);
+            case UNRECOGNIZED -> false;
+        };
+    }
+
+    public Optional<DeviceState> getState(String roomNumber) {
+        Integer slot = slots.get(roomNumber);
+        if (slot == null || slot < 0) {
+            return Optional.empty();
+        }
+        int bits = states.get(slot);
+        return Optional.of(new DeviceState(decode(bits, LIGHT), decode(bits, DOOR_LOCK),
+                decode(bits, CHANNEL_1), decode(bits, CHANNEL_2)));
+    }
+
+    @Override
+    public void onSent(IoTCommand command) {
+    }
+
+    /**
+     * Выполненная команда меняет известное состояние устройства
+     */
+    @Override
+    public void onCompleted(IoTCommand command, IoTResponse response, Throwable error) {
+        States state = command.action().state();
+        if (error == null && response.success() && state != null) {
+            apply(command.deviceId(), state);
+        }
+    }
+
+    /**
+     * Загрузка сохраненных состояний при старте (после реестра комнат);
+     * состояния удаленных комнат пропускаются
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query("SELECT room_number, state FROM room_device_states", row -> {
+            int slot = slotOf(row.getString("room_number"));
+            if (slot >= 0) {
+                states.set(slot, row.getInt("state") & STATE_MASK);
+            }
+        });
+        log.info("Загружено состояние устройств {} комнат", slots.size());
+    }
+
+    /**
+     * Сохранение измененных комнат пакетами по batchSize
+     */
+    @Scheduled(initialDelayString = "${hotel.devices.flush-interval-ms:1000}",
+            fixedDelayString = "${hotel.devices.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, dirtySlots.size()));
+        List<Integer> batchSlots = new ArrayList<>(batchSize);
+        Integer slot;
+        while ((slot = dirtySlots.poll()) != null) {
+            // Снимаем DIRTY и берем состояние одним CAS: следующее изменение снова поставит комнату в очередь
+            int bits;
+            do {
+                bits = states.get(slot);
+            } while (!states.compareAndSet(slot, bits, bits & ~DIRTY));
+            batch.add(new Object[]{roomNumbers[slot], bits & STATE_MASK});
+            batchSlots.add(slot);
+            if (batch.size() >= batchSize) {
+                write(batch, batchSlots);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchSlots);
+        }
+    }
+
+    public int pendingCount() {
+        return dirtySlots.size();
+    }
+
+    private void write(List<Object[]> batch, List<Integer> batchSlots) {
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+            log.debug("Сохранено состояние устройств {} комнат", batch.size());
+        } catch (Exception e) {
+            log.error("Ошибка при сохранении состояния устройств, повтор при следующем сохранении", e);
+            batchSlots.forEach(this::markDirty);
+        }
+        batch.clear();
+        batchSlots.clear();
+    }
+
+    private boolean update(String roomNumber, int device, boolean value) {
+        return update(roomNumber, 0b11 << (device * 2), encode(device, value));
+    }
+
+    private boolean update(String roomNumber, int mask, int bits) {
+        int slot = slotOf(roomNumber);
+        if (slot < 0) {
+            return false;
+        }
+        int previous;
+        int next;
+        do {
+            previous = states.get(slot);
+            next = (previous & ~mask) | bits;
+            if (next == previous) {
+                return false;
+            }
+            next |= DIRTY;
+        } while (!states.compareAndSet(slot, previous, next));
+
+        if ((previous & DIRTY) == 0) {
+            dirtySlots.add(slot);
+        }
+        return true;
+    }
+
+    private void markDirty(int slot) {
+        int previous = states.getAndUpdate(slot, bits -> bits | DIRTY);
+        if ((previous & DIRTY) == 0) {
+            dirtySlots.add(slot);
+        }
+    }
+
+    private int slotOf(String roomNumber) {
+        Integer slot = slots.get(roomNumber);
+        if (slot != null) {
+            return slot;
+        }
+        if (roomRegistry.findByNumber(roomNumber).isEmpty()) {
+            // Отказ не запоминается: комната может появиться в реестре позже
+            log.debug("Состояние устройств неизвестной комнаты {} не сохраняется", roomNumber);
+            return -1;
+        }
+        return slots.computeIfAbsent(roomNumber, number -> {
+            int next = nextSlot.getAndIncrement();
+            if (next >= maxRooms) {
+                log.warn("Нет свободного слота состояния устройств для комнаты {} (максимум {})", number, maxRooms);
+                return -1;
+            }
+            roomNumbers[next] = number;
+            return next;
+        });
+    }
+
+    private static int encode(int device, boolean value) {
+        return (value ? 0b11 : 0b01) << (device * 2);
+    }
+
+    private static Boolean decode(int bits, int device) {
+        int field = (bits >>> (device * 2)) & 0b11;
+        return (field & 0b01) == 0 ? null : (field & 0b10) != 0;
+    }
+}
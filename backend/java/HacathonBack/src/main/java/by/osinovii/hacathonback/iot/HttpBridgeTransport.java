@@ -0,0 +1,87 @@
+package by.osinovii.hacathonback.iot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Доставка команд через FastAPI-мост (backend/py/app.py), который управляет
+ * контроллером по BLE. Один HttpClient на все запросы переиспользует соединения,
+ * запросы отправляются асинхронно.
+ *
+ * Ограничения моста: он поддерживает только дверь и свет (каналы и уставку температуры -
+ * нет, поэтому контур регулирования температуры с этим транспортом не запускается)
+ * и управляет одним контроллером - параметр device_name он пока не учитывает.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.iot.transport", havingValue = "http")
+@Slf4j
+public class HttpBridgeTransport implements IoTTransport {
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+
+    public HttpBridgeTransport(@Value("${hotel.iot.bridge-url:http://localhost:8000}") String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    @Override
+    public boolean supports(IoTAction action) {
+        return pathOf(action) != null;
+    }
+
+    @Override
+    public CompletableFuture<IoTResponse> send(IoTCommand command) {
+        String path = pathOf(command.action());
+        if (path == null) {
+            return CompletableFuture.failedFuture(new UnsupportedOperationException(
+                    "Команда " + command.action() + " не поддерживается мостом"));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path + "?device_name="
+                        + URLEncoder.encode(command.deviceId(), StandardCharsets.UTF_8)))
+                .header("X-Correlation-Id", Long.toString(command.correlationId()))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    boolean success = response.statusCode() / 100 == 2;
+                    if (!success) {
+                        log.warn("Мост вернул {} для команды {} устройства {}",
+                                response.statusCode(), command.action(), command.deviceId());
+                    }
+                    return new IoTResponse(command.correlationId(), success, response.body());
+                });
+    }
+
+    @Override
+    public String name() {
+        return "http-bridge";
+    }
+
+    private static String pathOf(IoTAction action) {
+        return switch (action) {
+            case DOOR_OPEN -> "/open_door";
+            case DOOR_CLOSE -> "/close_door";
+            case LIGHT_ON -> "/light_on";
+            case LIGHT_OFF -> "/light_off";
+            default -> null;
+        };
+    }
+}
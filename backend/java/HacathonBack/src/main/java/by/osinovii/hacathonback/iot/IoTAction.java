@@ -0,0 +1,44 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.iot.proto.States;
+
+/**
+ * Команды контроллеру комнаты.
+ * Команды одной группы управляют одним исполнительным устройством:
+ * в очереди устройства от группы остается только последняя команда.
+ */
+public enum IoTAction {
+    DOOR_OPEN(Group.DOOR, States.DoorLockOpen),
+    DOOR_CLOSE(Group.DOOR, States.DoorLockClose),
+    LIGHT_ON(Group.LIGHT, States.LightOn),
+    LIGHT_OFF(Group.LIGHT, States.LightOff),
+    CHANNEL_1_ON(Group.CHANNEL_1, States.Channel1On),
+    CHANNEL_1_OFF(Group.CHANNEL_1, States.Channel1Off),
+    CHANNEL_2_ON(Group.CHANNEL_2, States.Channel2On),
+    CHANNEL_2_OFF(Group.CHANNEL_2, States.Channel2Off),
+    // Уставка температуры (в протоколе контроллера нет отдельного состояния)
+    SET_TEMPERATURE(Group.CLIMATE, null);
+
+    public enum Group {
+        DOOR, LIGHT, CHANNEL_1, CHANNEL_2, CLIMATE
+    }
+
+    private final Group group;
+    private final States state;
+
+    IoTAction(Group group, States state) {
+        this.group = group;
+        this.state = state;
+    }
+
+    public Group group() {
+        return group;
+    }
+
+    /**
+     * Состояние SetState из controller.proto или null, если у команды его нет
+     */
+    public States state() {
+        return state;
+    }
+}
@@ -0,0 +1,13 @@
+package by.osinovii.hacathonback.iot;
+
+/**
+ * Команда устройству комнаты. correlationId связывает команду с ответом устройства,
+ * value - параметр команды (например, температура для SET_TEMPERATURE),
+ * guestId - гость, по запросу которого отправлена команда (0 - система или администратор).
+ */
+public record IoTCommand(long correlationId, String deviceId, IoTAction action, double value, long guestId) {
+
+    boolean sameEffect(IoTAction otherAction, double otherValue) {
+        return action == otherAction && Double.compare(value, otherValue) == 0;
+    }
+}
@@ -0,0 +1,26 @@
+package by.osinovii.hacathonback.iot;
+
+/**
+ * Наблюдатель за командами шлюза IoT (например, журнал событий для аудита).
+ * Вызывается в потоке отправки или завершения команды, поэтому должен быть быстрым.
+ */
+public interface IoTCommandListener {
+
+    /**
+     * Запрос команды принят шлюзом. command - команда, которая его выполнит: новая или уже
+     * ждущая или выполняющаяся с тем же действием (тогда ее guestId может быть другим).
+     * Для отклоненного запроса correlationId команды равен 0
+     */
+    default void onRequested(IoTCommand command, long guestId) {
+    }
+
+    /**
+     * Команда передана транспорту
+     */
+    void onSent(IoTCommand command);
+
+    /**
+     * Команда завершена ответом устройства (response) или ошибкой (error, в том числе таймаут)
+     */
+    void onCompleted(IoTCommand command, IoTResponse response, Throwable error);
+}
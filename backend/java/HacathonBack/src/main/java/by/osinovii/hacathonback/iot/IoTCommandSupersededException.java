@@ -0,0 +1,20 @@
+package by.osinovii.hacathonback.iot;
+
+/**
+ * Команда не была отправлена: пока она ждала в очереди, ее заменила более поздняя
+ * команда той же группы с другим действием или параметром
+ */
+public class IoTCommandSupersededException extends IllegalStateException {
+
+    private final IoTCommand command;
+
+    public IoTCommandSupersededException(IoTCommand command) {
+        super("Команда " + command.action() + " (" + command.correlationId() + ") устройству "
+                + command.deviceId() + " заменена более поздней командой");
+        this.command = command;
+    }
+
+    public IoTCommand getCommand() {
+        return command;
+    }
+}
@@ -0,0 +1,265 @@
+package by.osinovii.hacathonback.iot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Асинхронный шлюз команд для контроллеров комнат.
+ * У каждого устройства своя очередь; одновременно в транспорт отправляется до window
+ * команд (конвейер), но не больше одной на группу исполнительных устройств, чтобы
+ * команды одной группы выполнялись по порядку. Каждая команда получает correlationId
+ * и завершается по ответу или по таймауту.
+ * Избыточные команды схлопываются: повтор команды, которая уже ждет или выполняется,
+ * получает ее результат. Команда группы с другим действием или параметром заменяет ждущую
+ * в очереди, и вызывающие замененную команду получают IoTCommandSupersededException.
+ * О запросах, отправке и завершении команд уведомляются наблюдатели IoTCommandListener;
+ * запрос, схлопнутый с другой командой, сообщается с ее correlationId.
+ */
+@Component
+@Slf4j
+public class IoTGateway {
+
+    private final IoTTransport transport;
+    private final List<IoTCommandListener> listeners;
+    private final int window;
+    private final long timeoutMs;
+    private final int maxQueue;
+
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Map<String, DeviceChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Команда в очереди вместе с обещанным результатом
+     */
+    private static final class Pending {
+        final IoTCommand command;
+        final CompletableFuture<IoTResponse> result = new CompletableFuture<>();
+
+        Pending(IoTCommand command) {
+            this.command = command;
+        }
+    }
+
+    /**
+     * Очередь и выполняющиеся команды одного устройства
+     */
+    private static final class DeviceChannel {
+        final Deque<Pending> queue = new ArrayDeque<>();
+        final Map<IoTAction.Group, Pending> queuedByGroup = new EnumMap<>(IoTAction.Group.class);
+        final Map<IoTAction.Group, Pending> inFlightByGroup = new EnumMap<>(IoTAction.Group.class);
+        // Не монитор: ожидание блокировки не должно занимать поток-носитель виртуального потока
+        final ReentrantLock lock = new ReentrantLock();
+    }
+
+    public IoTGateway(IoTTransport transport,
+                      List<IoTCommandListener> listeners,
+                      @Value("${hotel.iot.window:4}") int window,
+                      @Value("${hotel.iot.timeout-ms:3000}") long timeoutMs,
+                      @Value("${hotel.iot.max-queue:64}") int maxQueue) {
+        this.transport = transport;
+        this.listeners = listeners;
+        this.window = window;
+        this.timeoutMs = timeoutMs;
+        this.maxQueue = maxQueue;
+        log.info("Шлюз IoT: транспорт {}, окно {}, таймаут {} мс", transport.name(), window, timeoutMs);
+    }
+
+    public CompletableFuture<IoTResponse> submit(String deviceId, IoTAction action) {
+        return submit(deviceId, action, 0, 0);
+    }
+
+    public CompletableFuture<IoTResponse> submit(String deviceId, IoTAction action, double value) {
+        return submit(deviceId, action, value, 0);
+    }
+
+    /**
+     * Доставляет ли транспорт шлюза команды этого типа
+     */
+    public boolean supports(IoTAction action) {
+        return transport.supports(action);
+    }
+
+    /**
+     * Постановка команды в очередь устройства. guestId - гость, по запросу которого отправляется
+     * команда (0 - запрос системы или администратора)
+     */
+    public CompletableFuture<IoTResponse> submit(String deviceId, IoTAction action, double value, long guestId) {
+        if (!transport.supports(action)) {
+            return reject(new IoTCommand(0, deviceId, action, value, guestId), new UnsupportedOperationException(
+                    "Команда " + action + " не поддерживается транспортом " + transport.name()));
+        }
+        DeviceChannel channel = channels.computeIfAbsent(deviceId, id -> new DeviceChannel());
+        Pending serving;
+        Pending superseded = null;
+        channel.lock.lock();
+        try {
+            Pending queued = channel.queuedByGroup.get(action.group());
+            if (queued != null && queued.command.sameEffect(action, value)) {
+                // Такая же команда еще не отправлена - все ждущие получат один результат
+                serving = queued;
+            } else {
+                if (queued != null) {
+                    // Ждущая команда группы с другим действием больше не нужна: отправлять ее нельзя,
+                    // и ее результат не годится новой команде
+                    channel.queue.remove(queued);
+                    channel.queuedByGroup.remove(action.group());
+                    superseded = queued;
+                }
+                Pending inFlight = channel.inFlightByGroup.get(action.group());
+                if (inFlight != null && inFlight.command.sameEffect(action, value)) {
+                    // Такая же команда уже выполняется - повтор не нужен
+                    serving = inFlight;
+                } else if (channel.queue.size() >= maxQueue) {
+                    serving = null;
+                } else {
+                    serving = new Pending(new IoTCommand(correlationIds.incrementAndGet(), deviceId, action, value,
+                            guestId));
+                    channel.queue.addLast(serving);
+                    channel.queuedByGroup.put(action.group(), serving);
+                }
+            }
+        } finally {
+            channel.lock.unlock();
+        }
+        if (superseded != null) {
+            IoTCommandSupersededException error = new IoTCommandSupersededException(superseded.command);
+            notifyCompleted(superseded.command, null, error);
+            superseded.result.completeExceptionally(error);
+        }
+        if (serving == null) {
+            return reject(new IoTCommand(0, deviceId, action, value, guestId), new IllegalStateException(
+                    "Очередь команд устройства " + deviceId + " переполнена"));
+        }
+        // До отправки, чтобы запрос попал в журнал раньше команды
+        notifyRequested(serving.command, guestId);
+        pump(channel);
+        return serving.result;
+    }
+
+    /**
+     * Число команд, ожидающих отправки или выполняющихся на устройстве
+     */
+    public int pendingCount(String deviceId) {
+        DeviceChannel channel = channels.get(deviceId);
+        if (channel == null) {
+            return 0;
+        }
+        channel.lock.lock();
+        try {
+            return channel.queue.size() + channel.inFlightByGroup.size();
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private void pump(DeviceChannel channel) {
+        while (true) {
+            Pending next = null;
+            channel.lock.lock();
+            try {
+                if (channel.inFlightByGroup.size() >= window) {
+                    return;
+                }
+                Iterator<Pending> it = channel.queue.iterator();
+                while (it.hasNext()) {
+                    Pending candidate = it.next();
+                    IoTAction.Group group = candidate.command.action().group();
+                    if (!channel.inFlightByGroup.containsKey(group)) {
+                        it.remove();
+                        channel.queuedByGroup.remove(group);
+                        channel.inFlightByGroup.put(group, candidate);
+                        next = candidate;
+                        break;
+                    }
+                }
+            } finally {
+                channel.lock.unlock();
+            }
+            if (next == null) {
+                return;
+            }
+            dispatch(channel, next);
+        }
+    }
+
+    private void dispatch(DeviceChannel channel, Pending pending) {
+        IoTCommand command = pending.command;
+        CompletableFuture<IoTResponse> sent;
+        try {
+            notifySent(command);
+            sent = transport.send(command);
+        } catch (Exception e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+            channel.lock.lock();
+            try {
+                channel.inFlightByGroup.remove(command.action().group(), pending);
+            } finally {
+                channel.lock.unlock();
+            }
+            notifyCompleted(command, response, error);
+            // Сначала занимаем освободившееся место в окне, затем отдаем результат
+            pump(channel);
+            if (error != null) {
+                log.warn("Команда {} ({}) устройству {} не выполнена: {}",
+                        command.action(), command.correlationId(), command.deviceId(), error.toString());
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(response);
+            }
+        });
+    }
+
+    /**
+     * Отказ без постановки в очередь: наблюдатели видят запрос и ошибку, correlationId равен 0
+     */
+    private CompletableFuture<IoTResponse> reject(IoTCommand command, Exception error) {
+        notifyRequested(command, command.guestId());
+        notifyCompleted(command, null, error);
+        return CompletableFuture.failedFuture(error);
+    }
+
+    private void notifyRequested(IoTCommand command, long guestId) {
+        for (IoTCommandListener listener : listeners) {
+            try {
+                listener.onRequested(command, guestId);
+            } catch (Exception e) {
+                log.warn("Ошибка наблюдателя команд IoT", e);
+            }
+        }
+    }
+
+    private void notifySent(IoTCommand command) {
+        for (IoTCommandListener listener : listeners) {
+            try {
+                listener.onSent(command);
+            } catch (Exception e) {
+                log.warn("Ошибка наблюдателя команд IoT", e);
+            }
+        }
+    }
+
+    private void notifyCompleted(IoTCommand command, IoTResponse response, Throwable error) {
+        for (IoTCommandListener listener : listeners) {
+            try {
+                listener.onCompleted(command, response, error);
+            } catch (Exception e) {
+                log.warn("Ошибка наблюдателя команд IoT", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package by.osinovii.hacathonback.iot;
+
+/**
+ * Ответ устройства на команду
+ */
+public record IoTResponse(long correlationId, boolean success, String detail) {
+}
@@ -0,0 +1,23 @@
+package by.osinovii.hacathonback.iot;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Канал доставки команд до контроллеров комнат.
+ * Реализация должна быть неблокирующей: send возвращает управление сразу,
+ * а результат приходит через CompletableFuture. Для одного устройства шлюз
+ * держит не больше заданного числа одновременных команд.
+ */
+public interface IoTTransport {
+
+    CompletableFuture<IoTResponse> send(IoTCommand command);
+
+    String name();
+
+    /**
+     * Умеет ли транспорт доставлять команду; неподдерживаемые команды шлюз не отправляет
+     */
+    default boolean supports(IoTAction action) {
+        return true;
+    }
+}
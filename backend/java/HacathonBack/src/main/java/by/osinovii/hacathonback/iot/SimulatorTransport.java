@@ -0,0 +1,103 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.iot.proto.ClientMessage;
+import by.osinovii.hacathonback.iot.proto.ControllerResponse;
+import by.osinovii.hacathonback.iot.proto.GetState;
+import by.osinovii.hacathonback.iot.proto.SetState;
+import by.osinovii.hacathonback.iot.proto.Statuses;
+import by.osinovii.hacathonback.repositories.RoomRepository;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Локальная замена BLE-моста: команды доставляются симулированным контроллерам комнат
+ * (DeviceSimulator) в виде кадров controller.proto, а State, которые контроллеры присылают сами,
+ * идут в тот же прием, что и кадры /device-ws. Используется по умолчанию и в тестах.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.iot.transport", havingValue = "simulator", matchIfMissing = true)
+@Slf4j
+public class SimulatorTransport implements IoTTransport {
+
+    private final DeviceSimulator simulator;
+    private final RoomRepository roomRepository;
+
+    public SimulatorTransport(DeviceStateIngestor deviceStateIngestor,
+                              RoomRepository roomRepository,
+                              @Value("${hotel.iot.simulator.seed:42}") long seed,
+                              @Value("${hotel.iot.simulator.latency-ms:5}") long latencyMs,
+                              @Value("${hotel.iot.simulator.state-interval-ms:10000}") long stateIntervalMs,
+                              @Value("${hotel.iot.simulator.jitter:0.2}") double jitter,
+                              @Value("${hotel.iot.simulator.error-rate:0}") double errorRate,
+                              @Value("${hotel.iot.simulator.drop-rate:0}") double dropRate,
+                              @Value("${hotel.iot.simulator.devices-per-loop:1024}") int devicesPerLoop,
+                              @Value("${hotel.iot.simulator.tick-ms:5}") long tickMs,
+                              @Value("${hotel.iot.simulator.wheel-size:4096}") int wheelSize) {
+        this.roomRepository = roomRepository;
+        this.simulator = new DeviceSimulator(
+                new DeviceSimulator.Settings(seed, latencyMs, stateIntervalMs, jitter, errorRate, dropRate,
+                        devicesPerLoop, tickMs, wheelSize),
+                deviceStateIngestor::ingest);
+    }
+
+    /**
+     * Контроллер для каждой комнаты; устройства вне списка комнат создаются при первой команде
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (Room room : roomRepository.findAll()) {
+            simulator.register(room.getRoomNumber());
+        }
+        simulator.start();
+    }
+
+    @Override
+    public CompletableFuture<IoTResponse> send(IoTCommand command) {
+        // Уставки температуры в протоколе контроллера нет: такая команда лишь запрашивает состояние
+        ClientMessage message = command.action().state() != null
+                ? ClientMessage.newBuilder()
+                        .setSetState(SetState.newBuilder().setState(command.action().state()))
+                        .build()
+                : ClientMessage.newBuilder().setGetState(GetState.getDefaultInstance()).build();
+
+        return simulator.send(command.deviceId(), message.toByteArray())
+                .thenApply(reply -> toResponse(command, reply));
+    }
+
+    @Override
+    public String name() {
+        return "simulator";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        simulator.stop();
+    }
+
+    private static IoTResponse toResponse(IoTCommand command, byte[] reply) {
+        ControllerResponse response;
+        try {
+            response = ControllerResponse.parseFrom(reply);
+        } catch (InvalidProtocolBufferException e) {
+            throw new CompletionException(e);
+        }
+        boolean success = switch (response.getResponseCase()) {
+            case STATUS -> response.getStatus() == Statuses.Ok;
+            case STATE, INFO -> true;
+            case RESPONSE_NOT_SET -> false;
+        };
+        log.debug("Симулятор: устройство {} ответило {} на {}", command.deviceId(), response.getResponseCase(),
+                command.action());
+        return new IoTResponse(command.correlationId(), success, success ? "simulated" : "simulated error");
+    }
+}
@@ -0,0 +1,181 @@
+package by.osinovii.hacathonback.messaging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Схлопывание одинаковых запросов на рассылку в общий топик.
+ * Первый запрос вычисляет ответ и рассылает его сразу. Запросы, пришедшие во время
+ * вычисления или в течение окна свежести после него, объединяются в одну
+ * повторную рассылку в конце окна. Например, 30 одновременных запросов дают
+ * не больше двух обращений к БД и двух сообщений в топик.
+ *
+ * Поток планировщика только отсчитывает окна; повторные вычисления выполняются в пуле,
+ * где на каждый топик приходится не больше одного вычисления, поэтому медленный список
+ * одного топика не задерживает рассылки в другие.
+ */
+@Component
+@Slf4j
+public class BroadcastCollapser {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long freshnessNanos;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "broadcast-collapser");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "broadcast-collapser-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Состояние рассылки в один топик
+     */
+    private static final class Flight {
+        final LongAdder requests = new LongAdder();
+        final LongAdder computations = new LongAdder();
+        Supplier<?> computation;
+        boolean running;
+        // Есть запросы, которые будут обслужены повторной рассылкой
+        boolean pending;
+        long lastCompletedNanos;
+        boolean completedOnce;
+    }
+
+    public BroadcastCollapser(SimpMessagingTemplate messagingTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${hotel.broadcast.freshness-ms:1000}") long freshnessMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+        this.freshnessNanos = TimeUnit.MILLISECONDS.toNanos(freshnessMs);
+    }
+
+    /**
+     * Запрос на рассылку результата computation в destination
+     */
+    public void broadcast(String destination, Supplier<?> computation) {
+        Flight flight = flights.computeIfAbsent(destination, this::newFlight);
+        flight.requests.increment();
+
+        long delayNanos;
+        synchronized (flight) {
+            flight.computation = computation;
+            if (flight.running || flight.pending) {
+                flight.pending = true;
+                return;
+            }
+            delayNanos = flight.completedOnce
+                    ? freshnessNanos - (System.nanoTime() - flight.lastCompletedNanos)
+                    : 0;
+            if (delayNanos > 0) {
+                flight.pending = true;
+            } else {
+                flight.running = true;
+            }
+        }
+
+        if (delayNanos > 0) {
+            schedule(destination, flight, delayNanos);
+        } else {
+            run(destination, flight);
+        }
+    }
+
+    /**
+     * Метрики по топикам: число запросов, вычислений и доля схлопнутых запросов
+     */
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+        flights.forEach((destination, flight) -> {
+            long requests = flight.requests.sum();
+            long computations = flight.computations.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("requests", requests);
+            entry.put("computations", computations);
+            entry.put("collapseRatio", requests == 0 ? 0.0 : 1.0 - (double) computations / requests);
+            metrics.put(destination, entry);
+        });
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Состояние топика и его счетчики в Micrometer (топики задаются кодом, их число невелико)
+     */
+    private Flight newFlight(String destination) {
+        Flight flight = new Flight();
+        FunctionCounter.builder("broadcast.requests", flight.requests, LongAdder::sum)
+                .description("Запросы на рассылку в топик")
+                .tag("destination", destination)
+                .register(meterRegistry);
+        FunctionCounter.builder("broadcast.computations", flight.computations, LongAdder::sum)
+                .description("Вычисления ответа для рассылки в топик")
+                .tag("destination", destination)
+                .register(meterRegistry);
+        return flight;
+    }
+
+    /**
+     * Срабатывание окна свежести: вычисление передается в пул, планировщик не блокируется
+     */
+    private void schedule(String destination, Flight flight, long delayNanos) {
+        scheduler.schedule(() -> workers.execute(() -> fire(destination, flight)), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void fire(String destination, Flight flight) {
+        synchronized (flight) {
+            flight.pending = false;
+            flight.running = true;
+        }
+        run(destination, flight);
+    }
+
+    private void run(String destination, Flight flight) {
+        Supplier<?> computation;
+        synchronized (flight) {
+            computation = flight.computation;
+        }
+        try {
+            flight.computations.increment();
+            messagingTemplate.convertAndSend(destination, computation.get());
+        } catch (Exception e) {
+            log.error("Ошибка при рассылке в {}", destination, e);
+        } finally {
+            boolean reschedule;
+            synchronized (flight) {
+                flight.running = false;
+                flight.lastCompletedNanos = System.nanoTime();
+                flight.completedOnce = true;
+                reschedule = flight.pending;
+            }
+            if (reschedule) {
+                schedule(destination, flight, freshnessNanos);
+            }
+        }
+    }
+}
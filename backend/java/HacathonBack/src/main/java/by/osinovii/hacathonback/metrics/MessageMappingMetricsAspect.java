@@ -0,0 +1,84 @@
+package by.osinovii.hacathonback.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageMappingInfo;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Замер каждого обработчика @MessageMapping: время, число вызовов и ошибок по назначению.
+ * Ошибкой считается исключение обработчика или ответ с ошибкой: возвращенное значение либо ответ,
+ * отправленный обработчиком через SimpMessagingTemplate (обработчики сами перехватывают исключения
+ * и отвечают клиенту ошибкой). Назначения обработчиков регистрируются в метриках при запуске,
+ * чтобы кадры на них учитывались под своим назначением, а не как other.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MessageMappingMetricsAspect implements SmartInitializingSingleton {
+
+    // Префикс назначений приложения (см. WebSocketConfig)
+    private static final String APPLICATION_PREFIX = "/app";
+
+    private final StompMetrics stompMetrics;
+    private final ObjectProvider<SimpAnnotationMethodMessageHandler> messageHandler;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SimpAnnotationMethodMessageHandler handler = messageHandler.getIfAvailable();
+        if (handler == null) {
+            return;
+        }
+        for (SimpMessageMappingInfo mapping : handler.getHandlerMethods().keySet()) {
+            mapping.getDestinationConditions().getPatterns()
+                    .forEach(pattern -> stompMetrics.registerDestination(APPLICATION_PREFIX + pattern));
+        }
+    }
+
+    @Around("@annotation(messageMapping)")
+    public Object measure(ProceedingJoinPoint joinPoint, MessageMapping messageMapping) throws Throwable {
+        String destination = messageMapping.value().length == 0
+                ? joinPoint.getSignature().getName()
+                : APPLICATION_PREFIX + messageMapping.value()[0];
+        StompMetrics.HandlerInvocation invocation = stompMetrics.startHandler();
+        Throwable failure = null;
+        try {
+            Object result = joinPoint.proceed();
+            stompMetrics.handlerReplied(result);
+            return result;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            stompMetrics.stopHandler(invocation, destination, failure);
+        }
+    }
+
+    // Ответы, отправленные обработчиком: convertAndSend(destination, payload, ...)
+    @Before("execution(* org.springframework.messaging.core.AbstractMessageSendingTemplate+.convertAndSend(..))"
+            + " && args(*, reply, ..)")
+    public void onConvertAndSend(Object reply) {
+        stompMetrics.handlerReplied(reply);
+    }
+
+    // convertAndSendToUser(user, destination, payload, ...)
+    @Before("execution(* org.springframework.messaging.simp.SimpMessagingTemplate.convertAndSendToUser(..))"
+            + " && args(*, *, reply, ..)")
+    public void onConvertAndSendToUser(Object reply) {
+        stompMetrics.handlerReplied(reply);
+    }
+
+    // send(destination, message) - уже сериализованный ответ
+    @Before("execution(* org.springframework.messaging.core.AbstractMessageSendingTemplate+.send(..))"
+            + " && args(*, reply)")
+    public void onSend(Object reply) {
+        stompMetrics.handlerReplied(reply);
+    }
+}
@@ -0,0 +1,86 @@
+package by.osinovii.hacathonback.metrics;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Перехватчик каналов STOMP.
+ * Входящий канал: размеры кадров SEND и учет подписок (SUBSCRIBE, UNSUBSCRIBE, DISCONNECT).
+ * Исходящий канал: размеры кадров MESSAGE, доставляемых клиентам (по назначению подписки клиента).
+ */
+public class StompChannelMetricsInterceptor implements ChannelInterceptor {
+
+    public enum Direction {
+        INBOUND, OUTBOUND
+    }
+
+    private final StompMetrics stompMetrics;
+    private final Direction direction;
+
+    public StompChannelMetricsInterceptor(StompMetrics stompMetrics, Direction direction) {
+        this.stompMetrics = stompMetrics;
+        this.direction = direction;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        switch (direction) {
+            case INBOUND -> onInbound(message, type, destination);
+            case OUTBOUND -> {
+                if (type == SimpMessageType.MESSAGE) {
+                    stompMetrics.recordFrame("outbound", subscribedDestination(message, destination),
+                            payloadSize(message));
+                }
+            }
+        }
+        return message;
+    }
+
+    private void onInbound(Message<?> message, SimpMessageType type, String destination) {
+        if (type == null) {
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        switch (type) {
+            case MESSAGE -> stompMetrics.recordFrame("inbound", destination, payloadSize(message));
+            case SUBSCRIBE -> stompMetrics.subscribed(sessionId,
+                    SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()), destination);
+            case UNSUBSCRIBE -> stompMetrics.unsubscribed(sessionId,
+                    SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+            case DISCONNECT -> stompMetrics.disconnected(sessionId);
+            default -> {
+            }
+        }
+    }
+
+    // Для персональных сообщений (/queue/...-user{сессия}) - назначение, на которое подписан клиент
+    private static String subscribedDestination(Message<?> message, String destination) {
+        Object nativeHeaders = message.getHeaders().get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (nativeHeaders instanceof Map<?, ?> headers
+                && headers.get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION) instanceof List<?> values
+                && !values.isEmpty()) {
+            return (String) values.get(0);
+        }
+        return destination;
+    }
+
+    private static int payloadSize(Message<?> message) {
+        Object payload = message.getPayload();
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (payload instanceof String text) {
+            return text.length();
+        }
+        return 0;
+    }
+}
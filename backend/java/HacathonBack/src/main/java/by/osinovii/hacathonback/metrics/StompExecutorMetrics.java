@@ -0,0 +1,77 @@
+package by.osinovii.hacathonback.metrics;
+
+import by.osinovii.hacathonback.config.JdbcConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Загрузка пулов каналов STOMP: длина очереди, активные и все потоки.
+ * По длине очереди входящего канала видно, когда обработчикам не хватает потоков.
+ * В режиме виртуальных потоков пула у входящего канала нет, и его очередь - обработчики,
+ * ждущие разрешения на работу с БД.
+ */
+@Component
+public class StompExecutorMetrics implements MeterBinder {
+
+    private final Map<String, ThreadPoolTaskExecutor> executors = new LinkedHashMap<>();
+    private final JdbcConcurrencyLimiter jdbcConcurrencyLimiter;
+
+    public StompExecutorMetrics(@Qualifier("clientInboundChannelExecutor") Executor inbound,
+                                @Qualifier("clientOutboundChannelExecutor") Executor outbound,
+                                @Qualifier("brokerChannelExecutor") Executor broker,
+                                ObjectProvider<JdbcConcurrencyLimiter> jdbcConcurrencyLimiter) {
+        this.jdbcConcurrencyLimiter = jdbcConcurrencyLimiter.getIfAvailable();
+        // Канал без собственного пула (синхронный или в виртуальных потоках) не учитывается
+        add("inbound", inbound);
+        add("outbound", outbound);
+        add("broker", broker);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (jdbcConcurrencyLimiter != null) {
+            Gauge.builder("stomp.channel.queue.size", jdbcConcurrencyLimiter, JdbcConcurrencyLimiter::getQueueLength)
+                    .description("Обработчики, ожидающие разрешения на работу с БД")
+                    .tag("channel", "inbound")
+                    .register(registry);
+        }
+        executors.forEach((channel, executor) -> {
+            Gauge.builder("stomp.channel.queue.size", executor, StompExecutorMetrics::queueSize)
+                    .description("Сообщения в очереди пула канала")
+                    .tag("channel", channel)
+                    .register(registry);
+            Gauge.builder("stomp.channel.threads.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                    .description("Потоки пула канала, обрабатывающие сообщения")
+                    .tag("channel", channel)
+                    .register(registry);
+            Gauge.builder("stomp.channel.threads", executor, ThreadPoolTaskExecutor::getPoolSize)
+                    .description("Потоки пула канала")
+                    .tag("channel", channel)
+                    .register(registry);
+        });
+    }
+
+    private void add(String channel, Executor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            executors.put(channel, pool);
+        }
+    }
+
+    private static double queueSize(ThreadPoolTaskExecutor executor) {
+        try {
+            return executor.getThreadPoolExecutor().getQueue().size();
+        } catch (IllegalStateException e) {
+            // Пул еще не инициализирован
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package by.osinovii.hacathonback.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Метрики STOMP: время обработки сообщений обработчиками @MessageMapping, размеры кадров
+ * и число подписок по назначениям. Назначения нормализуются (номера комнат, ID и сессии
+ * заменяются на {id}), чтобы число серий не росло с числом комнат и клиентов. Назначения,
+ * которых нет среди известных (топики брокера и назначения обработчиков @MessageMapping),
+ * учитываются под значением other: клиент может прислать кадр или подписку на любое назначение.
+ */
+@Component
+public class StompMetrics {
+
+    /**
+     * Заголовок ответа, уже сериализованного обработчиком: true - ответ с ошибкой
+     */
+    public static final String ERROR_REPLY_HEADER = "hotel-error-reply";
+
+    // Значение тега для неизвестных назначений
+    static final String OTHER_DESTINATION = "other";
+
+    // Назначения брокера, на которые отправляет сервер (в нормализованном виде)
+    private static final List<String> BROKER_DESTINATIONS = List.of(
+            "/topic/rooms/{id}", "/topic/guests", "/topic/guests/{id}", "/topic/devices/{id}/state",
+            "/topic/admin/rooms", "/topic/admin/guests", "/topic/admin/stats", "/topic/admin/rooms-by-status",
+            "/topic/admin/room-updated", "/topic/admin/room-price-updated",
+            "/topic/admin/guest-checked-in", "/topic/admin/guest-checked-out",
+            "/topic/admin/extend-stay-requests", "/topic/admin/guest-stay-extended",
+            "/topic/admin/guest-stay-extension-rejected",
+            "/user/queue/messages", "/user/queue/error", "/user/queue/my-room", "/user/queue/my-info",
+            "/user/queue/door-status", "/user/queue/climate-status", "/user/queue/climate-update",
+            "/user/queue/extend-stay-request", "/user/queue/extend-stay-response",
+            "/user/queue/admin/error", "/user/queue/admin/room-changes", "/user/queue/admin/climate-history",
+            "/user/queue/admin/device-state", "/user/queue/admin/device-events",
+            "/user/queue/admin/guests-page", "/user/queue/admin/rooms-page",
+            "/user/queue/admin/broadcast-metrics", "/user/queue/admin/room-update-result",
+            "/user/queue/admin/check-in-result", "/user/queue/admin/check-out-result",
+            "/user/queue/admin/extend-stay-result", "/user/queue/admin/housekeeping-report",
+            "/user/queue/admin/guest-search-results");
+
+    private final MeterRegistry meterRegistry;
+
+    // Известные нормализованные назначения; остальные учитываются как other
+    private final Set<String> knownDestinations = ConcurrentHashMap.newKeySet();
+
+    // Обработчик, выполняющийся в текущем потоке (для учета ответов с ошибкой, отправленных клиенту)
+    private final ThreadLocal<HandlerInvocation> currentInvocation = new ThreadLocal<>();
+
+    // sessionId -> (subscriptionId -> нормализованное назначение)
+    private final Map<String, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> subscriptionsByDestination = new ConcurrentHashMap<>();
+    private final AtomicInteger totalSubscriptions = new AtomicInteger();
+
+    /**
+     * Вызов обработчика; error выставляется, если обработчик ответил клиенту ошибкой
+     * (см. handlerReplied)
+     */
+    public static final class HandlerInvocation {
+        private final long startNanos = System.nanoTime();
+        private boolean error;
+
+        public void markError() {
+            error = true;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+
+    public StompMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        knownDestinations.addAll(BROKER_DESTINATIONS);
+        Gauge.builder("stomp.subscriptions", totalSubscriptions, AtomicInteger::get)
+                .description("Активные подписки брокера")
+                .register(meterRegistry);
+        Gauge.builder("stomp.sessions", subscriptions, Map::size)
+                .description("Сессии с подписками")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Регистрация назначения обработчика; переменные шаблона ({roomNumber}) заменяются на {id}
+     */
+    public void registerDestination(String destination) {
+        knownDestinations.add(normalize(destination));
+    }
+
+    public HandlerInvocation startHandler() {
+        HandlerInvocation invocation = new HandlerInvocation();
+        currentInvocation.set(invocation);
+        return invocation;
+    }
+
+    public HandlerInvocation currentHandler() {
+        return currentInvocation.get();
+    }
+
+    /**
+     * Отметка ответа текущего обработчика: ответ с ошибкой делает ошибочным и сам вызов
+     */
+    public void handlerReplied(Object reply) {
+        HandlerInvocation invocation = currentInvocation.get();
+        if (invocation != null && isErrorReply(reply)) {
+            invocation.markError();
+        }
+    }
+
+    /**
+     * Завершение обработчика: время по назначению, результату и типу исключения
+     */
+    public void stopHandler(HandlerInvocation invocation, String destination, Throwable exception) {
+        currentInvocation.remove();
+        String outcome = exception != null || invocation.isError() ? "error" : "success";
+        Timer.builder("stomp.handler")
+                .description("Время обработки сообщения обработчиком @MessageMapping")
+                .tag("destination", destination)
+                .tag("outcome", outcome)
+                .tag("exception", exception == null ? "none" : exception.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - invocation.startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFrame(String direction, String destination, int bytes) {
+        DistributionSummary.builder("stomp.frame.size")
+                .description("Размер полезной нагрузки кадра")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag("destination", tagOf(destination))
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        String normalized = tagOf(destination);
+        String previous = subscriptions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, normalized);
+        if (previous != null) {
+            destinationCounter(previous).decrementAndGet();
+        } else {
+            totalSubscriptions.incrementAndGet();
+        }
+        destinationCounter(normalized).incrementAndGet();
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> session = subscriptions.get(sessionId);
+        String destination = session == null ? null : session.remove(subscriptionId);
+        if (destination != null) {
+            totalSubscriptions.decrementAndGet();
+            destinationCounter(destination).decrementAndGet();
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Map<String, String> session = subscriptions.remove(sessionId);
+        if (session != null) {
+            session.values().forEach(destination -> {
+                totalSubscriptions.decrementAndGet();
+                destinationCounter(destination).decrementAndGet();
+            });
+        }
+    }
+
+    public int subscriptionCount(String destination) {
+        AtomicInteger counter = subscriptionsByDestination.get(tagOf(destination));
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Ответ с ошибкой: объект с success=false или action=error,
+     * либо уже сериализованное сообщение с заголовком ERROR_REPLY_HEADER
+     */
+    static boolean isErrorReply(Object reply) {
+        if (reply instanceof Map<?, ?> map) {
+            return Boolean.FALSE.equals(map.get("success")) || "error".equals(map.get("action"));
+        }
+        if (reply instanceof Message<?> message) {
+            return Boolean.TRUE.equals(message.getHeaders().get(ERROR_REPLY_HEADER));
+        }
+        return false;
+    }
+
+    /**
+     * Значение тега назначения: нормализованное известное назначение или other
+     */
+    String tagOf(String destination) {
+        if (destination == null) {
+            return "none";
+        }
+        String normalized = normalize(destination);
+        return knownDestinations.contains(normalized) ? normalized : OTHER_DESTINATION;
+    }
+
+    /**
+     * Нормализация назначения: сегменты с цифрами и переменные шаблона заменяются на {id},
+     * а имя пользователя в /user/{name}/queue/... убирается - так назначение совпадает
+     * с подпиской клиента /user/queue/...
+     */
+    static String normalize(String destination) {
+        if (destination == null) {
+            return "none";
+        }
+        String[] segments = destination.split("/");
+        boolean userName = segments.length > 3 && "user".equals(segments[1])
+                && !"queue".equals(segments[2]) && !"topic".equals(segments[2]);
+        StringBuilder normalized = new StringBuilder(destination.length());
+        for (int i = 1; i < segments.length; i++) {
+            if (userName && i == 2) {
+                continue;
+            }
+            String segment = segments[i];
+            boolean variable = segment.startsWith("{") && segment.endsWith("}");
+            normalized.append('/').append(variable || containsDigit(segment) ? "{id}" : segment);
+        }
+        return normalized.length() == 0 ? "/" : normalized.toString();
+    }
+
+    private AtomicInteger destinationCounter(String destination) {
+        return subscriptionsByDestination.computeIfAbsent(destination, d -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("stomp.subscriptions.destination", counter, AtomicInteger::get)
+                    .description("Активные подписки по назначению")
+                    .tag("destination", d)
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    private static boolean containsDigit(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (Character.isDigit(segment.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
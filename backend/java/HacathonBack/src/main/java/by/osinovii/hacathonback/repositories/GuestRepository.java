@@ -1,14 +1,29 @@
 package by.osinovii.hacathonback.repositories;
 
 import by.osinovii.hacathonback.entities.Guest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface GuestRepository extends JpaRepository<Guest, Long> {
     List<Guest> findByLastName(String lastName);
 
-    List<Guest> findByCheckInDate(java.time.LocalDate date);
-}
\ No newline at end of file
+    List<Guest> findByCheckInDate(LocalDate date);
+
+    List<Guest> findByCheckOutDate(LocalDate date);
+
+    List<Guest> findByCheckInDateBetween(LocalDate from, LocalDate to);
+
+    List<Guest> findByCheckOutDateBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Страница гостей после указанного ID (keyset-пагинация), комната загружается тем же запросом
+     */
+    @EntityGraph(attributePaths = "room")
+    List<Guest> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+}
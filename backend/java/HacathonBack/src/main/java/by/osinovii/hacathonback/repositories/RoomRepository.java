@@ -1,12 +1,45 @@
 package by.osinovii.hacathonback.repositories;
 
 import by.osinovii.hacathonback.entities.Room;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
     Optional<Room> findByRoomNumber(String name);
 
     Optional<Room> findByStatus(String status);
+
+    List<Room> findByRoomNumberIn(Collection<String> roomNumbers);
+
+    /**
+     * Страница комнат после указанного ID (keyset-пагинация)
+     */
+    List<Room> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Атомарный захват свободной комнаты одним условным UPDATE.
+     * Возвращает 1, если комната была AVAILABLE и стала OCCUPIED, иначе 0.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Room r set r.status = 'OCCUPIED', r.version = r.version + 1, r.updatedAt = :now " +
+            "where r.roomNumber = :roomNumber and r.status = 'AVAILABLE'")
+    int claimAvailableRoom(@Param("roomNumber") String roomNumber, @Param("now") OffsetDateTime now);
+
+    /**
+     * Групповой захват свободных комнат одним UPDATE.
+     * Возвращает количество комнат, переведенных из AVAILABLE в OCCUPIED.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Room r set r.status = 'OCCUPIED', r.version = r.version + 1, r.updatedAt = :now " +
+            "where r.roomNumber in :roomNumbers and r.status = 'AVAILABLE'")
+    int claimAvailableRooms(@Param("roomNumbers") Collection<String> roomNumbers, @Param("now") OffsetDateTime now);
 }
+
@@ -0,0 +1,25 @@
+package by.osinovii.hacathonback.repositories;
+
+import by.osinovii.hacathonback.entities.TelemetryRollup;
+import by.osinovii.hacathonback.telemetry.Resolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TelemetryRollupRepository extends JpaRepository<TelemetryRollup, Long> {
+
+    /**
+     * Блоки комнаты одного разрешения, начинающиеся в диапазоне (поиск по уникальному индексу)
+     */
+    List<TelemetryRollup> findByRoomNumberAndResolutionAndBlockStartBetweenOrderByBlockStartAsc(
+            String roomNumber, Resolution resolution, Long fromBlockStart, Long toBlockStart);
+
+    /**
+     * Уже сохраненные блоки для пакета комнат с одинаковым началом блока
+     */
+    List<TelemetryRollup> findByResolutionAndBlockStartAndRoomNumberIn(
+            Resolution resolution, Long blockStart, Collection<String> roomNumbers);
+}
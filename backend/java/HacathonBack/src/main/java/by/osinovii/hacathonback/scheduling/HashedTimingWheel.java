@@ -0,0 +1,200 @@
+package by.osinovii.hacathonback.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хешированное колесо таймеров для большого числа периодических задач (по задаче на комнату).
+ * Таймер попадает в ячейку колеса по номеру тика срабатывания; за тик обрабатывается одна ячейка,
+ * поэтому стоимость тика не зависит от общего числа таймеров.
+ *
+ * Таймеры создаются один раз и переиспользуются: перепланирование лишь переставляет узел
+ * между списками ячеек и не создает объектов. Задачи выполняются в потоке колеса
+ * и должны быть короткими (например, отправлять команды асинхронно).
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    // Голова списка таймеров каждой ячейки (узлы связаны через Timer.prev/next)
+    private final Timer[] buckets;
+    // Таймеры планируются и из виртуальных потоков обработчиков, поэтому не монитор
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long currentTick;
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Переиспользуемый таймер. Одновременно запланирован не больше одного раза:
+     * повторный schedule переносит срок срабатывания
+     */
+    public final class Timer {
+        private final Runnable task;
+        private long deadlineTick;
+        private int bucket = -1;
+        private Timer prev;
+        private Timer next;
+        // Связь в списке таймеров, сработавших за тик
+        private Timer nextExpired;
+
+        private Timer(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Запуск через delayMillis (округляется вверх до тика, не меньше одного тика)
+         */
+        public void schedule(long delayMillis) {
+            long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+            lock.lock();
+            try {
+                unlink(this);
+                link(this, currentTick + ticks);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void cancel() {
+            lock.lock();
+            try {
+                unlink(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isScheduled() {
+            lock.lock();
+            try {
+                return bucket >= 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Размер колеса должен быть степенью двойки");
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new Timer[wheelSize];
+    }
+
+    public Timer newTimer(Runnable task) {
+        return new Timer(task);
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Запуск потока колеса (поток-демон)
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Обработка следующего тика: сработавшие таймеры снимаются с колеса и выполняются
+     * вне блокировки, поэтому задача может перепланировать свой таймер
+     */
+    public void tick() {
+        Timer expired = null;
+        lock.lock();
+        try {
+            long tick = ++currentTick;
+            Timer timer = buckets[(int) (tick & mask)];
+            while (timer != null) {
+                Timer next = timer.next;
+                if (timer.deadlineTick <= tick) {
+                    unlink(timer);
+                    timer.nextExpired = expired;
+                    expired = timer;
+                }
+                timer = next;
+            }
+        } finally {
+            lock.unlock();
+        }
+        while (expired != null) {
+            Timer timer = expired;
+            expired = timer.nextExpired;
+            timer.nextExpired = null;
+            try {
+                timer.task.run();
+            } catch (Exception e) {
+                log.warn("Ошибка задачи колеса таймеров {}", name, e);
+            }
+        }
+    }
+
+    private void run() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        long nextTickNanos = System.nanoTime() + tickNanos;
+        while (running) {
+            long waitNanos = nextTickNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            // Если поток отстал, пропущенные тики обрабатываются подряд
+            tick();
+            nextTickNanos += tickNanos;
+        }
+    }
+
+    private void link(Timer timer, long deadlineTick) {
+        int index = (int) (deadlineTick & mask);
+        timer.deadlineTick = deadlineTick;
+        timer.bucket = index;
+        timer.prev = null;
+        timer.next = buckets[index];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        buckets[index] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.bucket < 0) {
+            return;
+        }
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[timer.bucket] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.bucket = -1;
+    }
+}
@@ -2,14 +2,13 @@ package by.osinovii.hacathonback.services;
 
 import by.osinovii.hacathonback.entities.Admin;
 import by.osinovii.hacathonback.entities.Guest;
-import by.osinovii.hacathonback.entities.Room;
 import by.osinovii.hacathonback.repositories.AdminRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,45 +18,44 @@ import java.util.Optional;
 @RequiredArgsConstructor
 @Slf4j
 public class AdminService {
+    // Максимальная глубина отчета по заездам и выездам
+    private static final int MAX_REPORT_DAYS = 31;
+
     private final AdminRepository adminRepository;
     private final GuestService guestService;
     private final RoomService roomService;
+    private final HotelStatsService hotelStatsService;
 
     /**
      * Получение статистики отеля
      */
     public Map<String, Object> getHotelStats() {
         log.info("Запрос статистики отеля");
-        List<Guest> guests = guestService.getAllGuests();
-        List<Room> rooms = roomService.getAllRooms();
-        
-        long availableRooms = rooms.stream()
-                .filter(room -> "AVAILABLE".equals(room.getStatus()))
-                .count();
-        long occupiedRooms = rooms.stream()
-                .filter(room -> "OCCUPIED".equals(room.getStatus()))
-                .count();
-        long maintenanceRooms = rooms.stream()
-                .filter(room -> "MAINTENANCE".equals(room.getStatus()))
-                .count();
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalGuests", guests.size());
-        stats.put("totalRooms", rooms.size());
-        stats.put("availableRooms", availableRooms);
-        stats.put("occupiedRooms", occupiedRooms);
-        stats.put("maintenanceRooms", maintenanceRooms);
-        stats.put("occupancyRate", 
-                rooms.isEmpty() ? 0 : 
-                    (double) occupiedRooms / rooms.size() * 100);
+        return hotelStatsService.getStatsSnapshot();
+    }
+    
+    /**
+     * Отчет для службы уборки: заезды и выезды по дням на ближайшие days дней, начиная с сегодня
+     */
+    public List<Map<String, Object>> getHousekeepingReport(int days) {
+        log.info("Запрос отчета по заездам и выездам на {} дн.", days);
         
-        // Дополнительная статистика для администраторов
-        stats.put("averageStayDuration", calculateAverageStay(guests));
-        stats.put("guestsCheckingOutToday", countGuestsCheckingOutToday(guests));
-        stats.put("guestsCheckedInToday", countGuestsCheckedInToday(guests));
-        stats.put("totalRevenue", calculateTotalRevenue(guests));
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(Math.min(Math.max(days, 1), MAX_REPORT_DAYS) - 1);
+        Map<LocalDate, List<Map<String, Object>>> arrivalsByDate = groupByDate(
+                guestService.getArrivals(from, to), true);
+        Map<LocalDate, List<Map<String, Object>>> departuresByDate = groupByDate(
+                guestService.getDepartures(from, to), false);
         
-        return stats;
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Map<String, Object> day = new HashMap<>();
+            day.put("date", date.toString());
+            day.put("arrivals", arrivalsByDate.getOrDefault(date, List.of()));
+            day.put("departures", departuresByDate.getOrDefault(date, List.of()));
+            report.add(day);
+        }
+        return report;
     }
     
     /**
@@ -126,43 +124,18 @@ public class AdminService {
     }
     
     /**
-     * Вспомогательные методы для статистики
+     * Группировка гостей по дате заезда или выезда для отчета
      */
-    private double calculateAverageStay(List<Guest> guests) {
-        return guests.stream()
-                .mapToLong(guest -> {
-                    LocalDate checkIn = guest.getCheckInDate();
-                    LocalDate checkOut = guest.getCheckOutDate();
-                    return java.time.temporal.ChronoUnit.DAYS.between(checkIn, checkOut);
-                })
-                .average()
-                .orElse(0);
-    }
-
-    private int countGuestsCheckingOutToday(List<Guest> guests) {
-        LocalDate today = LocalDate.now();
-        return (int) guests.stream()
-                .filter(guest -> guest.getCheckOutDate().equals(today))
-                .count();
-    }
-
-    private int countGuestsCheckedInToday(List<Guest> guests) {
-        LocalDate today = LocalDate.now();
-        return (int) guests.stream()
-                .filter(guest -> guest.getCheckInDate().equals(today))
-                .count();
-    }
-
-    private BigDecimal calculateTotalRevenue(List<Guest> guests) {
-        return guests.stream()
-                .map(guest -> {
-                    Room room = guest.getRoom();
-                    BigDecimal pricePerNight = room.getPricePerNight();
-                    long nights = java.time.temporal.ChronoUnit.DAYS.between(
-                            guest.getCheckInDate(), 
-                            guest.getCheckOutDate());
-                    return pricePerNight.multiply(BigDecimal.valueOf(nights));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private Map<LocalDate, List<Map<String, Object>>> groupByDate(List<Guest> guests, boolean byCheckIn) {
+        Map<LocalDate, List<Map<String, Object>>> result = new HashMap<>();
+        for (Guest guest : guests) {
+            LocalDate date = byCheckIn ? guest.getCheckInDate() : guest.getCheckOutDate();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("guestId", guest.getId());
+            entry.put("guestName", guest.getFirstName() + " " + guest.getLastName());
+            entry.put("roomNumber", guest.getRoom().getRoomNumber());
+            result.computeIfAbsent(date, d -> new ArrayList<>()).add(entry);
+        }
+        return result;
     }
 }
@@ -2,17 +2,26 @@ package by.osinovii.hacathonback.services;
 
 import by.osinovii.hacathonback.entities.Guest;
 import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.GuestSearchIndex;
+import by.osinovii.hacathonback.index.GuestStayIndex;
+import by.osinovii.hacathonback.index.IndexSync;
 import by.osinovii.hacathonback.repositories.GuestRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,38 +30,78 @@ import java.util.stream.Collectors;
 public class GuestService {
     private final GuestRepository guestRepository;
     private final RoomService roomService;
+    private final GuestSearchIndex guestSearchIndex;
+    private final GuestStayIndex guestStayIndex;
+    private final HotelStatsService hotelStatsService;
+
+    // Ограничение размера группового заселения/выселения за один запрос
+    public static final int MAX_BULK_SIZE = 500;
+
+    /**
+     * Данные одного гостя для группового заселения
+     */
+    public record CheckInRequest(String firstName, String lastName, String email, String phone,
+                                 String roomNumber, LocalDate checkOutDate) {
+    }
 
     public List<Guest> getAllGuests() {
         return guestRepository.findAll();
     }
 
+    /**
+     * Страница гостей по возрастанию ID, начиная после afterId (null - с начала)
+     */
+    public List<Guest> getGuestsPage(Long afterId, int pageSize) {
+        return guestRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(pageSize));
+    }
+
     public Optional<Guest> findGuestById(Long id) {
         return guestRepository.findById(id);
     }
 
     public Guest saveGuest(Guest guest) {
-        return guestRepository.save(guest);
+        Guest savedGuest = guestRepository.save(guest);
+        IndexSync.afterCommit(() -> {
+            guestSearchIndex.put(savedGuest);
+            guestStayIndex.put(savedGuest);
+        });
+        return savedGuest;
+    }
+    
+    /**
+     * Перестраивает индексы гостей по данным из БД
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        log.info("Загрузка индексов гостей");
+        List<Guest> guests = guestRepository.findAll();
+        guestSearchIndex.rebuild(guests);
+        guestStayIndex.rebuild(guests);
     }
     
     /**
-     * Заселение нового гостя
+     * Заселение нового гостя.
+     * Комната захватывается одним условным UPDATE (AVAILABLE -> OCCUPIED), поэтому
+     * при одновременном заселении в одну комнату успешен только один запрос,
+     * остальные сразу получают ошибку без повторных попыток.
      */
+    @Transactional
     public Guest checkInGuest(String firstName, String lastName, String email, String phone, 
                               String roomNumber, LocalDate checkOutDate) {
         log.info("Заселение нового гостя {} {} в комнату {}", firstName, lastName, roomNumber);
         
-        // Поиск комнаты
-        Optional<Room> roomOpt = roomService.findRoomByNumber(roomNumber);
-        if (roomOpt.isEmpty()) {
-            throw new RuntimeException("Комната с номером " + roomNumber + " не найдена");
+        // Атомарный захват комнаты
+        Optional<Room> claimedRoom = roomService.claimAvailableRoom(roomNumber);
+        if (claimedRoom.isEmpty()) {
+            // Причину отказа определяем по реестру, без дополнительных запросов к БД
+            Optional<Room> roomOpt = roomService.findRoomByNumber(roomNumber);
+            if (roomOpt.isEmpty()) {
+                throw new RuntimeException("Комната с номером " + roomNumber + " не найдена");
+            }
+            throw new RuntimeException("Комната " + roomNumber + " недоступна для заселения (текущий статус: " + roomOpt.get().getStatus() + ")");
         }
         
-        Room room = roomOpt.get();
-        
-        // Проверка доступности комнаты
-        if (!"AVAILABLE".equals(room.getStatus())) {
-            throw new RuntimeException("Комната " + roomNumber + " недоступна для заселения (текущий статус: " + room.getStatus() + ")");
-        }
+        Room room = claimedRoom.get();
         
         // Создание нового гостя
         Guest newGuest = new Guest();
@@ -69,17 +118,113 @@ public class GuestService {
         
         // Сохранение гостя
         Guest savedGuest = saveGuest(newGuest);
-        
-        // Обновление статуса комнаты
-        room.setStatus("OCCUPIED");
-        roomService.saveRoom(room);
+        IndexSync.afterCommit(() -> hotelStatsService.onGuestCheckedIn(savedGuest));
         
         return savedGuest;
     }
     
     /**
-     * Выселение гостя
+     * Групповое заселение (например, туристической группы).
+     * Все комнаты группы захватываются одним UPDATE, гости сохраняются пакетной вставкой
+     * в одной транзакции: если хотя бы одна комната недоступна, не заселяется никто.
+     * Несколько гостей могут заселяться в одну комнату.
+     */
+    @Transactional
+    public List<Guest> checkInGuests(List<CheckInRequest> requests) {
+        checkBulkSize(requests);
+        log.info("Групповое заселение {} гостей", requests.size());
+        
+        Map<String, Room> rooms = roomService.claimAvailableRooms(
+                requests.stream().map(CheckInRequest::roomNumber).toList());
+        
+        LocalDate today = LocalDate.now();
+        List<Guest> newGuests = new ArrayList<>(requests.size());
+        for (CheckInRequest request : requests) {
+            Guest newGuest = new Guest();
+            newGuest.setFirstName(request.firstName());
+            newGuest.setLastName(request.lastName());
+            newGuest.setEmail(request.email());
+            newGuest.setPhone(request.phone());
+            newGuest.setRoom(rooms.get(request.roomNumber()));
+            newGuest.setCheckInDate(today);
+            newGuest.setCheckOutDate(request.checkOutDate() != null ? request.checkOutDate() : today.plusDays(3));
+            newGuests.add(newGuest);
+        }
+        
+        List<Guest> savedGuests = guestRepository.saveAll(newGuests);
+        IndexSync.afterCommit(() -> savedGuests.forEach(guest -> {
+            guestSearchIndex.put(guest);
+            guestStayIndex.put(guest);
+            hotelStatsService.onGuestCheckedIn(guest);
+        }));
+        return savedGuests;
+    }
+    
+    /**
+     * Групповое выселение в одной транзакции.
+     * Если хотя бы один гость не найден, не выселяется никто.
+     * Возвращает информацию о выселении по каждому гостю.
+     */
+    @Transactional
+    public List<Map<String, Object>> checkOutGuests(List<Long> guestIds) {
+        checkBulkSize(guestIds);
+        log.info("Групповое выселение {} гостей", guestIds.size());
+        
+        Map<Long, Guest> guests = guestRepository.findAllById(guestIds).stream()
+                .collect(Collectors.toMap(Guest::getId, Function.identity()));
+        List<Long> missing = guestIds.stream().filter(id -> !guests.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Гости с ID " + missing + " не найдены");
+        }
+        
+        LocalDate today = LocalDate.now();
+        Map<Long, LocalDate> previousCheckOutDates = new HashMap<>();
+        Map<Long, Room> rooms = new LinkedHashMap<>();
+        List<Map<String, Object>> checkouts = new ArrayList<>(guests.size());
+        for (Guest guest : guests.values()) {
+            previousCheckOutDates.put(guest.getId(), guest.getCheckOutDate());
+            guest.setCheckOutDate(today);
+            rooms.put(guest.getRoom().getId(), guest.getRoom());
+            
+            Map<String, Object> checkoutInfo = new HashMap<>();
+            checkoutInfo.put("guestId", guest.getId());
+            checkoutInfo.put("guestName", guest.getFirstName() + " " + guest.getLastName());
+            checkoutInfo.put("roomId", guest.getRoom().getId());
+            checkoutInfo.put("roomNumber", guest.getRoom().getRoomNumber());
+            checkoutInfo.put("checkOutDate", today.toString());
+            checkouts.add(checkoutInfo);
+        }
+        
+        List<Guest> savedGuests = guestRepository.saveAll(guests.values());
+        
+        // Каждая комната освобождается один раз, даже если в ней жили несколько гостей группы
+        for (Room room : rooms.values()) {
+            room.setStatus("AVAILABLE");
+            roomService.saveRoom(room);
+        }
+        
+        IndexSync.afterCommit(() -> savedGuests.forEach(guest -> {
+            guestSearchIndex.put(guest);
+            guestStayIndex.put(guest);
+            hotelStatsService.onCheckOutDateChanged(guest, previousCheckOutDates.get(guest.getId()));
+        }));
+        return checkouts;
+    }
+    
+    private static void checkBulkSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Список гостей пуст");
+        }
+        if (items.size() > MAX_BULK_SIZE) {
+            throw new RuntimeException("Слишком много гостей в одном запросе (максимум " + MAX_BULK_SIZE + ")");
+        }
+    }
+    
+    /**
+     * Выселение гостя. Гость и комната сохраняются в одной транзакции: если комнату
+     * одновременно изменил другой запрос, выселение откатывается целиком
      */
+    @Transactional
     public Map<String, Object> checkOutGuest(Long guestId) {
         log.info("Выселение гостя с ID {}", guestId);
         
@@ -93,8 +238,10 @@ public class GuestService {
         Room room = guest.getRoom();
         
         // Обновление даты выселения
+        LocalDate previousCheckOutDate = guest.getCheckOutDate();
         guest.setCheckOutDate(LocalDate.now());
-        saveGuest(guest);
+        Guest savedGuest = saveGuest(guest);
+        IndexSync.afterCommit(() -> hotelStatsService.onCheckOutDateChanged(savedGuest, previousCheckOutDate));
         
         // Обновление статуса комнаты
         room.setStatus("AVAILABLE");
@@ -114,6 +261,7 @@ public class GuestService {
     /**
      * Продление проживания гостя
      */
+    @Transactional
     public Guest extendStay(Long guestId, LocalDate newCheckOutDate) {
         log.info("Продление проживания гостя с ID {} до {}", guestId, newCheckOutDate);
         
@@ -130,8 +278,11 @@ public class GuestService {
         }
         
         // Обновление даты выезда
+        LocalDate previousCheckOutDate = guest.getCheckOutDate();
         guest.setCheckOutDate(newCheckOutDate);
-        return saveGuest(guest);
+        Guest savedGuest = saveGuest(guest);
+        IndexSync.afterCommit(() -> hotelStatsService.onCheckOutDateChanged(savedGuest, previousCheckOutDate));
+        return savedGuest;
     }
     
     /**
@@ -139,9 +290,7 @@ public class GuestService {
      */
     public List<Guest> getGuestsCheckedInToday() {
         LocalDate today = LocalDate.now();
-        return getAllGuests().stream()
-                .filter(guest -> guest.getCheckInDate().equals(today))
-                .collect(Collectors.toList());
+        return getArrivals(today, today);
     }
     
     /**
@@ -149,9 +298,27 @@ public class GuestService {
      */
     public List<Guest> getGuestsCheckingOutToday() {
         LocalDate today = LocalDate.now();
-        return getAllGuests().stream()
-                .filter(guest -> guest.getCheckOutDate().equals(today))
-                .collect(Collectors.toList());
+        return getDepartures(today, today);
+    }
+    
+    /**
+     * Получение гостей, заезжающих в диапазоне дат (включительно)
+     */
+    public List<Guest> getArrivals(LocalDate from, LocalDate to) {
+        if (!guestStayIndex.isLoaded()) {
+            return guestRepository.findByCheckInDateBetween(from, to);
+        }
+        return loadInOrder(guestStayIndex.arrivalsBetween(from, to));
+    }
+    
+    /**
+     * Получение гостей, выезжающих в диапазоне дат (включительно)
+     */
+    public List<Guest> getDepartures(LocalDate from, LocalDate to) {
+        if (!guestStayIndex.isLoaded()) {
+            return guestRepository.findByCheckOutDateBetween(from, to);
+        }
+        return loadInOrder(guestStayIndex.departuresBetween(from, to));
     }
     
     /**
@@ -167,39 +334,40 @@ public class GuestService {
      * Поиск гостей по параметрам
      */
     public List<Guest> searchGuests(String searchTerm, String searchField) {
-        List<Guest> guests = getAllGuests();
-        
-        // Выбор поля для поиска
-        switch (searchField) {
-            case "lastName":
-                return guests.stream()
-                        .filter(g -> g.getLastName().toLowerCase().contains(searchTerm.toLowerCase()))
-                        .collect(Collectors.toList());
-            case "firstName":
-                return guests.stream()
-                        .filter(g -> g.getFirstName().toLowerCase().contains(searchTerm.toLowerCase()))
-                        .collect(Collectors.toList());
-            case "email":
-                return guests.stream()
-                        .filter(g -> g.getEmail() != null && g.getEmail().toLowerCase().contains(searchTerm.toLowerCase()))
-                        .collect(Collectors.toList());
-            case "phone":
-                return guests.stream()
-                        .filter(g -> g.getPhone() != null && g.getPhone().contains(searchTerm))
-                        .collect(Collectors.toList());
-            case "roomNumber":
-                return guests.stream()
-                        .filter(g -> g.getRoom().getRoomNumber().contains(searchTerm))
-                        .collect(Collectors.toList());
-            default:
-                return guests.stream()
-                        .filter(g -> 
-                                g.getLastName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                g.getFirstName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                (g.getEmail() != null && g.getEmail().toLowerCase().contains(searchTerm.toLowerCase())) ||
-                                (g.getPhone() != null && g.getPhone().contains(searchTerm))
-                        )
-                        .collect(Collectors.toList());
+        return searchGuests(searchTerm, searchField, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Поиск гостей по параметрам с ограничением количества результатов.
+     * Результаты отсортированы по релевантности (полное совпадение, префикс, подстрока).
+     */
+    public List<Guest> searchGuests(String searchTerm, String searchField, int limit) {
+        if (!guestSearchIndex.isLoaded()) {
+            rebuildIndexes();
+        }
+        
+        List<Long> rankedIds = guestSearchIndex.search(searchTerm, searchField, limit);
+        
+        // Загружаем только найденных гостей в порядке ранжирования
+        return loadInOrder(rankedIds);
+    }
+    
+    /**
+     * Загрузка гостей по списку ID с сохранением порядка списка
+     */
+    private List<Guest> loadInOrder(List<Long> guestIds) {
+        if (guestIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Guest> guestsById = guestRepository.findAllById(guestIds).stream()
+                .collect(Collectors.toMap(Guest::getId, Function.identity()));
+        List<Guest> result = new ArrayList<>(guestIds.size());
+        for (Long guestId : guestIds) {
+            Guest guest = guestsById.get(guestId);
+            if (guest != null) {
+                result.add(guest);
+            }
         }
+        return result;
     }
 }
@@ -1,12 +1,22 @@
 package by.osinovii.hacathonback.services;
 
+import by.osinovii.hacathonback.climate.ClimateControlService;
+import by.osinovii.hacathonback.iot.IoTAction;
+import by.osinovii.hacathonback.iot.IoTCommandSupersededException;
+import by.osinovii.hacathonback.iot.IoTGateway;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import by.osinovii.hacathonback.telemetry.TelemetryStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Сервис для управления симуляцией IoT-устройств и другими функциями отеля
@@ -18,65 +28,119 @@ public class HotelService {
     
     private final GuestService guestService;
     private final RoomService roomService;
+    private final IoTGateway ioTGateway;
+    private final TelemetryService telemetryService;
+    private final ClimateControlService climateControlService;
     
     /**
-     * Симуляция открытия двери
+     * Открытие двери через шлюз IoT; ответ готов, когда устройство ответит или истечет таймаут шлюза
      */
-    public Map<String, Object> simulateDoorOpen(Long guestId, String roomNumber) {
-        log.info("Симуляция открытия двери для гостя с ID {} в комнате {}", guestId, roomNumber);
+    public CompletableFuture<Map<String, Object>> simulateDoorOpen(Long guestId, String roomNumber) {
+        log.info("Открытие двери для гостя с ID {} в комнате {}", guestId, roomNumber);
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "Дверь комнаты " + roomNumber + " успешно открыта");
-        response.put("doorStatus", "OPEN");
-        response.put("timestamp", LocalDateTime.now().toString());
-        
-        return response;
+        return execute(guestId, roomNumber, IoTAction.DOOR_OPEN, 0,
+                "Дверь комнаты " + roomNumber + " успешно открыта")
+                .thenApply(response -> {
+                    response.put("doorStatus", Boolean.TRUE.equals(response.get("success")) ? "OPEN" : "UNKNOWN");
+                    return response;
+                });
     }
     
     /**
-     * Симуляция закрытия двери
+     * Закрытие двери через шлюз IoT; ответ готов, когда устройство ответит или истечет таймаут шлюза
      */
-    public Map<String, Object> simulateDoorClose(Long guestId, String roomNumber) {
-        log.info("Симуляция закрытия двери для гостя с ID {} в комнате {}", guestId, roomNumber);
+    public CompletableFuture<Map<String, Object>> simulateDoorClose(Long guestId, String roomNumber) {
+        log.info("Закрытие двери для гостя с ID {} в комнате {}", guestId, roomNumber);
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "Дверь комнаты " + roomNumber + " успешно закрыта");
-        response.put("doorStatus", "CLOSED");
-        response.put("timestamp", LocalDateTime.now().toString());
-        
-        return response;
+        return execute(guestId, roomNumber, IoTAction.DOOR_CLOSE, 0,
+                "Дверь комнаты " + roomNumber + " успешно закрыта")
+                .thenApply(response -> {
+                    response.put("doorStatus", Boolean.TRUE.equals(response.get("success")) ? "CLOSED" : "UNKNOWN");
+                    return response;
+                });
     }
     
     /**
-     * Получение статуса климатической системы (симуляция)
+     * Статус климатической системы: показания датчиков и состояние контура регулирования
      */
     public Map<String, Object> getClimateStatus(Long guestId, String roomNumber) {
         log.info("Запрос статуса климатической системы для гостя с ID {} в комнате {}", guestId, roomNumber);
         
         Map<String, Object> climateStatus = new HashMap<>();
-        climateStatus.put("temperature", 22.5);
-        climateStatus.put("humidity", 45);
         climateStatus.put("mode", "AUTO");
         climateStatus.put("isOn", true);
+        climateControlService.getStatus(roomNumber).ifPresent(control -> {
+            climateStatus.put("setpoint", control.setpoint());
+            climateStatus.put("controlMode", control.mode());
+            climateStatus.put("eco", control.eco());
+        });
+        
+        Optional<TelemetryStore.Climate> climate = telemetryService.getClimate(roomNumber);
+        if (climate.isPresent()) {
+            // Последние показания датчиков комнаты и изменение за час
+            TelemetryStore.Climate reading = climate.get();
+            climateStatus.put("temperature", reading.temperature());
+            climateStatus.put("humidity", reading.humidity());
+            climateStatus.put("pressure", reading.pressure());
+            climateStatus.put("temperatureTrend", reading.temperaturePerHour());
+            climateStatus.put("humidityTrend", reading.humidityPerHour());
+            climateStatus.put("lastUpdate", Instant.ofEpochMilli(reading.timeMillis()).toString());
+        } else {
+            // Устройство комнаты еще не присылало показаний
+            climateStatus.put("temperature", 22.5);
+            climateStatus.put("humidity", 45);
+            climateStatus.put("lastUpdate", null);
+        }
         
         return climateStatus;
     }
     
     /**
-     * Установка температуры в комнате (симуляция)
+     * Установка температуры в комнате: новая уставка контура регулирования
+     * и команда термостату комнаты через шлюз IoT
      */
-    public Map<String, Object> setTemperature(Long guestId, String roomNumber, double temperature) {
+    public CompletableFuture<Map<String, Object>> setTemperature(Long guestId, String roomNumber, double temperature) {
         log.info("Установка температуры {}°C для гостя с ID {} в комнате {}", temperature, guestId, roomNumber);
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("message", "Температура в комнате " + roomNumber + " установлена на " + temperature + "°C");
-        response.put("temperature", temperature);
-        response.put("timestamp", LocalDateTime.now().toString());
+        ClimateControlService.ControlStatus control = climateControlService.setSetpoint(roomNumber, temperature);
         
-        return response;
+        return execute(guestId, roomNumber, IoTAction.SET_TEMPERATURE, temperature,
+                "Температура в комнате " + roomNumber + " установлена на " + temperature + "°C")
+                .thenApply(response -> {
+                    response.put("temperature", temperature);
+                    response.put("controlMode", control.mode());
+                    response.put("eco", control.eco());
+                    return response;
+                });
+    }
+    
+    /**
+     * Отправка команды устройству комнаты. Поток обработчика не ждет устройство: ответ собирается,
+     * когда шлюз завершит команду (ответ устройства, отказ или таймаут шлюза), и будущее всегда
+     * завершается успешно. Запрос гостя, команда и ее результат записываются в журнал событий
+     * шлюзом (DeviceEventRecorder)
+     */
+    private CompletableFuture<Map<String, Object>> execute(Long guestId, String roomNumber, IoTAction action,
+                                                           double value, String successMessage) {
+        return ioTGateway.submit(roomNumber, action, value, guestId == null ? 0 : guestId)
+                .handle((result, error) -> {
+                    Map<String, Object> response = new HashMap<>();
+                    if (error == null) {
+                        response.put("success", result.success());
+                        response.put("message", result.success()
+                                ? successMessage
+                                : "Устройство комнаты " + roomNumber + " отклонило команду: " + result.detail());
+                    } else {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        response.put("success", false);
+                        response.put("message", cause instanceof IoTCommandSupersededException
+                                ? "Команда устройству комнаты " + roomNumber + " отменена более поздней командой"
+                                : "Устройство комнаты " + roomNumber + " не ответило: " + cause);
+                    }
+                    response.put("timestamp", LocalDateTime.now().toString());
+                    return response;
+                });
     }
     
     /**
@@ -0,0 +1,201 @@
+package by.osinovii.hacathonback.services;
+
+import by.osinovii.hacathonback.entities.Guest;
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomPriceIndex;
+import by.osinovii.hacathonback.repositories.GuestRepository;
+import by.osinovii.hacathonback.repositories.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Инкрементальная статистика отеля.
+ * Счетчики обновляются при заселении, выселении, продлении и смене статуса комнаты,
+ * поэтому запрос статистики - это чтение готовых значений без обращения к БД.
+ * Периодическая сверка пересчитывает счетчики по БД и исправляет расхождения.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotelStatsService {
+    private final GuestRepository guestRepository;
+    private final RoomRepository roomRepository;
+
+    private volatile Counters counters = new Counters();
+    private volatile boolean reconciled;
+
+    /**
+     * Набор счетчиков. При сверке заменяется целиком.
+     */
+    private static final class Counters {
+        final Map<String, LongAdder> roomsByStatus = new ConcurrentHashMap<>();
+        final LongAdder totalGuests = new LongAdder();
+        final LongAdder totalNights = new LongAdder();
+        final LongAdder revenueCents = new LongAdder();
+        final Map<Long, LongAdder> checkInsByDay = new ConcurrentHashMap<>();
+        final Map<Long, LongAdder> checkOutsByDay = new ConcurrentHashMap<>();
+        // Ночи по комнатам нужны, чтобы пересчитать выручку при смене цены
+        final Map<Long, LongAdder> nightsByRoom = new ConcurrentHashMap<>();
+
+        void addRoom(String status, long delta) {
+            if (status != null) {
+                adder(roomsByStatus, status).add(delta);
+            }
+        }
+
+        void addStay(Guest guest, long delta) {
+            long nights = ChronoUnit.DAYS.between(guest.getCheckInDate(), guest.getCheckOutDate());
+            totalGuests.add(delta);
+            adder(checkInsByDay, guest.getCheckInDate().toEpochDay()).add(delta);
+            adder(checkOutsByDay, guest.getCheckOutDate().toEpochDay()).add(delta);
+            addNights(guest.getRoom(), nights * delta);
+        }
+
+        void addNights(Room room, long nights) {
+            totalNights.add(nights);
+            adder(nightsByRoom, room.getId()).add(nights);
+            revenueCents.add(nights * priceCents(room));
+        }
+
+        long count(Map<String, LongAdder> map, String key) {
+            LongAdder adder = map.get(key);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        long count(Map<Long, LongAdder> map, long key) {
+            LongAdder adder = map.get(key);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        long totalRooms() {
+            return roomsByStatus.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private static <K> LongAdder adder(Map<K, LongAdder> map, K key) {
+            return map.computeIfAbsent(key, k -> new LongAdder());
+        }
+    }
+
+    /**
+     * Снимок статистики в формате ответа /app/admin/stats
+     */
+    public Map<String, Object> getStatsSnapshot() {
+        Counters current = counters;
+        long totalRooms = current.totalRooms();
+        long totalGuests = current.totalGuests.sum();
+        long occupiedRooms = current.count(current.roomsByStatus, "OCCUPIED");
+        long today = LocalDate.now().toEpochDay();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalGuests", totalGuests);
+        stats.put("totalRooms", totalRooms);
+        stats.put("availableRooms", current.count(current.roomsByStatus, "AVAILABLE"));
+        stats.put("occupiedRooms", occupiedRooms);
+        stats.put("maintenanceRooms", current.count(current.roomsByStatus, "MAINTENANCE"));
+        stats.put("occupancyRate", totalRooms == 0 ? 0 : (double) occupiedRooms / totalRooms * 100);
+        stats.put("averageStayDuration", totalGuests == 0 ? 0 : (double) current.totalNights.sum() / totalGuests);
+        stats.put("guestsCheckingOutToday", current.count(current.checkOutsByDay, today));
+        stats.put("guestsCheckedInToday", current.count(current.checkInsByDay, today));
+        stats.put("totalRevenue", BigDecimal.valueOf(current.revenueCents.sum(), 2));
+        return stats;
+    }
+
+    /**
+     * Комната сохранена: previousStatus - статус до сохранения (null для новой комнаты)
+     */
+    public void onRoomStatusChanged(String previousStatus, String newStatus) {
+        if (previousStatus != null && previousStatus.equals(newStatus)) {
+            return;
+        }
+        Counters current = counters;
+        current.addRoom(previousStatus, -1);
+        current.addRoom(newStatus, 1);
+    }
+
+    /**
+     * Цена комнаты изменилась: выручка пересчитывается по ночам, проданным в этой комнате
+     */
+    public void onRoomPriceChanged(Long roomId, long previousCents, long newCents) {
+        Counters current = counters;
+        LongAdder nights = current.nightsByRoom.get(roomId);
+        if (nights != null) {
+            current.revenueCents.add(nights.sum() * (newCents - previousCents));
+        }
+    }
+
+    /**
+     * Новый гость заселен
+     */
+    public void onGuestCheckedIn(Guest guest) {
+        counters.addStay(guest, 1);
+    }
+
+    /**
+     * Дата выезда гостя изменилась (выселение или продление)
+     */
+    public void onCheckOutDateChanged(Guest guest, LocalDate previousCheckOutDate) {
+        LocalDate newCheckOutDate = guest.getCheckOutDate();
+        if (previousCheckOutDate.equals(newCheckOutDate)) {
+            return;
+        }
+        Counters current = counters;
+        Counters.adder(current.checkOutsByDay, previousCheckOutDate.toEpochDay()).decrement();
+        Counters.adder(current.checkOutsByDay, newCheckOutDate.toEpochDay()).increment();
+        current.addNights(guest.getRoom(), ChronoUnit.DAYS.between(previousCheckOutDate, newCheckOutDate));
+    }
+
+    /**
+     * Сверка счетчиков с БД. Выполняется при старте и периодически.
+     * Изменения, пришедшие во время чтения из БД, могут потеряться до следующей сверки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hotel.stats.reconcile-interval-ms:300000}",
+            fixedDelayString = "${hotel.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        List<Room> rooms = roomRepository.findAll();
+        List<Guest> guests = guestRepository.findAll();
+
+        Counters fresh = new Counters();
+        rooms.forEach(room -> fresh.addRoom(room.getStatus(), 1));
+        guests.forEach(guest -> fresh.addStay(guest, 1));
+
+        Counters current = counters;
+        long today = LocalDate.now().toEpochDay();
+        boolean drift = current.totalRooms() != fresh.totalRooms()
+                || current.totalGuests.sum() != fresh.totalGuests.sum()
+                || current.totalNights.sum() != fresh.totalNights.sum()
+                || current.revenueCents.sum() != fresh.revenueCents.sum()
+                || current.count(current.checkInsByDay, today) != fresh.count(fresh.checkInsByDay, today)
+                || current.count(current.checkOutsByDay, today) != fresh.count(fresh.checkOutsByDay, today)
+                || fresh.roomsByStatus.keySet().stream()
+                        .anyMatch(status -> current.count(current.roomsByStatus, status)
+                                != fresh.count(fresh.roomsByStatus, status));
+
+        if (drift && reconciled) {
+            log.warn("Статистика отеля расходится с БД, счетчики пересчитаны (комнат {}, гостей {})",
+                    rooms.size(), guests.size());
+        }
+        counters = fresh;
+        reconciled = true;
+    }
+
+    private static long priceCents(Room room) {
+        return room.getPricePerNight() == null
+                ? 0
+                : RoomPriceIndex.toCents(room.getPricePerNight(), RoundingMode.HALF_UP);
+    }
+}
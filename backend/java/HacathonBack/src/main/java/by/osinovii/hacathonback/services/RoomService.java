@@ -1,58 +1,216 @@
 package by.osinovii.hacathonback.services;
 
+import by.osinovii.hacathonback.climate.ClimateControlService;
 import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.IndexSync;
+import by.osinovii.hacathonback.index.RoomChangeLog;
+import by.osinovii.hacathonback.index.RoomPriceIndex;
+import by.osinovii.hacathonback.index.RoomRegistry;
 import by.osinovii.hacathonback.repositories.RoomRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.OptionalLong;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RoomService {
     private final RoomRepository roomRepository;
+    private final RoomRegistry roomRegistry;
+    private final HotelStatsService hotelStatsService;
+    private final RoomChangeLog roomChangeLog;
+    private final ClimateControlService climateControlService;
     
     public List<Room> getAllRooms() {
         return roomRepository.findAll();
     }
 
+    /**
+     * Страница комнат по возрастанию ID, начиная после afterId (null - с начала)
+     */
+    public List<Room> getRoomsPage(Long afterId, int pageSize) {
+        return roomRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(pageSize));
+    }
+
     public Room saveRoom(Room room) {
-        return roomRepository.save(room);
+        // Значения до сохранения берем из реестра: сам объект мог быть уже изменен вызывающим кодом
+        Optional<String> previousStatus = roomRegistry.statusOf(room.getId());
+        OptionalLong previousPrice = roomRegistry.priceCentsOf(room.getId());
+        
+        Room savedRoom;
+        try {
+            // Версия проверяется при записи в БД: без flush в транзакции вызывающего кода
+            // конфликт обнаружился бы только при фиксации, уже за пределами этого блока
+            savedRoom = roomRepository.saveAndFlush(room);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Комнату уже изменил другой запрос: убираем устаревшую копию из реестра и не повторяем
+            roomRegistry.evict(room.getId());
+            throw new RuntimeException("Комната " + room.getRoomNumber() + " была изменена другим запросом, повторите операцию", e);
+        }
+        
+        IndexSync.afterCommit(() -> onRoomSaved(savedRoom, previousStatus.orElse(null), previousPrice));
+        return savedRoom;
+    }
+    
+    /**
+     * Атомарно переводит свободную комнату в статус OCCUPIED.
+     * Возвращает занятую комнату или пустой результат, если комната не найдена или уже не свободна.
+     */
+    @Transactional
+    public Optional<Room> claimAvailableRoom(String roomNumber) {
+        if (roomRepository.claimAvailableRoom(roomNumber, OffsetDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        Optional<Room> claimedRoom = roomRepository.findByRoomNumber(roomNumber);
+        claimedRoom.ifPresent(room -> IndexSync.afterCommit(
+                () -> onRoomSaved(room, "AVAILABLE", roomRegistry.priceCentsOf(room.getId()))));
+        return claimedRoom;
+    }
+    
+    /**
+     * Атомарно переводит группу свободных комнат в статус OCCUPIED.
+     * Если хотя бы одна комната не найдена или не свободна, выбрасывает исключение,
+     * и транзакция вызывающего кода откатывает весь захват.
+     * Возвращает занятые комнаты по номеру.
+     */
+    @Transactional
+    public Map<String, Room> claimAvailableRooms(Collection<String> roomNumbers) {
+        Set<String> distinctNumbers = new LinkedHashSet<>(roomNumbers);
+        int claimed = roomRepository.claimAvailableRooms(distinctNumbers, OffsetDateTime.now());
+        if (claimed != distinctNumbers.size()) {
+            // Реестр еще хранит состояние до захвата, по нему определяем причину отказа
+            List<String> rejected = new ArrayList<>();
+            for (String roomNumber : distinctNumbers) {
+                Optional<Room> roomOpt = findRoomByNumber(roomNumber);
+                if (roomOpt.isEmpty()) {
+                    rejected.add(roomNumber + " (не найдена)");
+                } else if (!"AVAILABLE".equals(roomOpt.get().getStatus())) {
+                    rejected.add(roomNumber + " (текущий статус: " + roomOpt.get().getStatus() + ")");
+                }
+            }
+            throw new RuntimeException("Комнаты недоступны для заселения: " + String.join(", ", rejected));
+        }
+        
+        Map<String, Room> rooms = new HashMap<>();
+        for (Room room : roomRepository.findByRoomNumberIn(distinctNumbers)) {
+            rooms.put(room.getRoomNumber(), room);
+            IndexSync.afterCommit(() -> onRoomSaved(room, "AVAILABLE", roomRegistry.priceCentsOf(room.getId())));
+        }
+        return rooms;
+    }
+    
+    /**
+     * Обновление реестра, статистики и контуров климата после сохранения комнаты
+     */
+    private void onRoomSaved(Room savedRoom, String previousStatus, OptionalLong previousPrice) {
+        roomRegistry.put(savedRoom);
+        roomChangeLog.record(savedRoom.getId());
+        climateControlService.onRoomSaved(savedRoom);
+        
+        hotelStatsService.onRoomStatusChanged(previousStatus, savedRoom.getStatus());
+        if (previousPrice.isPresent() && savedRoom.getPricePerNight() != null) {
+            long newPrice = RoomPriceIndex.toCents(savedRoom.getPricePerNight(), RoundingMode.HALF_UP);
+            if (newPrice != previousPrice.getAsLong()) {
+                hotelStatsService.onRoomPriceChanged(savedRoom.getId(), previousPrice.getAsLong(), newPrice);
+            }
+        }
+    }
+    
+    /**
+     * Перестраивает реестр комнат по данным из БД. Выполняется раньше остальных обработчиков
+     * ApplicationReadyEvent: по реестру загружается, например, состояние устройств комнат
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void rebuildRegistry() {
+        log.info("Загрузка реестра комнат");
+        roomRegistry.rebuild(roomRepository.findAll());
+        roomChangeLog.reset();
+    }
+    
+    /**
+     * Изменения комнат после версии sinceVersion для дельта-синхронизации.
+     * Ответ: version - версия, которую клиент передает в следующем запросе;
+     * full - true, если вместо изменений отправлен полный список комнат
+     * (sinceVersion не передан или клиент отстал дальше хранимого журнала);
+     * rooms - измененные комнаты или все комнаты.
+     */
+    public Map<String, Object> getRoomChanges(Long sinceVersion) {
+        Map<String, Object> result = new HashMap<>();
+        Optional<RoomChangeLog.Delta> delta = sinceVersion == null 
+                ? Optional.empty() 
+                : roomChangeLog.changesSince(sinceVersion);
+        
+        if (delta.isPresent()) {
+            List<Room> rooms = new ArrayList<>(delta.get().roomIds().size());
+            for (Long roomId : delta.get().roomIds()) {
+                findRoomById(roomId).ifPresent(rooms::add);
+            }
+            result.put("version", delta.get().version());
+            result.put("full", false);
+            result.put("rooms", rooms);
+        } else {
+            // Версию читаем до снимка: изменения во время чтения придут повторно в следующей дельте
+            result.put("version", roomChangeLog.currentVersion());
+            result.put("full", true);
+            result.put("rooms", getAllRooms());
+        }
+        return result;
     }
     
     /**
      * Находит комнату по ID
      */
     public Optional<Room> findRoomById(Long roomId) {
-        return getAllRooms()
-                .stream()
-                .filter(r -> r.getId().equals(roomId))
-                .findFirst();
+        Optional<Room> cached = roomRegistry.findById(roomId);
+        if (cached.isPresent() || roomId == null) {
+            return cached;
+        }
+        // Комнаты нет в реестре - обращаемся к БД и дополняем реестр
+        Optional<Room> room = roomRepository.findById(roomId);
+        room.ifPresent(roomRegistry::put);
+        return room;
     }
     
     /**
      * Находит комнату по номеру
      */
     public Optional<Room> findRoomByNumber(String roomNumber) {
-        return getAllRooms()
-                .stream()
-                .filter(r -> r.getRoomNumber().equals(roomNumber))
-                .findFirst();
+        Optional<Room> cached = roomRegistry.findByNumber(roomNumber);
+        if (cached.isPresent() || roomNumber == null) {
+            return cached;
+        }
+        Optional<Room> room = roomRepository.findByRoomNumber(roomNumber);
+        room.ifPresent(roomRegistry::put);
+        return room;
     }
     
     /**
      * Получает комнаты по статусу
      */
     public List<Room> getRoomsByStatus(String status) {
-        return getAllRooms()
-                .stream()
-                .filter(room -> room.getStatus().equals(status))
-                .collect(Collectors.toList());
+        ensureRegistryLoaded();
+        return roomRegistry.findByStatus(status);
     }
     
     /**
@@ -73,23 +231,23 @@ public class RoomService {
      * Получает комнаты по типу
      */
     public List<Room> getRoomsByType(String type) {
-        return getAllRooms()
-                .stream()
-                .filter(room -> room.getRoomType().equals(type))
-                .collect(Collectors.toList());
+        ensureRegistryLoaded();
+        return roomRegistry.findByType(type);
     }
     
     /**
      * Получает комнаты по ценовому диапазону
      */
     public List<Room> getRoomsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return getAllRooms()
-                .stream()
-                .filter(room -> {
-                    BigDecimal price = room.getPricePerNight();
-                    return price.compareTo(minPrice) >= 0 && price.compareTo(maxPrice) <= 0;
-                })
-                .collect(Collectors.toList());
+        return getRoomsByPriceRange(minPrice, maxPrice, null, null);
+    }
+    
+    /**
+     * Получает комнаты по ценовому диапазону с необязательным фильтром по типу и статусу
+     */
+    public List<Room> getRoomsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, String roomType, String status) {
+        ensureRegistryLoaded();
+        return roomRegistry.findByPriceRange(minPrice, maxPrice, roomType, status);
     }
     
     /**
@@ -103,7 +261,8 @@ public class RoomService {
             throw new RuntimeException("Комната с ID " + roomId + " не найдена");
         }
         
-        Room room = roomOpt.get();
+        // Изменяем копию: комната из реестра видна другим запросам до фиксации изменений
+        Room room = RoomRegistry.copyOf(roomOpt.get());
         room.setStatus(newStatus);
         return saveRoom(room);
     }
@@ -119,8 +278,14 @@ public class RoomService {
             throw new RuntimeException("Комната с ID " + roomId + " не найдена");
         }
         
-        Room room = roomOpt.get();
+        Room room = RoomRegistry.copyOf(roomOpt.get());
         room.setPricePerNight(newPrice);
         return saveRoom(room);
     }
+    
+    private void ensureRegistryLoaded() {
+        if (!roomRegistry.isLoaded()) {
+            rebuildRegistry();
+        }
+    }
 }
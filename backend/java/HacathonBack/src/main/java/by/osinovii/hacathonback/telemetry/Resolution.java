@@ -0,0 +1,53 @@
+package by.osinovii.hacathonback.telemetry;
+
+/**
+ * Разрешение агрегатов телеметрии.
+ * Агрегаты хранятся блоками: блок - это bucketsPerBlock подряд идущих интервалов одной комнаты,
+ * поэтому выборка за любой период читает лишь несколько строк нужного разрешения.
+ */
+public enum Resolution {
+    MINUTE(60_000L, 60),            // блок - час
+    HOUR(3_600_000L, 24),           // блок - сутки
+    DAY(86_400_000L, 30);           // блок - 30 дней
+
+    private final long bucketMillis;
+    private final int bucketsPerBlock;
+
+    Resolution(long bucketMillis, int bucketsPerBlock) {
+        this.bucketMillis = bucketMillis;
+        this.bucketsPerBlock = bucketsPerBlock;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBucketsPerBlock() {
+        return bucketsPerBlock;
+    }
+
+    public long getBlockMillis() {
+        return bucketMillis * bucketsPerBlock;
+    }
+
+    public long bucketStart(long timeMillis) {
+        return Math.floorDiv(timeMillis, bucketMillis) * bucketMillis;
+    }
+
+    public long blockStart(long timeMillis) {
+        return Math.floorDiv(timeMillis, getBlockMillis()) * getBlockMillis();
+    }
+
+    /**
+     * Самое подробное разрешение, при котором период дает не больше maxPoints интервалов
+     */
+    public static Resolution forWindow(long fromMillis, long toMillis, int maxPoints) {
+        long window = Math.max(toMillis - fromMillis, 0);
+        for (Resolution resolution : values()) {
+            if (window / resolution.bucketMillis <= maxPoints) {
+                return resolution;
+            }
+        }
+        return DAY;
+    }
+}
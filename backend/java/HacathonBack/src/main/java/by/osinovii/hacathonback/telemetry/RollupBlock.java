@@ -0,0 +1,247 @@
+package by.osinovii.hacathonback.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Блок агрегатов одной комнаты: подряд идущие интервалы одного разрешения в колоночном виде.
+ * Для каждого интервала хранятся число показаний и min/max/avg температуры, влажности и давления.
+ *
+ * При сохранении блок кодируется по колонкам: смещения интервалов и числа показаний - разностями
+ * в varint, значения - с точностью 0.01, разностями с предыдущим интервалом в zigzag-varint.
+ * Соседние агрегаты обычно близки, поэтому интервал занимает 10-20 байт.
+ */
+public class RollupBlock {
+
+    public static final int TEMPERATURE = 0;
+    public static final int HUMIDITY = 1;
+    public static final int PRESSURE = 2;
+    public static final int METRICS = 3;
+
+    public static final int MIN = 0;
+    public static final int MAX = 1;
+    public static final int AVG = 2;
+
+    private static final int COLUMNS = METRICS * 3;
+    private static final byte FORMAT_VERSION = 1;
+    private static final float SCALE = 100f;
+
+    private final Resolution resolution;
+    private final long blockStart;
+
+    private int size;
+    private int[] offsets;
+    private int[] counts;
+    private final float[][] columns = new float[COLUMNS][];
+
+    public RollupBlock(Resolution resolution, long blockStart) {
+        this(resolution, blockStart, resolution.getBucketsPerBlock());
+    }
+
+    private RollupBlock(Resolution resolution, long blockStart, int capacity) {
+        this.resolution = resolution;
+        this.blockStart = blockStart;
+        this.offsets = new int[capacity];
+        this.counts = new int[capacity];
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column] = new float[capacity];
+        }
+    }
+
+    public static int column(int metric, int stat) {
+        return metric * 3 + stat;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public long getBlockStart() {
+        return blockStart;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timeAt(int row) {
+        return blockStart + offsets[row] * resolution.getBucketMillis();
+    }
+
+    public int countAt(int row) {
+        return counts[row];
+    }
+
+    public float valueAt(int row, int column) {
+        return columns[column][row];
+    }
+
+    /**
+     * Добавление интервала. Если интервал с таким смещением уже есть, агрегаты объединяются.
+     * values - min/max/avg по метрикам в порядке column(metric, stat)
+     */
+    public void add(int offset, int count, float[] values) {
+        if (offset < 0 || offset >= resolution.getBucketsPerBlock()) {
+            throw new IllegalArgumentException("Смещение интервала вне блока: " + offset);
+        }
+        if (count <= 0) {
+            return;
+        }
+        int row = Arrays.binarySearch(offsets, 0, size, offset);
+        if (row >= 0) {
+            combine(row, count, values);
+            return;
+        }
+        row = -row - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(offsets, row, offsets, row + 1, size - row);
+        System.arraycopy(counts, row, counts, row + 1, size - row);
+        for (float[] column : columns) {
+            System.arraycopy(column, row, column, row + 1, size - row);
+        }
+        offsets[row] = offset;
+        counts[row] = count;
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column][row] = values[column];
+        }
+        size++;
+    }
+
+    /**
+     * Объединение с другим блоком того же разрешения и начала (например, сохраненным ранее)
+     */
+    public RollupBlock merge(RollupBlock other) {
+        if (other.resolution != resolution || other.blockStart != blockStart) {
+            throw new IllegalArgumentException("Объединяются блоки разных интервалов");
+        }
+        float[] values = new float[COLUMNS];
+        for (int row = 0; row < other.size; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                values[column] = other.columns[column][row];
+            }
+            add(other.offsets[row], other.counts[row], values);
+        }
+        return this;
+    }
+
+    public RollupBlock copy() {
+        RollupBlock copy = new RollupBlock(resolution, blockStart, Math.max(size, 1));
+        System.arraycopy(offsets, 0, copy.offsets, 0, size);
+        System.arraycopy(counts, 0, copy.counts, 0, size);
+        for (int column = 0; column < COLUMNS; column++) {
+            System.arraycopy(columns[column], 0, copy.columns[column], 0, size);
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + size * 16);
+        out.write(FORMAT_VERSION);
+        writeVarint(out, size);
+
+        int previous = 0;
+        for (int row = 0; row < size; row++) {
+            writeVarint(out, offsets[row] - previous);
+            previous = offsets[row];
+        }
+        for (int row = 0; row < size; row++) {
+            writeVarint(out, counts[row]);
+        }
+        for (float[] column : columns) {
+            int last = 0;
+            for (int row = 0; row < size; row++) {
+                int value = Math.round(column[row] * SCALE);
+                writeVarint(out, zigzag(value - last));
+                last = value;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static RollupBlock decode(Resolution resolution, long blockStart, byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Неизвестный формат блока телеметрии: " + version);
+        }
+        int size = readVarint(in);
+        RollupBlock block = new RollupBlock(resolution, blockStart, Math.max(size, resolution.getBucketsPerBlock()));
+
+        int offset = 0;
+        for (int row = 0; row < size; row++) {
+            offset += readVarint(in);
+            block.offsets[row] = offset;
+        }
+        for (int row = 0; row < size; row++) {
+            block.counts[row] = readVarint(in);
+        }
+        for (float[] column : block.columns) {
+            int value = 0;
+            for (int row = 0; row < size; row++) {
+                value += unzigzag(readVarint(in));
+                column[row] = value / SCALE;
+            }
+        }
+        block.size = size;
+        return block;
+    }
+
+    private void combine(int row, int count, float[] values) {
+        int total = counts[row] + count;
+        for (int metric = 0; metric < METRICS; metric++) {
+            int min = column(metric, MIN);
+            int max = column(metric, MAX);
+            int avg = column(metric, AVG);
+            columns[min][row] = Math.min(columns[min][row], values[min]);
+            columns[max][row] = Math.max(columns[max][row], values[max]);
+            columns[avg][row] = (columns[avg][row] * counts[row] + values[avg] * count) / total;
+        }
+        counts[row] = total;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        counts = Arrays.copyOf(counts, newCapacity);
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column] = Arrays.copyOf(columns[column], newCapacity);
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Поврежденный блок телеметрии");
+    }
+}
@@ -0,0 +1,123 @@
+package by.osinovii.hacathonback.telemetry;
+
+import java.util.function.Consumer;
+
+/**
+ * Открытые агрегаты одной комнаты по всем разрешениям: текущий интервал
+ * и еще не завершенный блок. Завершенные блоки передаются в onBlockClosed.
+ * checkpoint отдает накопленное в незавершенных блоках и начинает их заново,
+ * поэтому блок одного интервала может сохраняться несколькими частями (см. RollupBlock.merge).
+ */
+class RoomRollups {
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final long[] bucketStarts = new long[RESOLUTIONS.length];
+    private final int[] bucketCounts = new int[RESOLUTIONS.length];
+    // min/max/сумма по метрикам открытого интервала каждого разрешения
+    private final double[][] bucketValues = new double[RESOLUTIONS.length][RollupBlock.METRICS * 3];
+    private final RollupBlock[] blocks = new RollupBlock[RESOLUTIONS.length];
+    private final float[] scratch = new float[RollupBlock.METRICS * 3];
+
+    synchronized void add(long timeMillis, float temperature, float humidity, float pressure,
+                          Consumer<RollupBlock> onBlockClosed) {
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            Resolution resolution = RESOLUTIONS[i];
+            // Запоздавшие показания учитываются в текущем интервале
+            long bucketStart = Math.max(resolution.bucketStart(timeMillis), bucketStarts[i]);
+
+            if (bucketCounts[i] > 0 && bucketStart > bucketStarts[i]) {
+                closeBucket(i);
+            }
+            if (blocks[i] != null && resolution.blockStart(bucketStart) != blocks[i].getBlockStart()) {
+                if (!blocks[i].isEmpty()) {
+                    onBlockClosed.accept(blocks[i]);
+                }
+                blocks[i] = null;
+            }
+            if (bucketCounts[i] == 0) {
+                bucketStarts[i] = bucketStart;
+                if (blocks[i] == null) {
+                    blocks[i] = new RollupBlock(resolution, resolution.blockStart(bucketStart));
+                }
+            }
+            accumulate(bucketValues[i], bucketCounts[i] == 0, RollupBlock.TEMPERATURE, temperature);
+            accumulate(bucketValues[i], bucketCounts[i] == 0, RollupBlock.HUMIDITY, humidity);
+            accumulate(bucketValues[i], bucketCounts[i] == 0, RollupBlock.PRESSURE, pressure);
+            bucketCounts[i]++;
+        }
+    }
+
+    /**
+     * Передача накопленного в незавершенных блоках (вместе с текущими интервалами) в onCheckpoint.
+     * Следующие показания тех же интервалов попадут в новые части блоков
+     */
+    synchronized void checkpoint(Consumer<RollupBlock> onCheckpoint) {
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            if (blocks[i] == null) {
+                continue;
+            }
+            if (bucketCounts[i] > 0) {
+                closeBucket(i);
+            }
+            if (!blocks[i].isEmpty()) {
+                onCheckpoint.accept(blocks[i]);
+            }
+            blocks[i] = null;
+        }
+    }
+
+    /**
+     * Копия незавершенного блока вместе с текущим интервалом
+     */
+    synchronized RollupBlock snapshot(Resolution resolution) {
+        int i = resolution.ordinal();
+        if (blocks[i] == null) {
+            return null;
+        }
+        RollupBlock copy = blocks[i].copy();
+        if (bucketCounts[i] > 0) {
+            copy.add(offset(i), bucketCounts[i], bucketAggregates(i));
+        }
+        return copy;
+    }
+
+    private void closeBucket(int i) {
+        blocks[i].add(offset(i), bucketCounts[i], bucketAggregates(i));
+        bucketCounts[i] = 0;
+    }
+
+    private int offset(int i) {
+        Resolution resolution = RESOLUTIONS[i];
+        return (int) ((bucketStarts[i] - blocks[i].getBlockStart()) / resolution.getBucketMillis());
+    }
+
+    // Среднее вычисляется из суммы (в double, чтобы не терять точность за сутки показаний)
+    private float[] bucketAggregates(int i) {
+        double[] values = bucketValues[i];
+        for (int metric = 0; metric < RollupBlock.METRICS; metric++) {
+            int min = RollupBlock.column(metric, RollupBlock.MIN);
+            int max = RollupBlock.column(metric, RollupBlock.MAX);
+            int avg = RollupBlock.column(metric, RollupBlock.AVG);
+            scratch[min] = (float) values[min];
+            scratch[max] = (float) values[max];
+            scratch[avg] = (float) (values[avg] / bucketCounts[i]);
+        }
+        return scratch;
+    }
+
+    private static void accumulate(double[] values, boolean first, int metric, float value) {
+        int min = RollupBlock.column(metric, RollupBlock.MIN);
+        int max = RollupBlock.column(metric, RollupBlock.MAX);
+        int sum = RollupBlock.column(metric, RollupBlock.AVG);
+        if (first) {
+            values[min] = value;
+            values[max] = value;
+            values[sum] = value;
+        } else {
+            values[min] = Math.min(values[min], value);
+            values[max] = Math.max(values[max], value);
+            values[sum] += value;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package by.osinovii.hacathonback.telemetry;
+
+import by.osinovii.hacathonback.entities.TelemetryRollup;
+import by.osinovii.hacathonback.repositories.TelemetryRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Агрегация телеметрии в минутные, часовые и суточные интервалы (min/max/avg) по мере поступления.
+ * Сырые показания не сохраняются: в БД пишутся блоки агрегатов, по одной строке на блок.
+ * Завершенные блоки сохраняются сразу, а незавершенные - частями раз в checkpoint-interval-ms,
+ * и каждая часть объединяется с уже сохраненной строкой, поэтому при сбое теряется
+ * не больше одного интервала сохранения. История за любой период читается в одном подходящем разрешении.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TelemetryRollupService {
+
+    // Максимальное число точек истории, по которому выбирается разрешение
+    public static final int DEFAULT_MAX_POINTS = 500;
+
+    private final TelemetryRollupRepository telemetryRollupRepository;
+
+    private final Map<String, RoomRollups> rooms = new ConcurrentHashMap<>();
+    // Завершенные блоки и части незавершенных, еще не переданные в БД
+    private final Map<BlockKey, RollupBlock> pending = new ConcurrentHashMap<>();
+    // Блоки, которые сейчас сохраняются: getHistory видит их до фиксации транзакции
+    private final Map<BlockKey, RollupBlock> saving = new ConcurrentHashMap<>();
+    // Чтение истории не пересекается с фиксацией сохранения: иначе сохраняемый блок
+    // попал бы в историю дважды (из БД и из saving) или ни разу
+    private final ReadWriteLock historyLock = new ReentrantReadWriteLock(true);
+
+    private record BlockKey(String roomNumber, Resolution resolution, long blockStart) {
+    }
+
+    /**
+     * История комнаты в колоночном виде: массивы одинаковой длины, по элементу на интервал
+     */
+    public record ClimateHistory(String roomNumber, Resolution resolution, long bucketMillis,
+                                 long[] times, int[] counts,
+                                 float[] temperatureMin, float[] temperatureMax, float[] temperatureAvg,
+                                 float[] humidityMin, float[] humidityMax, float[] humidityAvg,
+                                 float[] pressureMin, float[] pressureMax, float[] pressureAvg) {
+    }
+
+    public void ingest(String roomNumber, long timeMillis, float temperature, float humidity, float pressure) {
+        rooms.computeIfAbsent(roomNumber, number -> new RoomRollups())
+                .add(timeMillis, temperature, humidity, pressure, block -> enqueue(roomNumber, block));
+    }
+
+    /**
+     * История комнаты за период [from, to] в разрешении, дающем не больше maxPoints интервалов
+     */
+    public ClimateHistory getHistory(String roomNumber, long fromMillis, long toMillis, int maxPoints) {
+        Resolution resolution = Resolution.forWindow(fromMillis, toMillis, maxPoints);
+        long firstBlock = resolution.blockStart(fromMillis);
+        long lastBlock = resolution.blockStart(toMillis);
+
+        TreeMap<Long, RollupBlock> blocks = new TreeMap<>();
+        historyLock.readLock().lock();
+        try {
+            for (TelemetryRollup rollup : telemetryRollupRepository
+                    .findByRoomNumberAndResolutionAndBlockStartBetweenOrderByBlockStartAsc(
+                            roomNumber, resolution, firstBlock, lastBlock)) {
+                blocks.put(rollup.getBlockStart(),
+                        RollupBlock.decode(resolution, rollup.getBlockStart(), rollup.getData()));
+            }
+            RoomRollups open = rooms.get(roomNumber);
+            if (open == null) {
+                mergeUnsaved(blocks, roomNumber, resolution, firstBlock, lastBlock);
+            } else {
+                // Открытые блоки комнаты передаются в pending под ее блокировкой
+                synchronized (open) {
+                    mergeUnsaved(blocks, roomNumber, resolution, firstBlock, lastBlock);
+                    RollupBlock current = open.snapshot(resolution);
+                    if (current != null && current.getBlockStart() >= firstBlock
+                            && current.getBlockStart() <= lastBlock) {
+                        mergeInto(blocks, current);
+                    }
+                }
+            }
+        } finally {
+            historyLock.readLock().unlock();
+        }
+
+        return toHistory(roomNumber, resolution, blocks, resolution.bucketStart(fromMillis), toMillis);
+    }
+
+    /**
+     * Передача накопленного в незавершенных блоках на сохранение
+     */
+    @Scheduled(initialDelayString = "${hotel.telemetry.checkpoint-interval-ms:60000}",
+            fixedDelayString = "${hotel.telemetry.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        rooms.forEach((roomNumber, rollups) -> rollups.checkpoint(block -> enqueue(roomNumber, block)));
+    }
+
+    /**
+     * Сохранение блоков из pending. Блоки с одинаковым началом сохраняются пакетом
+     * и объединяются с уже сохраненными (частями того же блока или блоками до перезапуска)
+     */
+    @Scheduled(initialDelayString = "${hotel.telemetry.flush-interval-ms:10000}",
+            fixedDelayString = "${hotel.telemetry.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<BlockKey, RollupBlock> batch = new HashMap<>();
+        historyLock.writeLock().lock();
+        try {
+            for (BlockKey key : List.copyOf(pending.keySet())) {
+                RollupBlock block = pending.remove(key);
+                if (block != null) {
+                    batch.put(key, block);
+                    saving.put(key, block);
+                }
+            }
+        } finally {
+            historyLock.writeLock().unlock();
+        }
+
+        Map<Resolution, Map<Long, List<BlockKey>>> groups = batch.keySet().stream()
+                .collect(Collectors.groupingBy(BlockKey::resolution,
+                        Collectors.groupingBy(BlockKey::blockStart)));
+        int saved = 0;
+        for (var byResolution : groups.entrySet()) {
+            for (var byStart : byResolution.getValue().entrySet()) {
+                List<BlockKey> keys = byStart.getValue();
+                historyLock.writeLock().lock();
+                try {
+                    saved += save(byResolution.getKey(), byStart.getKey(), keys, batch);
+                } catch (Exception e) {
+                    log.error("Ошибка при сохранении агрегатов телеметрии, повтор при следующем сохранении", e);
+                    keys.forEach(key -> enqueue(key.roomNumber(), batch.get(key)));
+                } finally {
+                    keys.forEach(saving::remove);
+                    historyLock.writeLock().unlock();
+                }
+            }
+        }
+        log.debug("Сохранено блоков агрегатов телеметрии: {}", saved);
+    }
+
+    /**
+     * При остановке сохраняются и незавершенные блоки, чтобы не терять агрегаты
+     */
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+        flush();
+    }
+
+    private int save(Resolution resolution, long blockStart, List<BlockKey> keys, Map<BlockKey, RollupBlock> batch) {
+        List<String> roomNumbers = keys.stream().map(BlockKey::roomNumber).toList();
+        Map<String, TelemetryRollup> existing = telemetryRollupRepository
+                .findByResolutionAndBlockStartAndRoomNumberIn(resolution, blockStart, roomNumbers)
+                .stream()
+                .collect(Collectors.toMap(TelemetryRollup::getRoomNumber, Function.identity()));
+
+        List<TelemetryRollup> rollups = new ArrayList<>(keys.size());
+        for (BlockKey key : keys) {
+            RollupBlock block = batch.get(key);
+            TelemetryRollup rollup = existing.get(key.roomNumber());
+            if (rollup == null) {
+                rollup = new TelemetryRollup();
+                rollup.setRoomNumber(key.roomNumber());
+                rollup.setResolution(resolution);
+                rollup.setBlockStart(blockStart);
+            } else {
+                block = RollupBlock.decode(resolution, blockStart, rollup.getData()).merge(block);
+            }
+            rollup.setBucketCount(block.size());
+            rollup.setData(block.encode());
+            rollups.add(rollup);
+        }
+        telemetryRollupRepository.saveAll(rollups);
+        return rollups.size();
+    }
+
+    private void enqueue(String roomNumber, RollupBlock block) {
+        // Блок в pending не изменяется на месте: его может читать getHistory
+        pending.merge(new BlockKey(roomNumber, block.getResolution(), block.getBlockStart()), block,
+                (saved, added) -> saved.copy().merge(added));
+    }
+
+    private void mergeUnsaved(TreeMap<Long, RollupBlock> blocks, String roomNumber, Resolution resolution,
+                              long firstBlock, long lastBlock) {
+        for (long blockStart = firstBlock; blockStart <= lastBlock; blockStart += resolution.getBlockMillis()) {
+            BlockKey key = new BlockKey(roomNumber, resolution, blockStart);
+            RollupBlock unsaved = pending.get(key);
+            if (unsaved != null) {
+                mergeInto(blocks, unsaved.copy());
+            }
+            RollupBlock inFlight = saving.get(key);
+            if (inFlight != null) {
+                mergeInto(blocks, inFlight.copy());
+            }
+        }
+    }
+
+    private static void mergeInto(TreeMap<Long, RollupBlock> blocks, RollupBlock block) {
+        blocks.merge(block.getBlockStart(), block, RollupBlock::merge);
+    }
+
+    private static ClimateHistory toHistory(String roomNumber, Resolution resolution,
+                                            TreeMap<Long, RollupBlock> blocks, long fromMillis, long toMillis) {
+        int total = 0;
+        for (RollupBlock block : blocks.values()) {
+            total += block.size();
+        }
+        long[] times = new long[total];
+        int[] counts = new int[total];
+        float[][] values = new float[RollupBlock.METRICS * 3][total];
+
+        int n = 0;
+        for (RollupBlock block : blocks.values()) {
+            for (int row = 0; row < block.size(); row++) {
+                long time = block.timeAt(row);
+                if (time < fromMillis || time > toMillis) {
+                    continue;
+                }
+                times[n] = time;
+                counts[n] = block.countAt(row);
+                for (int column = 0; column < values.length; column++) {
+                    values[column][n] = block.valueAt(row, column);
+                }
+                n++;
+            }
+        }
+
+        return new ClimateHistory(roomNumber, resolution, resolution.getBucketMillis(),
+                Arrays.copyOf(times, n), Arrays.copyOf(counts, n),
+                trim(values, RollupBlock.TEMPERATURE, RollupBlock.MIN, n),
+                trim(values, RollupBlock.TEMPERATURE, RollupBlock.MAX, n),
+                trim(values, RollupBlock.TEMPERATURE, RollupBlock.AVG, n),
+                trim(values, RollupBlock.HUMIDITY, RollupBlock.MIN, n),
+                trim(values, RollupBlock.HUMIDITY, RollupBlock.MAX, n),
+                trim(values, RollupBlock.HUMIDITY, RollupBlock.AVG, n),
+                trim(values, RollupBlock.PRESSURE, RollupBlock.MIN, n),
+                trim(values, RollupBlock.PRESSURE, RollupBlock.MAX, n),
+                trim(values, RollupBlock.PRESSURE, RollupBlock.AVG, n));
+    }
+
+    private static float[] trim(float[][] values, int metric, int stat, int n) {
+        return Arrays.copyOf(values[RollupBlock.column(metric, stat)], n);
+    }
+}
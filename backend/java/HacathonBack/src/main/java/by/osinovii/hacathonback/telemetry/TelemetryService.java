@@ -0,0 +1,52 @@
+package by.osinovii.hacathonback.telemetry;
+
+import by.osinovii.hacathonback.iot.proto.State;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Прием показаний датчиков от контроллеров комнат и доступ к последним значениям
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TelemetryService {
+
+    // Количество последних показаний для расчета тренда
+    public static final int TREND_SAMPLES = 16;
+
+    private final TelemetryStore telemetryStore;
+    private final TelemetryRollupService telemetryRollupService;
+
+    /**
+     * Сохранение показаний из состояния устройства
+     */
+    public void ingest(String roomNumber, State state) {
+        long now = System.currentTimeMillis();
+        telemetryStore.record(roomNumber, now,
+                state.getTemperature(), state.getHumidity(), state.getPressure());
+        telemetryRollupService.ingest(roomNumber, now,
+                state.getTemperature(), state.getHumidity(), state.getPressure());
+    }
+
+    /**
+     * Последние показания комнаты с трендами
+     */
+    public Optional<TelemetryStore.Climate> getClimate(String roomNumber) {
+        return telemetryStore.climate(roomNumber, TREND_SAMPLES);
+    }
+
+    /**
+     * История климата комнаты за период (агрегаты подходящего разрешения)
+     */
+    public TelemetryRollupService.ClimateHistory getClimateHistory(String roomNumber, long fromMillis, long toMillis,
+                                                                   int maxPoints) {
+        if (fromMillis > toMillis) {
+            throw new IllegalArgumentException("Начало периода позже окончания");
+        }
+        return telemetryRollupService.getHistory(roomNumber, fromMillis, toMillis, maxPoints);
+    }
+}
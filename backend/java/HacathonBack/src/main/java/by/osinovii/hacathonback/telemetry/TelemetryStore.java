@@ -0,0 +1,171 @@
+package by.osinovii.hacathonback.telemetry;
+
+import by.osinovii.hacathonback.index.RoomRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Последние показания датчиков комнат в кольцевых буферах примитивов.
+ * Каждой комнате выделяется слот фиксированного размера в общих массивах float[]/long[],
+ * поэтому запись показания не создает объектов.
+ * Согласованность чтения обеспечивает счетчик версий слота (seqlock): запись делает
+ * счетчик нечетным на время изменения, читатель повторяет чтение, если счетчик изменился.
+ * Читатели не берут блокировок и не мешают записи.
+ * Слоты не освобождаются, поэтому выдаются только комнатам из реестра комнат:
+ * показания с неизвестными номерами комнат не сохраняются.
+ */
+@Component
+@Slf4j
+public class TelemetryStore {
+
+    private final RoomRegistry roomRegistry;
+    private final int maxRooms;
+    private final int history;
+    private final int mask;
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    // Версия слота: нечетная - идет запись, число записанных показаний = версия / 2
+    private final AtomicLongArray versions;
+    private final long[] times;
+    private final float[] temperature;
+    private final float[] humidity;
+    private final float[] pressure;
+
+    /**
+     * Последнее показание и тренды (изменение в час по последним показаниям)
+     */
+    public record Climate(long timeMillis, float temperature, float humidity, float pressure,
+                          double temperaturePerHour, double humidityPerHour, int samples) {
+    }
+
+    public TelemetryStore(RoomRegistry roomRegistry,
+                          @Value("${hotel.telemetry.max-rooms:16384}") int maxRooms,
+                          @Value("${hotel.telemetry.history:64}") int history) {
+        if (Integer.bitCount(history) != 1) {
+            throw new IllegalArgumentException("hotel.telemetry.history должен быть степенью двойки");
+        }
+        this.roomRegistry = roomRegistry;
+        this.maxRooms = maxRooms;
+        this.history = history;
+        this.mask = history - 1;
+        this.versions = new AtomicLongArray(maxRooms);
+        this.times = new long[maxRooms * history];
+        this.temperature = new float[maxRooms * history];
+        this.humidity = new float[maxRooms * history];
+        this.pressure = new float[maxRooms * history];
+    }
+
+    /**
+     * Запись показания. Возвращает false, если комната неизвестна или для нее не хватило слота.
+     */
+    public boolean record(String roomNumber, long timeMillis, float temperatureValue, float humidityValue,
+                          float pressureValue) {
+        int slot = slotOf(roomNumber);
+        if (slot < 0) {
+            return false;
+        }
+
+        // Захват слота: переводим версию из четной в нечетную
+        long version;
+        do {
+            version = versions.get(slot);
+        } while ((version & 1) != 0 || !versions.compareAndSet(slot, version, version + 1));
+
+        int index = slot * history + (int) ((version >>> 1) & mask);
+        times[index] = timeMillis;
+        temperature[index] = temperatureValue;
+        humidity[index] = humidityValue;
+        pressure[index] = pressureValue;
+
+        versions.set(slot, version + 2);
+        return true;
+    }
+
+    /**
+     * Последнее показание комнаты и тренды по последним trendSamples показаниям
+     */
+    public Optional<Climate> climate(String roomNumber, int trendSamples) {
+        Integer slot = slots.get(roomNumber);
+        if (slot == null || slot < 0) {
+            return Optional.empty();
+        }
+        int base = slot * history;
+
+        while (true) {
+            long before = versions.get(slot);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long count = before >>> 1;
+            if (count == 0) {
+                return Optional.empty();
+            }
+            int n = (int) Math.min(Math.min(count, history), Math.max(trendSamples, 1));
+            int last = base + (int) ((count - 1) & mask);
+
+            long time = times[last];
+            float t = temperature[last];
+            float h = humidity[last];
+            float p = pressure[last];
+
+            // Наклон по методу наименьших квадратов (время в часах от последнего показания)
+            double sumX = 0, sumXX = 0, sumT = 0, sumXT = 0, sumH = 0, sumXH = 0;
+            for (int i = 0; i < n; i++) {
+                int index = base + (int) ((count - 1 - i) & mask);
+                double x = (times[index] - time) / 3_600_000.0;
+                sumX += x;
+                sumXX += x * x;
+                sumT += temperature[index];
+                sumXT += x * temperature[index];
+                sumH += humidity[index];
+                sumXH += x * humidity[index];
+            }
+
+            VarHandle.acquireFence();
+            if (versions.get(slot) != before) {
+                // Во время чтения слот перезаписывался - повторяем
+                continue;
+            }
+
+            double denominator = n * sumXX - sumX * sumX;
+            double temperatureSlope = denominator == 0 ? 0 : (n * sumXT - sumX * sumT) / denominator;
+            double humiditySlope = denominator == 0 ? 0 : (n * sumXH - sumX * sumH) / denominator;
+            return Optional.of(new Climate(time, t, h, p, temperatureSlope, humiditySlope, n));
+        }
+    }
+
+    public int roomCount() {
+        return Math.min(nextSlot.get(), maxRooms);
+    }
+
+    private int slotOf(String roomNumber) {
+        Integer slot = slots.get(roomNumber);
+        if (slot != null) {
+            return slot;
+        }
+        if (roomRegistry.findByNumber(roomNumber).isEmpty()) {
+            // Отказ не запоминается: комната может появиться в реестре позже
+            log.debug("Показания неизвестной комнаты {} не сохраняются", roomNumber);
+            return -1;
+        }
+        return slots.computeIfAbsent(roomNumber, number -> {
+            int next = nextSlot.getAndIncrement();
+            if (next >= maxRooms) {
+                log.warn("Нет свободного слота телеметрии для комнаты {} (максимум {})", number, maxRooms);
+                return -1;
+            }
+            return next;
+        });
+    }
+}
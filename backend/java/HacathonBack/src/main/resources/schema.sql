@@ -16,10 +16,14 @@ CREATE TABLE IF NOT EXISTS rooms (
     room_type VARCHAR(50) NOT NULL,
     status VARCHAR(20) NOT NULL,
     price_per_night DECIMAL(10, 2) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP WITH TIME ZONE NOT NULL,
     updated_at TIMESTAMP WITH TIME ZONE NOT NULL
 );
 
+-- Версия строки для оптимистичной блокировки (для уже существующих баз)
+ALTER TABLE rooms ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 -- Создание таблицы guests, если не существует
 CREATE TABLE IF NOT EXISTS guests (
     id SERIAL PRIMARY KEY,
@@ -32,4 +36,32 @@ CREATE TABLE IF NOT EXISTS guests (
     check_out_date DATE NOT NULL,
     created_at TIMESTAMP WITH TIME ZONE NOT NULL,
     updated_at TIMESTAMP WITH TIME ZONE NOT NULL
-); 
\ No newline at end of file
+);
+
+-- Шаг последовательности совпадает с allocationSize в Guest (пакетная вставка гостей)
+ALTER SEQUENCE guests_id_seq INCREMENT BY 50;
+
+-- Индексы для выборок заездов и выездов по дате
+CREATE INDEX IF NOT EXISTS idx_guests_check_in_date ON guests (check_in_date);
+CREATE INDEX IF NOT EXISTS idx_guests_check_out_date ON guests (check_out_date);
+
+-- Агрегаты телеметрии комнат: блоки интервалов в сжатом колоночном формате
+CREATE TABLE IF NOT EXISTS telemetry_rollups (
+    id BIGINT PRIMARY KEY,
+    room_number VARCHAR(10) NOT NULL,
+    resolution VARCHAR(10) NOT NULL,
+    block_start BIGINT NOT NULL,
+    bucket_count INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    UNIQUE (room_number, resolution, block_start)
+);
+
+CREATE SEQUENCE IF NOT EXISTS telemetry_rollups_id_seq INCREMENT BY 50;
+
+-- Состояние устройств комнаты, упакованное в битовое поле (см. DeviceStateRegistry)
+CREATE TABLE IF NOT EXISTS room_device_states (
+    room_number VARCHAR(10) PRIMARY KEY,
+    state INTEGER NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
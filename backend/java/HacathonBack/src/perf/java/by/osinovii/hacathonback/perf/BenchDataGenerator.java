@@ -0,0 +1,185 @@
+package by.osinovii.hacathonback.perf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Random;
+
+/**
+ * Генератор синтетических данных для бенчмарков (профиль bench).
+ * Комнаты и история гостей вставляются пакетами через JDBC до ApplicationReadyEvent,
+ * поэтому индексы, реестр комнат и статистика строятся уже по сгенерированным данным.
+ * Данные определяются зерном bench.seed и одинаковы от запуска к запуску.
+ */
+@Component
+@Profile("bench")
+@Slf4j
+public class BenchDataGenerator implements ApplicationRunner {
+
+    static final int ROOM_NUMBER_BASE = 100000;
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final String[] ROOM_TYPES = {"STANDARD", "STANDARD", "STANDARD", "DELUXE", "DELUXE", "SUITE"};
+    private static final String[] FIRST_NAMES = {
+            "Иван", "Алексей", "Мария", "Анна", "Дмитрий", "Елена", "Сергей", "Ольга", "Павел", "Наталья",
+            "John", "Emma", "Liam", "Olivia", "Noah", "Ava", "Lukas", "Mia", "Jan", "Zofia"};
+    private static final String[] LAST_NAMES = {
+            "Иванов", "Петров", "Сидоров", "Кузнецов", "Смирнов", "Попов", "Соколов", "Лебедев", "Козлов", "Новиков",
+            "Морозов", "Волков", "Smith", "Johnson", "Brown", "Müller", "Schmidt", "Kowalski", "Nowak", "Garcia"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rooms;
+    private final int guests;
+    private final long seed;
+
+    public BenchDataGenerator(JdbcTemplate jdbcTemplate,
+                              @Value("${bench.rooms:1000}") int rooms,
+                              @Value("${bench.guests:10000}") int guests,
+                              @Value("${bench.seed:42}") long seed) {
+        if (rooms < 1 || guests < 0) {
+            throw new IllegalArgumentException("Некорректный размер данных: комнат " + rooms + ", гостей " + guests);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.rooms = rooms;
+        this.guests = guests;
+        this.seed = seed;
+    }
+
+    /**
+     * Номер комнаты с порядковым номером index (с нуля)
+     */
+    static String roomNumber(int index) {
+        return String.valueOf(ROOM_NUMBER_BASE + index);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long started = System.nanoTime();
+        Random random = new Random(seed);
+        String[] statuses = insertRooms(random);
+        insertGuests(random, statuses);
+
+        // Сгенерированные ID заданы явно - генераторы ключей продолжают после них
+        jdbcTemplate.execute("ALTER TABLE rooms ALTER COLUMN id RESTART WITH " + (rooms + 1));
+        jdbcTemplate.execute("ALTER SEQUENCE guests_id_seq RESTART WITH " + (guests + 100));
+        log.warn("Синтетические данные: {} комнат, {} гостей за {} мс",
+                rooms, guests, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private String[] insertRooms(Random random) {
+        OffsetDateTime now = OffsetDateTime.now();
+        String[] types = new String[rooms];
+        String[] statuses = new String[rooms];
+        BigDecimal[] prices = new BigDecimal[rooms];
+        for (int i = 0; i < rooms; i++) {
+            types[i] = ROOM_TYPES[random.nextInt(ROOM_TYPES.length)];
+            int roll = random.nextInt(100);
+            statuses[i] = roll < 60 ? "OCCUPIED" : roll < 90 ? "AVAILABLE" : roll < 96 ? "CLEANING" : "MAINTENANCE";
+            long basePrice = switch (types[i]) {
+                case "SUITE" -> 30000;
+                case "DELUXE" -> 15000;
+                default -> 8000;
+            };
+            prices[i] = BigDecimal.valueOf(basePrice + random.nextInt(5000), 2);
+        }
+
+        String sql = "INSERT INTO rooms (id, room_number, room_type, status, price_per_night, version, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, 0, ?, ?)";
+        for (int from = 0; from < rooms; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, rooms - from);
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int index = offset + i;
+                    ps.setLong(1, index + 1);
+                    ps.setString(2, roomNumber(index));
+                    ps.setString(3, types[index]);
+                    ps.setString(4, statuses[index]);
+                    ps.setBigDecimal(5, prices[index]);
+                    ps.setObject(6, now);
+                    ps.setObject(7, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+        return statuses;
+    }
+
+    /**
+     * История гостей за два года. Первым гостям занятых комнат достается текущее проживание,
+     * остальные - завершенные заезды в случайные комнаты.
+     */
+    private void insertGuests(Random random, String[] statuses) {
+        OffsetDateTime now = OffsetDateTime.now();
+        LocalDate today = LocalDate.now();
+        String sql = "INSERT INTO guests (id, first_name, last_name, email, phone, room_id, check_in_date, check_out_date, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int[] nextOccupied = {0};
+        for (int from = 0; from < guests; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, guests - from);
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int index = offset + i;
+                    String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                    String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+
+                    int room = nextOccupiedRoom(statuses, nextOccupied);
+                    LocalDate checkIn;
+                    LocalDate checkOut;
+                    if (room >= 0) {
+                        checkIn = today.minusDays(random.nextInt(7));
+                        checkOut = today.plusDays(1 + random.nextInt(10));
+                    } else {
+                        room = random.nextInt(rooms);
+                        checkIn = today.minusDays(14 + random.nextInt(730));
+                        checkOut = checkIn.plusDays(1 + random.nextInt(14));
+                    }
+
+                    ps.setLong(1, index + 1);
+                    ps.setString(2, firstName);
+                    ps.setString(3, lastName);
+                    ps.setString(4, "guest" + index + "@example.com");
+                    ps.setString(5, "+375" + (290000000 + random.nextInt(10000000)));
+                    ps.setLong(6, room + 1);
+                    ps.setObject(7, checkIn);
+                    ps.setObject(8, checkOut);
+                    ps.setObject(9, now);
+                    ps.setObject(10, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    private static int nextOccupiedRoom(String[] statuses, int[] cursor) {
+        while (cursor[0] < statuses.length) {
+            int room = cursor[0]++;
+            if ("OCCUPIED".equals(statuses[room])) {
+                return room;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,131 @@
+package by.osinovii.hacathonback.perf;
+
+import by.osinovii.hacathonback.HacathonBackApplication;
+import by.osinovii.hacathonback.entities.Guest;
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.services.AdminService;
+import by.osinovii.hacathonback.services.GuestService;
+import by.osinovii.hacathonback.services.RoomService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути RoomService, GuestService и AdminService на синтетических данных.
+ * Контекст приложения поднимается один раз на форк с профилем bench (H2 в памяти),
+ * данные создает BenchDataGenerator. Размер данных задается параметрами rooms и guests:
+ * mvn -Pperf test-compile exec:exec -Djmh.args="HotelServicesBenchmark -p rooms=100000 -p guests=5000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+public class HotelServicesBenchmark {
+
+    private static final int GUESTS_PAGE_SIZE = 1000;
+    private static final String[] SEARCH_TERMS = {"Иванов", "Петр", "smith", "garc", "guest1234", "+37529"};
+    private static final String[] SEARCH_FIELDS = {"lastName", "firstName", "lastName", "lastName", "email", "phone"};
+
+    @Param({"1000", "100000"})
+    public int rooms;
+
+    @Param({"10000", "1000000"})
+    public int guests;
+
+    private ConfigurableApplicationContext context;
+    private RoomService roomService;
+    private GuestService guestService;
+    private AdminService adminService;
+    private ObjectMapper objectMapper;
+
+    private Random random;
+    private List<Room> allRooms;
+    private List<Guest> guestsPage;
+    private List<String> availableRooms;
+    private int nextAvailable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(HacathonBackApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setAdditionalProfiles("bench");
+        context = application.run("--bench.rooms=" + rooms, "--bench.guests=" + guests);
+
+        roomService = context.getBean(RoomService.class);
+        guestService = context.getBean(GuestService.class);
+        adminService = context.getBean(AdminService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        random = new Random(7);
+        allRooms = roomService.getAllRooms();
+        guestsPage = guestService.getGuestsPage(0L, GUESTS_PAGE_SIZE);
+        availableRooms = roomService.getAvailableRooms().stream().map(Room::getRoomNumber).toList();
+        if (availableRooms.isEmpty()) {
+            throw new IllegalStateException("В синтетических данных нет свободных комнат для заселения");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Room> findRoomByNumber() {
+        return roomService.findRoomByNumber(BenchDataGenerator.roomNumber(random.nextInt(rooms)));
+    }
+
+    @Benchmark
+    public List<Room> getRoomsByPriceRange() {
+        long min = 8000 + random.nextInt(30000);
+        return roomService.getRoomsByPriceRange(BigDecimal.valueOf(min, 2), BigDecimal.valueOf(min + 2000, 2));
+    }
+
+    @Benchmark
+    public List<Guest> searchGuests() {
+        int query = random.nextInt(SEARCH_TERMS.length);
+        return guestService.searchGuests(SEARCH_TERMS[query], SEARCH_FIELDS[query], 50);
+    }
+
+    @Benchmark
+    public Map<String, Object> getHotelStats() {
+        return adminService.getHotelStats();
+    }
+
+    /**
+     * Заселение в свободную комнату и выселение: комната снова становится свободной,
+     * а история гостей растет так же, как в работающем отеле
+     */
+    @Benchmark
+    public void checkInGuest(Blackhole blackhole) {
+        String roomNumber = availableRooms.get(nextAvailable++ % availableRooms.size());
+        Guest guest = guestService.checkInGuest("Бенчмарк", "Гость", "bench@example.com", "+375290000000",
+                roomNumber, LocalDate.now().plusDays(2));
+        blackhole.consume(guest);
+        blackhole.consume(guestService.checkOutGuest(guest.getId()));
+    }
+
+    @Benchmark
+    public byte[] serializeRooms() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(allRooms);
+    }
+
+    @Benchmark
+    public byte[] serializeGuests() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(guestsPage);
+    }
+}
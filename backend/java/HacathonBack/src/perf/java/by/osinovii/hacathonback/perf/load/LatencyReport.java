@@ -0,0 +1,109 @@
+package by.osinovii.hacathonback.perf.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки запрос-ответ по операциям.
+ * Учитываются только после start(): прогрев и подключение сессий в отчет не попадают.
+ */
+final class LatencyReport {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    // Буфер гистограммы сменяется раз в это время от создания отчета - заведомо реже одного прогона
+    private static final Duration HISTOGRAM_WINDOW = Duration.ofDays(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> timeouts = new EnumMap<>(Operation.class);
+    private final LongAdder transportErrors = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    private volatile boolean recording;
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            // Один буфер на все окно измерения, чтобы перцентили не "скользили" по времени
+            timers.put(operation, Timer.builder("load.latency")
+                    .tag("operation", operation.label())
+                    .publishPercentiles(PERCENTILES)
+                    .percentilePrecision(2)
+                    .distributionStatisticExpiry(HISTOGRAM_WINDOW)
+                    .distributionStatisticBufferLength(1)
+                    .register(registry));
+            errors.put(operation, registry.counter("load.errors", "operation", operation.label()));
+            timeouts.put(operation, registry.counter("load.timeouts", "operation", operation.label()));
+        }
+    }
+
+    void start() {
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+    }
+
+    void success(Operation operation, long latencyNanos) {
+        completed.increment();
+        if (recording) {
+            timers.get(operation).record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void error(Operation operation) {
+        completed.increment();
+        if (recording) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void timeout(Operation operation) {
+        if (recording) {
+            timeouts.get(operation).increment();
+        }
+    }
+
+    void transportError() {
+        transportErrors.increment();
+    }
+
+    /**
+     * Число завершенных запросов с начала работы (для вывода текущей пропускной способности)
+     */
+    long completed() {
+        return completed.sum();
+    }
+
+    void print(PrintStream out, Duration measured) {
+        double seconds = measured.toMillis() / 1000.0;
+        out.printf("%-12s %9s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "timeouts", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            HistogramSnapshot snapshot = timers.get(operation).takeSnapshot();
+            long errorCount = (long) errors.get(operation).count();
+            long timeoutCount = (long) timeouts.get(operation).count();
+            if (snapshot.count() + errorCount + timeoutCount == 0) {
+                continue;
+            }
+            out.printf("%-12s %9d %8d %8d %9.1f", operation.label(), snapshot.count(), errorCount, timeoutCount,
+                    snapshot.count() / seconds);
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                out.printf(" %9.2f", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            out.printf(" %9.2f%n", snapshot.max(TimeUnit.MILLISECONDS));
+        }
+        out.printf("Ошибок транспорта: %d%n", transportErrors.sum());
+    }
+}
@@ -0,0 +1,78 @@
+package by.osinovii.hacathonback.perf.load;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузки из аргументов вида --ключ=значение
+ */
+record LoadOptions(String url,
+                   int guests,
+                   int admins,
+                   Duration warmup,
+                   Duration duration,
+                   long thinkMs,
+                   long timeoutMs,
+                   int connectRate,
+                   OperationMix guestMix,
+                   OperationMix adminMix,
+                   long seed) {
+
+    static final String USAGE = """
+            Параметры:
+              --url=http://localhost:8080          адрес приложения
+              --guests=1000                        сессии гостей (/guest-ws)
+              --admins=10                          сессии администраторов (/ws)
+              --warmup=10                          прогрев без учета задержек, с
+              --duration=60                        измерение, с
+              --think-ms=1000                      средняя пауза сессии между запросами, мс
+              --timeout-ms=5000                    таймаут ответа, мс
+              --connect-rate=200                   новых подключений в секунду
+              --guest-mix=door-open=60,climate=25,my-room=15
+              --admin-mix=admin-stats=70,check-in=30
+              --seed=42""";
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg + "\n" + USAGE);
+            }
+            int split = arg.indexOf('=');
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+
+        LoadOptions options = new LoadOptions(
+                values.getOrDefault("url", "http://localhost:8080").replaceAll("/+$", ""),
+                Integer.parseInt(values.getOrDefault("guests", "1000")),
+                Integer.parseInt(values.getOrDefault("admins", "10")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                Long.parseLong(values.getOrDefault("think-ms", "1000")),
+                Long.parseLong(values.getOrDefault("timeout-ms", "5000")),
+                Integer.parseInt(values.getOrDefault("connect-rate", "200")),
+                OperationMix.parse(values.getOrDefault("guest-mix", "door-open=60,climate=25,my-room=15")),
+                OperationMix.parse(values.getOrDefault("admin-mix", "admin-stats=70,check-in=30")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (guests < 0 || admins < 0 || guests + admins == 0) {
+            throw new IllegalArgumentException("Нужна хотя бы одна сессия: гостей " + guests + ", администраторов " + admins);
+        }
+        if (thinkMs < 0 || timeoutMs <= 0 || connectRate <= 0) {
+            throw new IllegalArgumentException("Некорректные think-ms, timeout-ms или connect-rate");
+        }
+        for (Operation operation : Operation.values()) {
+            if (guestMix.contains(operation) && !operation.isGuestOperation()) {
+                throw new IllegalArgumentException("Операция " + operation.label() + " недоступна гостю");
+            }
+            if (adminMix.contains(operation) && (operation.isGuestOperation() || operation == Operation.CHECK_OUT)) {
+                throw new IllegalArgumentException("Операция " + operation.label() + " недоступна в смеси администратора");
+            }
+        }
+    }
+}
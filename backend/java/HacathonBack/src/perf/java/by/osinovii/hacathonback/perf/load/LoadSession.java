@@ -0,0 +1,253 @@
+package by.osinovii.hacathonback.perf.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Виртуальная сессия гостя или администратора.
+ * Работает по замкнутому циклу: запрос, ответ (или таймаут), пауза, следующий запрос.
+ * В каждый момент у сессии не больше одного запроса, поэтому ответ из /user/queue/...
+ * однозначно сопоставляется с запросом без идентификаторов в сообщениях.
+ */
+@Slf4j
+final class LoadSession extends StompSessionHandlerAdapter {
+
+    enum Role {
+        GUEST, ADMIN
+    }
+
+    private record Pending(Operation operation, long sentNanos, String roomNumber) {
+    }
+
+    private final Role role;
+    private final String requesterId;
+    private final Long guestId;
+    private final LoadOptions options;
+    private final LatencyReport report;
+    private final ScheduledExecutorService scheduler;
+    private final Queue<String> freeRooms;
+    private final Random random;
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+
+    private volatile StompSession session;
+    private volatile boolean stopped;
+
+    // Гость, заселенный этим администратором, и его комната: следующая операция - выселение
+    private Long checkedInGuestId;
+    private String checkedInRoom;
+
+    LoadSession(Role role, String requesterId, Long guestId, LoadOptions options, LatencyReport report,
+                ScheduledExecutorService scheduler, Queue<String> freeRooms, long seed) {
+        this.role = role;
+        this.requesterId = requesterId;
+        this.guestId = guestId;
+        this.options = options;
+        this.report = report;
+        this.scheduler = scheduler;
+        this.freeRooms = freeRooms;
+        this.random = new Random(seed);
+    }
+
+    String requesterId() {
+        return requesterId;
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        if (role == Role.GUEST) {
+            subscribe(Operation.DOOR_OPEN.replyDestination());
+            subscribe(Operation.CLIMATE.replyDestination());
+            subscribe(Operation.MY_ROOM.replyDestination());
+            subscribe(Operation.GUEST_ERROR_QUEUE);
+        } else {
+            subscribe(Operation.ADMIN_STATS.replyDestination());
+            subscribe(Operation.CHECK_IN.replyDestination());
+            subscribe(Operation.CHECK_OUT.replyDestination());
+            subscribe(Operation.ADMIN_ERROR_QUEUE);
+        }
+        // Первый запрос - после паузы, чтобы подписки успели зарегистрироваться у брокера
+        scheduleNext();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        if (!stopped) {
+            report.transportError();
+            log.debug("Ошибка транспорта в сессии {}", requesterId, exception);
+        }
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command,
+                                StompHeaders headers, byte[] payload, Throwable exception) {
+        report.transportError();
+        log.debug("Ошибка обработки кадра в сессии {}", requesterId, exception);
+    }
+
+    /**
+     * Новые запросы больше не отправляются; ответы на уже отправленные еще принимаются
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    void disconnect() {
+        stopped = true;
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    private void subscribe(String destination) {
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onReply(destination, (Map<String, Object>) payload);
+            }
+        });
+    }
+
+    private void scheduleNext() {
+        if (stopped) {
+            return;
+        }
+        // Экспоненциальные паузы: запросы сессий приходят как пуассоновский поток
+        long delay = (long) (-Math.log(1 - random.nextDouble()) * options.thinkMs());
+        scheduler.schedule(this::sendNext, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendNext() {
+        StompSession current = session;
+        if (stopped || current == null || !current.isConnected()) {
+            return;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("requesterId", requesterId);
+        Operation operation = nextOperation();
+        String roomNumber = null;
+        switch (operation) {
+            case DOOR_OPEN, CLIMATE, MY_ROOM -> payload.put("guestId", guestId);
+            case CHECK_IN -> {
+                roomNumber = freeRooms.poll();
+                if (roomNumber == null) {
+                    operation = Operation.ADMIN_STATS;
+                } else {
+                    payload.put("firstName", "Нагрузка");
+                    payload.put("lastName", requesterId);
+                    payload.put("email", requesterId + "@load.local");
+                    payload.put("phone", "+375290000000");
+                    payload.put("roomNumber", roomNumber);
+                    payload.put("checkOutDate", LocalDate.now().plusDays(1).toString());
+                }
+            }
+            case CHECK_OUT -> {
+                payload.put("guestId", checkedInGuestId);
+                roomNumber = checkedInRoom;
+            }
+            case ADMIN_STATS -> {
+            }
+        }
+
+        Pending request = new Pending(operation, System.nanoTime(), roomNumber);
+        pending.set(request);
+        try {
+            current.send(operation.destination(), payload);
+        } catch (RuntimeException e) {
+            if (pending.compareAndSet(request, null)) {
+                report.error(operation);
+                onFailed(request, false);
+                scheduleNext();
+            }
+            return;
+        }
+        scheduler.schedule(() -> {
+            if (pending.compareAndSet(request, null)) {
+                report.timeout(request.operation());
+                onFailed(request, true);
+                scheduleNext();
+            }
+        }, options.timeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private Operation nextOperation() {
+        if (role == Role.GUEST) {
+            return options.guestMix().pick(random);
+        }
+        return checkedInGuestId != null ? Operation.CHECK_OUT : options.adminMix().pick(random);
+    }
+
+    private void onReply(String destination, Map<String, Object> payload) {
+        Pending request = pending.get();
+        if (request == null) {
+            return;
+        }
+        boolean error = destination.equals(Operation.GUEST_ERROR_QUEUE) || destination.equals(Operation.ADMIN_ERROR_QUEUE);
+        if (!error && !destination.equals(request.operation().replyDestination())) {
+            return;
+        }
+        if (!pending.compareAndSet(request, null)) {
+            return;
+        }
+
+        if (error) {
+            report.error(request.operation());
+            onFailed(request, false);
+        } else {
+            report.success(request.operation(), System.nanoTime() - request.sentNanos());
+            onCompleted(request, payload);
+        }
+        scheduleNext();
+    }
+
+    private void onCompleted(Pending request, Map<String, Object> payload) {
+        if (request.operation() == Operation.CHECK_IN) {
+            Object guest = payload.get("guest");
+            if (guest instanceof Map<?, ?> saved && saved.get("id") instanceof Number id) {
+                checkedInGuestId = id.longValue();
+                checkedInRoom = request.roomNumber();
+            } else {
+                freeRooms.offer(request.roomNumber());
+            }
+        } else if (request.operation() == Operation.CHECK_OUT) {
+            checkedInGuestId = null;
+            checkedInRoom = null;
+            freeRooms.offer(request.roomNumber());
+        }
+    }
+
+    /**
+     * Комната возвращается в пул, только если заселение точно не состоялось.
+     * После таймаута заселение могло пройти, поэтому комната из нагрузки выбывает.
+     */
+    private void onFailed(Pending request, boolean timedOut) {
+        if (request.operation() == Operation.CHECK_IN && !timedOut) {
+            freeRooms.offer(request.roomNumber());
+        } else if (request.operation() == Operation.CHECK_OUT) {
+            checkedInGuestId = null;
+            checkedInRoom = null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package by.osinovii.hacathonback.perf.load;
+
+/**
+ * Операции нагрузки: маршрут запроса и очередь, в которую приходит ответ на него
+ */
+enum Operation {
+    DOOR_OPEN("door-open", "/app/guest/door/open", "/user/queue/door-status"),
+    CLIMATE("climate", "/app/guest/climate", "/user/queue/climate-status"),
+    MY_ROOM("my-room", "/app/guest/my-room", "/user/queue/my-room"),
+    // Статистика рассылается всем администраторам через /topic, запрос завершает первая рассылка после него
+    ADMIN_STATS("admin-stats", "/app/admin/stats", "/topic/admin/stats"),
+    CHECK_IN("check-in", "/app/admin/guest/check-in", "/user/queue/admin/check-in-result"),
+    // Выселение гостя, заселенного тем же администратором: комната возвращается в пул свободных
+    CHECK_OUT("check-out", "/app/admin/guest/check-out", "/user/queue/admin/check-out-result");
+
+    static final String GUEST_ERROR_QUEUE = "/user/queue/error";
+    static final String ADMIN_ERROR_QUEUE = "/user/queue/admin/error";
+
+    private final String label;
+    private final String destination;
+    private final String replyDestination;
+
+    Operation(String label, String destination, String replyDestination) {
+        this.label = label;
+        this.destination = destination;
+        this.replyDestination = replyDestination;
+    }
+
+    String label() {
+        return label;
+    }
+
+    String destination() {
+        return destination;
+    }
+
+    String replyDestination() {
+        return replyDestination;
+    }
+
+    boolean isGuestOperation() {
+        return this == DOOR_OPEN || this == CLIMATE || this == MY_ROOM;
+    }
+
+    static Operation byLabel(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция: " + label);
+    }
+}
@@ -0,0 +1,62 @@
+package by.osinovii.hacathonback.perf.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Смесь операций с весами, например "door-open=60,climate=25,my-room=15"
+ */
+final class OperationMix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private OperationMix(Operation[] operations, int[] cumulativeWeights) {
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    static OperationMix parse(String spec) {
+        List<Operation> operations = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция=вес: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) {
+                continue;
+            }
+            total += weight;
+            operations.add(Operation.byLabel(pair[0].trim()));
+            weights.add(total);
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Пустая смесь операций: " + spec);
+        }
+        return new OperationMix(operations.toArray(Operation[]::new),
+                weights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    Operation pick(Random random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    boolean contains(Operation operation) {
+        for (Operation candidate : operations) {
+            if (candidate == operation) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,265 @@
+package by.osinovii.hacathonback.perf.load;
+
+import by.osinovii.hacathonback.config.RequesterIdInterceptor;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandler;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketClientSockJsSession;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Генератор нагрузки STOMP: N сессий гостей (/guest-ws) и M сессий администраторов (/ws) через SockJS.
+ * Гости открывают дверь, запрашивают климат и свою комнату, администраторы опрашивают статистику
+ * и заселяют/выселяют гостей. В конце печатаются перцентили задержки запрос-ответ по операциям.
+ * <p>
+ * Запуск против локального приложения с синтетическими данными профиля bench:
+ * <pre>
+ * mvn -Pperf test-compile exec:exec -Dperf.main=by.osinovii.hacathonback.HacathonBackApplication \
+ *     -Dperf.args="--spring.profiles.active=bench --bench.rooms=10000 --bench.guests=100000"
+ * mvn -Pperf test-compile exec:exec -Dperf.main=by.osinovii.hacathonback.perf.load.StompLoadGenerator \
+ *     -Dperf.args="--guests=5000 --admins=20 --duration=120"
+ * </pre>
+ */
+public final class StompLoadGenerator {
+
+    private static final String SETUP_REQUESTER_ID = "load-setup";
+    private static final int SETUP_PAGE_SIZE = 100;
+    private static final long SETUP_TIMEOUT_SECONDS = 30;
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+    private static final long DRAIN_MILLIS = 2000;
+    // Страницы комнат и гостей больше буфера контейнера по умолчанию (8 КБ); сессиям нагрузки
+    // такой буфер не нужен: при тысячах сессий он исчерпывает память генератора
+    private static final int SETUP_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final LoadOptions options;
+    private final WebSocketStompClient setupClient;
+    private final WebSocketStompClient stompClient;
+
+    private StompLoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.setupClient = createClient(SETUP_BUFFER_SIZE);
+        this.stompClient = createClient(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Без Spring Boot logback пишет все на уровне DEBUG
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        // Кадр закрытия от сервера приходит уже после отключения клиента - по ошибке на каждую сессию
+        ((Logger) LoggerFactory.getLogger(WebSocketClientSockJsSession.class)).setLevel(Level.OFF);
+        new StompLoadGenerator(LoadOptions.parse(args)).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        List<Long> guestIds = new ArrayList<>();
+        Queue<String> freeRooms = new ConcurrentLinkedQueue<>();
+        loadHotel(guestIds, freeRooms);
+        if (options.guests() > 0 && guestIds.isEmpty()) {
+            throw new IllegalStateException("В отеле нет проживающих гостей для сессий гостей");
+        }
+        System.out.printf("Проживающих гостей: %d, свободных комнат: %d%n", guestIds.size(), freeRooms.size());
+
+        LatencyReport report = new LatencyReport();
+        ScheduledExecutorService scheduler =
+                Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        List<LoadSession> sessions = new ArrayList<>();
+        long connectIntervalNanos = TimeUnit.SECONDS.toNanos(1) / options.connectRate();
+
+        for (int i = 0; i < options.guests(); i++) {
+            LoadSession session = new LoadSession(LoadSession.Role.GUEST, "load-guest-" + i,
+                    guestIds.get(i % guestIds.size()), options, report, scheduler, freeRooms, options.seed() + i);
+            connect(stompClient, "/guest-ws", session.requesterId(), session);
+            sessions.add(session);
+            LockSupport.parkNanos(connectIntervalNanos);
+        }
+        for (int i = 0; i < options.admins(); i++) {
+            LoadSession session = new LoadSession(LoadSession.Role.ADMIN, "load-admin-" + i, null,
+                    options, report, scheduler, freeRooms, options.seed() + options.guests() + i);
+            connect(stompClient, "/ws", session.requesterId(), session);
+            sessions.add(session);
+            LockSupport.parkNanos(connectIntervalNanos);
+        }
+        System.out.printf("Подключено сессий: %d, прогрев %d с%n", sessions.size(), options.warmup().toSeconds());
+
+        Thread.sleep(options.warmup().toMillis());
+        report.start();
+        long started = System.nanoTime();
+        long deadline = started + options.duration().toNanos();
+        long lastCompleted = report.completed();
+        while (System.nanoTime() < deadline) {
+            long sleep = Math.min(PROGRESS_INTERVAL.toNanos(), deadline - System.nanoTime());
+            TimeUnit.NANOSECONDS.sleep(sleep);
+            long completed = report.completed();
+            System.out.printf("%d с: %.1f ответов/с%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started),
+                    (completed - lastCompleted) * 1e9 / sleep);
+            lastCompleted = completed;
+        }
+        report.stop();
+        Duration measured = Duration.ofNanos(System.nanoTime() - started);
+
+        // Ответы на уже отправленные запросы должны дойти до отключения сессий
+        sessions.forEach(LoadSession::stop);
+        Thread.sleep(Math.min(options.timeoutMs(), DRAIN_MILLIS));
+        sessions.forEach(LoadSession::disconnect);
+        scheduler.shutdownNow();
+        report.print(System.out, measured);
+    }
+
+    private void connect(WebSocketStompClient client, String endpoint, String requesterId,
+                         StompSessionHandler handler) {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add(RequesterIdInterceptor.REQUESTER_ID_HEADER, requesterId);
+        client.connectAsync(options.url() + endpoint, new WebSocketHttpHeaders(), connectHeaders, handler);
+    }
+
+    /**
+     * Служебная сессия администратора собирает проживающих гостей и свободные комнаты
+     * постраничными запросами /app/admin/guests/page и /app/admin/rooms/page
+     */
+    private void loadHotel(List<Long> guestIds, Queue<String> freeRooms) throws Exception {
+        BlockingQueue<Map<String, Object>> pages = new LinkedBlockingQueue<>();
+        CompletableFuture<StompSession> connected = new CompletableFuture<>();
+        connect(setupClient, "/ws", SETUP_REQUESTER_ID, new StompSessionHandlerAdapter() {
+            @Override
+            public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+                for (String destination : List.of("/user/queue/admin/guests-page", "/user/queue/admin/rooms-page",
+                        Operation.ADMIN_ERROR_QUEUE)) {
+                    session.subscribe(destination, new StompFrameHandler() {
+                        @Override
+                        public Type getPayloadType(StompHeaders headers) {
+                            return Map.class;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public void handleFrame(StompHeaders headers, Object payload) {
+                            pages.add((Map<String, Object>) payload);
+                        }
+                    });
+                }
+                connected.complete(session);
+            }
+
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                connected.completeExceptionally(exception);
+            }
+        });
+        StompSession session = connected.get(SETUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        // Подписки обрабатываются пулом входящего канала: даем им зарегистрироваться до первого запроса
+        Thread.sleep(500);
+
+        LocalDate today = LocalDate.now();
+        Predicate<Map<String, Object>> staying = guest -> {
+            LocalDate checkOut = parseDate(guest.get("checkOutDate"));
+            return checkOut != null && !checkOut.isBefore(today);
+        };
+        for (Map<String, Object> guest : collect(session, pages, "/app/admin/guests/page", staying,
+                Math.max(options.guests(), 1))) {
+            guestIds.add(((Number) guest.get("id")).longValue());
+        }
+        for (Map<String, Object> room : collect(session, pages, "/app/admin/rooms/page",
+                room -> "AVAILABLE".equals(room.get("status")), Integer.MAX_VALUE)) {
+            freeRooms.add((String) room.get("roomNumber"));
+        }
+        session.disconnect();
+    }
+
+    /**
+     * Листание страниц курсором, пока не наберется limit подходящих элементов или не закончатся данные
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> collect(StompSession session, BlockingQueue<Map<String, Object>> pages,
+                                              String destination, Predicate<Map<String, Object>> filter,
+                                              int limit) throws InterruptedException {
+        List<Map<String, Object>> items = new ArrayList<>();
+        Object cursor = null;
+        boolean last = false;
+        while (!last && items.size() < limit) {
+            Map<String, Object> request = new HashMap<>();
+            request.put("requesterId", SETUP_REQUESTER_ID);
+            request.put("pageSize", SETUP_PAGE_SIZE);
+            request.put("after", cursor);
+            session.send(destination, request);
+
+            Map<String, Object> page = pages.poll(SETUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (page == null) {
+                throw new IllegalStateException("Нет ответа на " + destination);
+            }
+            if (Boolean.FALSE.equals(page.get("success"))) {
+                throw new IllegalStateException("Ошибка " + destination + ": " + page.get("message"));
+            }
+            for (Map<String, Object> item : (List<Map<String, Object>>) page.get("items")) {
+                if (filter.test(item) && items.size() < limit) {
+                    items.add(item);
+                }
+            }
+            cursor = page.get("nextCursor");
+            last = Boolean.TRUE.equals(page.get("last"));
+        }
+        return items;
+    }
+
+    /**
+     * Дата в ответе сервера: строка ISO или массив [год, месяц, день] в зависимости от настроек Jackson
+     */
+    private static LocalDate parseDate(Object value) {
+        if (value instanceof String text) {
+            return LocalDate.parse(text);
+        }
+        if (value instanceof List<?> parts && parts.size() >= 3) {
+            return LocalDate.of(((Number) parts.get(0)).intValue(), ((Number) parts.get(1)).intValue(),
+                    ((Number) parts.get(2)).intValue());
+        }
+        return null;
+    }
+
+    /**
+     * bufferSize - буфер сообщений контейнера WebSocket (0 - по умолчанию)
+     */
+    private static WebSocketStompClient createClient(int bufferSize) {
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        if (bufferSize > 0) {
+            container.setDefaultMaxTextMessageBufferSize(bufferSize);
+            container.setDefaultMaxBinaryMessageBufferSize(bufferSize);
+        }
+
+        SockJsClient sockJsClient = new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient(container))));
+        WebSocketStompClient stompClient = new WebSocketStompClient(sockJsClient);
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        if (bufferSize > 0) {
+            stompClient.setInboundMessageSizeLimit(bufferSize);
+        }
+        return stompClient;
+    }
+}
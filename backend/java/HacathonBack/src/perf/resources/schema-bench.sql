@@ -0,0 +1,6 @@
+-- Таблицы без JPA-сущностей (остальные создает Hibernate)
+CREATE TABLE IF NOT EXISTS room_device_states (
+    room_number VARCHAR(10) PRIMARY KEY,
+    state INTEGER NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,90 @@
+package by.osinovii.hacathonback.climate;
+
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.iot.IoTAction;
+import by.osinovii.hacathonback.iot.IoTGateway;
+import by.osinovii.hacathonback.repositories.RoomRepository;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static by.osinovii.hacathonback.climate.ClimateControlService.decide;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ClimateControlServiceTest {
+
+    private final RoomRegistry roomRegistry = mock(RoomRegistry.class);
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final IoTGateway ioTGateway = mock(IoTGateway.class);
+    private final ClimateControlService service = new ClimateControlService(mock(TelemetryService.class),
+            roomRegistry, roomRepository, ioTGateway, 30000, 22, 0.5, 3, 100, 64);
+
+    @AfterEach
+    public void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testSetpointForUnknownRoomIsRejected() {
+        when(roomRegistry.findByNumber("999")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> service.setSetpoint("999", 22));
+        assertEquals(0, service.loopCount());
+        assertTrue(service.getStatus("999").isEmpty());
+    }
+
+    @Test
+    public void testRoomSavedAfterStartGetsLoop() {
+        when(ioTGateway.supports(any(IoTAction.class))).thenReturn(true);
+        when(roomRepository.findAll()).thenReturn(List.of(room("101")));
+        service.start();
+        assertEquals(1, service.loopCount());
+
+        service.onRoomSaved(room("102"));
+        assertEquals(2, service.loopCount());
+        assertEquals(22, service.getStatus("102").orElseThrow().setpoint());
+    }
+
+    @Test
+    public void testNoLoopsWhenTransportCannotControlChannels() {
+        when(ioTGateway.supports(any(IoTAction.class))).thenReturn(false);
+        service.start();
+
+        service.onRoomSaved(room("102"));
+        assertEquals(0, service.loopCount());
+    }
+
+    @Test
+    public void testHysteresisAroundSetpoint() {
+        // Уставка 22, гистерезис 0.5: нагрев с 21.5 до 22, охлаждение с 22.5 до 22
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.IDLE, 21.6, 22, 0.5, 3, false));
+        assertEquals(ClimateMode.HEATING, decide(ClimateMode.IDLE, 21.5, 22, 0.5, 3, false));
+        assertEquals(ClimateMode.HEATING, decide(ClimateMode.HEATING, 21.9, 22, 0.5, 3, false));
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.HEATING, 22.0, 22, 0.5, 3, false));
+
+        assertEquals(ClimateMode.COOLING, decide(ClimateMode.IDLE, 22.5, 22, 0.5, 3, false));
+        assertEquals(ClimateMode.COOLING, decide(ClimateMode.COOLING, 22.1, 22, 0.5, 3, false));
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.COOLING, 22.0, 22, 0.5, 3, false));
+    }
+
+    @Test
+    public void testEcoSetbackWidensDeadband() {
+        // В свободной комнате допустимо от 18.5 до 25.5
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.IDLE, 20, 22, 0.5, 3, true));
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.HEATING, 19, 22, 0.5, 3, true));
+        assertEquals(ClimateMode.HEATING, decide(ClimateMode.IDLE, 18.5, 22, 0.5, 3, true));
+        assertEquals(ClimateMode.IDLE, decide(ClimateMode.IDLE, 25, 22, 0.5, 3, true));
+        assertEquals(ClimateMode.COOLING, decide(ClimateMode.IDLE, 25.5, 22, 0.5, 3, true));
+    }
+
+    private static Room room(String roomNumber) {
+        Room room = new Room();
+        room.setRoomNumber(roomNumber);
+        return room;
+    }
+}
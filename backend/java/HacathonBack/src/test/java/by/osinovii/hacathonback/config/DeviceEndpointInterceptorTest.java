@@ -0,0 +1,50 @@
+package by.osinovii.hacathonback.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceEndpointInterceptorTest {
+
+    private final DeviceEndpointInterceptor interceptor = new DeviceEndpointInterceptor();
+
+    @Test
+    public void testDeviceSessionMaySendState() {
+        Map<String, Object> attributes = new HashMap<>();
+        assertTrue(interceptor.beforeHandshake(null, null, null, attributes));
+
+        Message<?> message = frame(StompCommand.SEND, "/app/device/101/state", attributes);
+        assertSame(message, interceptor.preSend(message, null));
+    }
+
+    @Test
+    public void testOtherSessionsCannotSendState() {
+        Message<?> message = frame(StompCommand.SEND, "/app/device/101/state", new HashMap<>());
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message, null));
+    }
+
+    @Test
+    public void testOtherDestinationsAndFramesAreIgnored() {
+        Message<?> send = frame(StompCommand.SEND, "/app/socket", new HashMap<>());
+        assertSame(send, interceptor.preSend(send, null));
+
+        Message<?> subscribe = frame(StompCommand.SUBSCRIBE, "/topic/devices/101/state", new HashMap<>());
+        assertSame(subscribe, interceptor.preSend(subscribe, null));
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, Map<String, Object> attributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setSessionAttributes(attributes);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,56 @@
+package by.osinovii.hacathonback.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class JdbcConcurrencyLimiterTest {
+
+    private final MessageHandler annotationHandler = mock(SimpAnnotationMethodMessageHandler.class);
+
+    @Test
+    public void testHandlersWaitForPermit() throws Exception {
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(1);
+        Message<?> first = message(SimpMessageType.MESSAGE);
+        limiter.beforeHandle(first, null, annotationHandler);
+
+        CountDownLatch handled = new CountDownLatch(1);
+        Thread second = Thread.ofVirtual().start(() -> {
+            limiter.beforeHandle(message(SimpMessageType.MESSAGE), null, annotationHandler);
+            handled.countDown();
+        });
+        assertFalse(handled.await(100, TimeUnit.MILLISECONDS), "Второй обработчик ждет разрешения");
+        assertEquals(1, limiter.getQueueLength());
+
+        limiter.afterMessageHandled(first, null, annotationHandler, new IllegalStateException());
+        assertTrue(handled.await(1, TimeUnit.SECONDS), "Разрешение возвращается и после ошибки обработчика");
+        second.join();
+    }
+
+    @Test
+    public void testBrokerAndSubscriptionsAreNotLimited() {
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(1);
+        limiter.beforeHandle(message(SimpMessageType.MESSAGE), null, annotationHandler);
+
+        // Без ограничения: иначе вызов заблокировал бы поток теста
+        limiter.beforeHandle(message(SimpMessageType.SUBSCRIBE), null, annotationHandler);
+        limiter.beforeHandle(message(SimpMessageType.MESSAGE), null, mock(MessageHandler.class));
+        assertEquals(0, limiter.getQueueLength());
+    }
+
+    private static Message<byte[]> message(SimpMessageType type) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination("/app/guest/door/open");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
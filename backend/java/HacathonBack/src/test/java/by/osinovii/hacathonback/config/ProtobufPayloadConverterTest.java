@@ -0,0 +1,43 @@
+package by.osinovii.hacathonback.config;
+
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtobufPayloadConverterTest {
+
+    private final ProtobufPayloadConverter converter = new ProtobufPayloadConverter();
+
+    @Test
+    public void testRoundTripAsOctetStream() {
+        State state = State.newBuilder()
+                .setDoorLock(DoorLockStates.Close)
+                .setTemperature(22.5f)
+                .setHumidity(40f)
+                .build();
+
+        Message<?> message = converter.toMessage(state, new MessageHeaders(Map.of()));
+        assertNotNull(message);
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM,
+                message.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+        Object parsed = converter.fromMessage(message, State.class);
+        assertEquals(state, parsed);
+    }
+
+    @Test
+    public void testIgnoresFramesWithoutContentTypeAndNonProtobufPayloads() {
+        Message<byte[]> untyped = MessageBuilder.withPayload(new byte[]{1, 2}).build();
+        assertNull(converter.fromMessage(untyped, State.class), "JSON-кадры без content-type обрабатывает Jackson");
+
+        assertNull(converter.toMessage(Map.of("a", 1), new MessageHeaders(Map.of())));
+    }
+}
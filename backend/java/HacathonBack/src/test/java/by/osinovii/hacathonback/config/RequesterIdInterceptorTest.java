@@ -0,0 +1,44 @@
+package by.osinovii.hacathonback.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequesterIdInterceptorTest {
+
+    private final RequesterIdInterceptor interceptor = new RequesterIdInterceptor();
+
+    @Test
+    public void testConnectWithRequesterIdSetsUser() {
+        Message<?> message = interceptor.preSend(frame(StompCommand.CONNECT, "guest-42"), null);
+
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        assertNotNull(user);
+        assertEquals("guest-42", user.getName());
+    }
+
+    @Test
+    public void testOtherFramesAndMissingHeaderAreIgnored() {
+        Message<?> connect = interceptor.preSend(frame(StompCommand.CONNECT, null), null);
+        assertNull(SimpMessageHeaderAccessor.getUser(connect.getHeaders()));
+
+        Message<?> send = interceptor.preSend(frame(StompCommand.SEND, "guest-42"), null);
+        assertNull(SimpMessageHeaderAccessor.getUser(send.getHeaders()));
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String requesterId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        if (requesterId != null) {
+            accessor.addNativeHeader(RequesterIdInterceptor.REQUESTER_ID_HEADER, requesterId);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
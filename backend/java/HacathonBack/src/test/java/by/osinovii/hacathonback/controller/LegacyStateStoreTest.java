@@ -0,0 +1,81 @@
+package by.osinovii.hacathonback.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LegacyStateStoreTest {
+
+    private static final int ITERATIONS = 2000;
+
+    private final LegacyStateStore store = new LegacyStateStore();
+
+    @Test
+    public void testPhoneChangesAreNotLostDuringCheckIns() throws Exception {
+        String guestId = store.addGuest("Иван", "Петров", "i@p.by", "0").id();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // Телефон меняется без заселения, одновременно гостя заселяют в комнаты двумя способами
+            Future<?> phones = executor.submit(() -> {
+                await(start);
+                for (int i = 1; i <= ITERATIONS; i++) {
+                    store.updateGuest(guestId, new LegacyStateStore.GuestUpdate(String.valueOf(i), false, false, null, null));
+                    assertEquals(String.valueOf(i), phoneOf(guestId), "Изменение телефона перезаписано");
+                }
+            });
+            Future<?> checkIns = executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    store.updateGuest(guestId, new LegacyStateStore.GuestUpdate(null, true, false, "10001", null));
+                }
+            });
+            Future<?> assignments = executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    store.assignMultipleGuests("10002", List.of(guestId), null);
+                }
+            });
+            start.countDown();
+            phones.get(30, TimeUnit.SECONDS);
+            checkIns.get(30, TimeUnit.SECONDS);
+            assignments.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(String.valueOf(ITERATIONS), phoneOf(guestId));
+        assertNotNull(store.getGuests().iterator().next().roomId());
+    }
+
+    @Test
+    public void testUnknownGuestIsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                store.updateGuest("missing", new LegacyStateStore.GuestUpdate("1", false, false, null, null)));
+        assertThrows(IllegalArgumentException.class, () ->
+                store.assignMultipleGuests("10001", List.of("missing"), null));
+    }
+
+    private String phoneOf(String guestId) {
+        return store.getGuests().stream()
+                .filter(guest -> guest.id().equals(guestId))
+                .findFirst()
+                .orElseThrow()
+                .phone();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package by.osinovii.hacathonback.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WebSocketControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpMessagingTemplate messagingTemplate;
+    private WebSocketController controller;
+
+    @BeforeEach
+    public void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        controller = new WebSocketController(messagingTemplate, new LegacyStateStore());
+    }
+
+    @Test
+    public void testCheckInAndCheckOutThroughUpdateGuest() throws Exception {
+        JsonNode added = send("{\"action\":\"add_guest\",\"data\":{\"first_name\":\"Иван\",\"last_name\":\"Петров\",\"email\":\"i@p.by\",\"phone\":\"1\"}}");
+        assertEquals("add_guest", added.get("action").asText());
+        String guestId = added.get("data").get("id").asText();
+
+        // Поле room_id отсутствует - меняется только телефон
+        JsonNode phoneOnly = send("{\"data\":{\"id\":\"" + guestId + "\",\"phone\":\"2\"},\"action\":\"update_guest\"}");
+        assertEquals("2", phoneOnly.get("data").get("phone").asText());
+        assertTrue(phoneOnly.get("data").get("room_id").isNull());
+
+        JsonNode checkedIn = send("{\"action\":\"update_guest\",\"data\":{\"id\":\"" + guestId + "\",\"room_id\":10001}}");
+        assertEquals("10001", checkedIn.get("data").get("room_id").asText());
+
+        JsonNode rooms = send("{\"action\":\"get_rooms\"}");
+        JsonNode room = findById(rooms.get("data").get("rooms"), "10001");
+        assertEquals("occupied", room.get("status").asText());
+        assertEquals(1, room.get("current_guests_count").asInt());
+
+        // room_id: null - выселение
+        JsonNode checkedOut = send("{\"action\":\"update_guest\",\"data\":{\"id\":\"" + guestId + "\",\"room_id\":null,\"check_out_date\":\"2025-01-01\"}}");
+        assertTrue(checkedOut.get("data").get("room_id").isNull());
+        assertEquals("2025-01-01", checkedOut.get("data").get("check_out_date").asText());
+    }
+
+    @Test
+    public void testErrorsKeepProtocolShape() throws Exception {
+        JsonNode unknown = send("{\"action\":\"fly\"}");
+        assertEquals("error", unknown.get("action").asText());
+        assertEquals("Неизвестное действие: fly", unknown.get("data").get("message").asText());
+
+        JsonNode missingRoom = send("{\"action\":\"update_room\",\"data\":{\"id\":\"1\",\"status\":\"free\"}}");
+        assertEquals("Комната с ID 1 не найдена", missingRoom.get("data").get("message").asText());
+
+        // Сообщение, закодированное как JSON-строка, тоже принимается
+        JsonNode legacy = send(objectMapper.writeValueAsString("{\"action\":\"get_guests\"}"));
+        assertEquals("initial_data", legacy.get("action").asText());
+    }
+
+    @Test
+    public void testQueriesGoToRequesterAndMutationsToOneEntityTopic() throws Exception {
+        send("{\"action\":\"get_rooms\"}");
+        verify(messagingTemplate).send(eq("/user/s1/queue/messages"), any(Message.class));
+        verify(messagingTemplate, times(1)).send(any(String.class), any(Message.class));
+        clearInvocations(messagingTemplate);
+
+        send("{\"action\":\"update_room\",\"data\":{\"id\":\"10002\",\"status\":\"cleaning\"}}");
+        verify(messagingTemplate).send(eq("/topic/rooms/10002"), any(Message.class));
+        verify(messagingTemplate, times(1)).send(any(String.class), any(Message.class));
+        clearInvocations(messagingTemplate);
+
+        // Заселение - одно событие в топик гостя, без копии запросившему
+        JsonNode added = send("{\"action\":\"add_guest\",\"data\":{\"first_name\":\"Анна\",\"last_name\":\"Козлова\"}}");
+        verify(messagingTemplate).send(eq("/topic/guests"), any(Message.class));
+        String guestId = added.get("data").get("id").asText();
+        clearInvocations(messagingTemplate);
+
+        send("{\"action\":\"update_guest\",\"data\":{\"id\":\"" + guestId + "\",\"room_id\":10003}}");
+        verify(messagingTemplate).send(eq("/topic/guests/" + guestId), any(Message.class));
+        verify(messagingTemplate, times(1)).send(any(String.class), any(Message.class));
+    }
+
+    // Последнее отправленное сообщение: ответ запросившей сессии или событие в топике
+    private JsonNode send(String json) throws Exception {
+        Message<byte[]> message = MessageBuilder.withPayload(json.getBytes(StandardCharsets.UTF_8))
+                .setHeader(SimpMessageHeaderAccessor.SESSION_ID_HEADER, "s1")
+                .build();
+        controller.handleSocketMessage(message);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<byte[]>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, atLeastOnce()).send(any(String.class), captor.capture());
+        return objectMapper.readTree(captor.getValue().getPayload());
+    }
+
+    private static JsonNode findById(JsonNode items, String id) {
+        for (JsonNode item : items) {
+            if (id.equals(item.get("id").asText())) {
+                return item;
+            }
+        }
+        return fail("Не найден элемент с ID " + id);
+    }
+}
@@ -0,0 +1,109 @@
+package by.osinovii.hacathonback.eventlog;
+
+import by.osinovii.hacathonback.iot.IoTAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAppendRollAndRecover() throws Exception {
+        EventLog eventLog = new EventLog(directory.toString(), 100, 1, 10);
+        for (int i = 0; i < 250; i++) {
+            eventLog.append(DeviceEventType.SENT, IoTAction.DOOR_OPEN, i % 2 == 0 ? "101" : "102", i, i, 0);
+        }
+        long last = eventLog.append(DeviceEventType.SUCCEEDED, IoTAction.SET_TEMPERATURE, "101", 7, 42, 21.5);
+        assertEquals(250, last);
+        assertEquals(250L, eventLog.awaitDurable(last).get(5, TimeUnit.SECONDS));
+        eventLog.close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+
+        // После перезапуска журнал продолжается с той же записи
+        EventLog reopened = new EventLog(directory.toString(), 100, 1, 10);
+        try {
+            assertEquals(251, reopened.size());
+            assertEquals(251, reopened.append(DeviceEventType.REQUESTED, IoTAction.DOOR_CLOSE, "101", 1, 0, 0));
+
+            List<DeviceEvent> replayed = new ArrayList<>();
+            reopened.replay(249, replayed::add);
+            assertEquals(3, replayed.size());
+            DeviceEvent event = replayed.get(1);
+            assertEquals(250, event.sequence());
+            assertEquals(DeviceEventType.SUCCEEDED, event.type());
+            assertEquals(IoTAction.SET_TEMPERATURE, event.action());
+            assertEquals("101", event.roomNumber());
+            assertEquals(7, event.guestId());
+            assertEquals(42, event.correlationId());
+            assertEquals(21.5f, event.value());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testQueryByRoomAndTime() {
+        EventLog eventLog = new EventLog(directory.toString(), 64, 1, 10);
+        try {
+            long before = System.currentTimeMillis();
+            for (int i = 0; i < 200; i++) {
+                eventLog.append(DeviceEventType.SENT, IoTAction.LIGHT_ON, "room-" + (i % 4), 0, i, 0);
+            }
+            long after = System.currentTimeMillis();
+
+            List<DeviceEvent> events = eventLog.query("room-1", before, after, 1000);
+            assertEquals(50, events.size());
+            assertTrue(events.stream().allMatch(event -> "room-1".equals(event.roomNumber())));
+            assertEquals(1, events.get(0).correlationId());
+
+            assertEquals(10, eventLog.query("room-1", before, after, 10).size());
+            assertTrue(eventLog.query("room-1", after + 1, after + 1000, 10).isEmpty());
+            assertTrue(eventLog.query("room-9", before, after, 10).isEmpty());
+        } finally {
+            eventLog.close();
+        }
+    }
+
+    @Test
+    public void testOldestSegmentsAreDeletedBeyondLimit() throws Exception {
+        EventLog eventLog = new EventLog(directory.toString(), 10, 1, 3);
+        try {
+            long before = System.currentTimeMillis();
+            for (int i = 0; i < 55; i++) {
+                eventLog.append(DeviceEventType.SENT, IoTAction.LIGHT_ON, "101", 0, i, 0);
+            }
+            long after = System.currentTimeMillis();
+
+            // Остаются сегменты с записей 30, 40 и 50 (текущий)
+            try (var files = Files.list(directory)) {
+                assertEquals(3, files.count());
+            }
+            assertEquals(55, eventLog.size());
+
+            List<DeviceEvent> replayed = new ArrayList<>();
+            eventLog.replay(0, replayed::add);
+            assertEquals(25, replayed.size());
+            assertEquals(30, replayed.get(0).sequence());
+            assertEquals(54, replayed.get(24).sequence());
+
+            List<DeviceEvent> events = eventLog.query("101", before, after, 1000);
+            assertEquals(25, events.size());
+            assertEquals(30, events.get(0).correlationId());
+        } finally {
+            eventLog.close();
+        }
+    }
+}
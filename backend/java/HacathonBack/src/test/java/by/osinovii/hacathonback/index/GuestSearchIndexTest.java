@@ -0,0 +1,71 @@
+package by.osinovii.hacathonback.index;
+
+import by.osinovii.hacathonback.entities.Guest;
+import by.osinovii.hacathonback.entities.Room;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GuestSearchIndexTest {
+
+    @Test
+    public void testSearchIsCaseInsensitiveAndRanked() {
+        GuestSearchIndex index = new GuestSearchIndex();
+        index.rebuild(List.of(
+                guest(1L, "Иван", "Петровский", "ivan@mail.ru", "+7-999-111-11-11", "101"),
+                guest(2L, "Анна", "Петрова", "anna@mail.ru", "+7-999-222-22-22", "202"),
+                guest(3L, "Петр", "Сидоров", "petr@mail.ru", null, "301"),
+                guest(4L, "Олег", "Петров", null, null, "302")
+        ));
+
+        // Полное совпадение выше префикса, при равенстве - по ID
+        assertEquals(List.of(4L, 1L, 2L), index.search("ПЕТРОВ", "lastName", 10));
+        assertEquals(List.of(3L, 1L, 2L, 4L), index.search("петр", "default", 10));
+        assertEquals(List.of(3L), index.search("петр", "default", 1));
+    }
+
+    @Test
+    public void testSearchFieldModes() {
+        GuestSearchIndex index = new GuestSearchIndex();
+        index.rebuild(List.of(
+                guest(1L, "Иван", "Иванов", "ivanov@mail.ru", "+7-999-123-45-67", "101"),
+                guest(2L, "Анна", "Петрова", "petrova@mail.ru", "+7-999-765-43-21", "202")
+        ));
+
+        assertEquals(List.of(2L), index.search("PETROVA@", "email", 10));
+        assertEquals(List.of(1L), index.search("123", "phone", 10));
+        assertEquals(List.of(2L), index.search("20", "roomNumber", 10));
+        assertTrue(index.search("202", "default", 10).isEmpty(), "Номер комнаты не участвует в поиске по умолчанию");
+        assertEquals(List.of(1L, 2L), index.search("", "lastName", 10));
+    }
+
+    @Test
+    public void testPutReplacesPreviousValues() {
+        GuestSearchIndex index = new GuestSearchIndex();
+        Guest guest = guest(1L, "Иван", "Иванов", null, null, "101");
+        index.rebuild(List.of(guest));
+
+        guest.setLastName("Смирнов");
+        index.put(guest);
+
+        assertTrue(index.search("иванов", "lastName", 10).isEmpty());
+        assertEquals(List.of(1L), index.search("смирн", "lastName", 10));
+        assertEquals(1, index.size());
+    }
+
+    private static Guest guest(Long id, String firstName, String lastName, String email, String phone, String roomNumber) {
+        Room room = new Room();
+        room.setRoomNumber(roomNumber);
+
+        Guest guest = new Guest();
+        guest.setId(id);
+        guest.setFirstName(firstName);
+        guest.setLastName(lastName);
+        guest.setEmail(email);
+        guest.setPhone(phone);
+        guest.setRoom(room);
+        return guest;
+    }
+}
@@ -0,0 +1,47 @@
+package by.osinovii.hacathonback.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomChangeLogTest {
+
+    @Test
+    public void testChangesSinceReturnsEachRoomOnce() {
+        RoomChangeLog changeLog = new RoomChangeLog(100);
+        long start = changeLog.currentVersion();
+
+        changeLog.record(1L);
+        long afterFirst = changeLog.record(2L);
+        changeLog.record(1L);
+
+        RoomChangeLog.Delta all = changeLog.changesSince(start).orElseThrow();
+        assertEquals(List.of(2L, 1L), all.roomIds());
+        assertEquals(changeLog.currentVersion(), all.version());
+
+        assertEquals(List.of(1L), changeLog.changesSince(afterFirst).orElseThrow().roomIds());
+        assertTrue(changeLog.changesSince(changeLog.currentVersion()).orElseThrow().roomIds().isEmpty());
+    }
+
+    @Test
+    public void testClientBehindRetainedWindowNeedsSnapshot() {
+        RoomChangeLog changeLog = new RoomChangeLog(2);
+        long start = changeLog.currentVersion();
+
+        changeLog.record(1L);
+        long afterFirst = changeLog.record(2L);
+        changeLog.record(3L);
+
+        assertEquals(Optional.empty(), changeLog.changesSince(start));
+        assertEquals(List.of(3L), changeLog.changesSince(afterFirst).orElseThrow().roomIds());
+        assertEquals(Optional.empty(), changeLog.changesSince(changeLog.currentVersion() + 1),
+                "Версия из будущего (после перезапуска) требует полного снимка");
+
+        changeLog.reset();
+        assertEquals(Optional.empty(), changeLog.changesSince(afterFirst));
+        assertEquals(0, changeLog.size());
+    }
+}
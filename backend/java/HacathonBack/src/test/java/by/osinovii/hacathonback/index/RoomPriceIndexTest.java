@@ -0,0 +1,45 @@
+package by.osinovii.hacathonback.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomPriceIndexTest {
+
+    @Test
+    public void testRangeIsInclusiveAndSortedByPrice() {
+        RoomPriceIndex index = new RoomPriceIndex();
+        index.rebuild(new long[]{1, 2, 3, 4}, new long[]{25000, 10000, 15000, 10000});
+
+        assertArrayEquals(new long[]{2, 4, 3}, index.range(10000, 15000));
+        assertArrayEquals(new long[]{1}, index.range(20000, Long.MAX_VALUE));
+        assertEquals(0, index.range(30000, 40000).length);
+        assertEquals(0, index.range(15000, 10000).length);
+    }
+
+    @Test
+    public void testPutMovesRoomToNewPrice() {
+        RoomPriceIndex index = new RoomPriceIndex();
+        index.rebuild(new long[]{1, 2}, new long[]{10000, 20000});
+
+        index.put(1, 30000);
+        index.put(3, 20000);
+
+        assertArrayEquals(new long[]{2, 3, 1}, index.range(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, index.range(10000, 10000).length, "Старая цена комнаты должна быть удалена из индекса");
+
+        index.remove(2);
+        assertArrayEquals(new long[]{3}, index.range(20000, 20000));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testToCentsRoundsBoundsInward() {
+        assertEquals(10001, RoomPriceIndex.toCents(new BigDecimal("100.001"), RoundingMode.CEILING));
+        assertEquals(10000, RoomPriceIndex.toCents(new BigDecimal("100.009"), RoundingMode.FLOOR));
+        assertEquals(15000, RoomPriceIndex.toCents(new BigDecimal("150"), RoundingMode.HALF_UP));
+    }
+}
@@ -0,0 +1,103 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.iot.proto.ClientMessage;
+import by.osinovii.hacathonback.iot.proto.ControllerResponse;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.SetState;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.iot.proto.States;
+import by.osinovii.hacathonback.iot.proto.Statuses;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceSimulatorTest {
+
+    @Test
+    public void testSetStateIsAppliedAndReported() {
+        List<State> reported = new ArrayList<>();
+        DeviceSimulator simulator = new DeviceSimulator(settings(42, 0, 0, 0), (id, frame) -> reported.add(parse(frame).getState()));
+
+        CompletableFuture<byte[]> reply = simulator.send("101", setState(States.DoorLockOpen));
+        advance(simulator, 1);
+
+        assertEquals(Statuses.Ok, parse(reply.join()).getStatus());
+        assertEquals(1, reported.size(), "Контроллер сообщает состояние после изменения");
+        assertEquals(DoorLockStates.Open, reported.get(0).getDoorLock());
+    }
+
+    @Test
+    public void testFailureInjection() {
+        DeviceSimulator failing = new DeviceSimulator(settings(42, 0, 1, 0), (id, frame) -> fail("Состояние не меняется"));
+        CompletableFuture<byte[]> error = failing.send("101", setState(States.LightOn));
+        advance(failing, 1);
+        assertEquals(Statuses.Error, parse(error.join()).getStatus());
+
+        DeviceSimulator silent = new DeviceSimulator(settings(42, 0, 0, 1), (id, frame) -> { });
+        CompletableFuture<byte[]> dropped = silent.send("101", setState(States.LightOn));
+        advance(silent, 10);
+        assertFalse(dropped.isDone(), "Без ответа команду завершает таймаут шлюза");
+    }
+
+    @Test
+    public void testReadingsAreDeterministicForSeed() {
+        assertEquals(readings(7), readings(7));
+        assertNotEquals(readings(7), readings(8));
+    }
+
+    @Test
+    public void testDevicesAreSpreadOverLoops() {
+        DeviceSimulator simulator = new DeviceSimulator(
+                new DeviceSimulator.Settings(1, 5, 0, 0, 0, 0, 100, 10, 64), (id, frame) -> { });
+        for (int i = 0; i < 250; i++) {
+            simulator.register(String.valueOf(100 + i));
+        }
+        assertEquals(250, simulator.deviceCount());
+        assertEquals(3, simulator.loopCount());
+    }
+
+    /**
+     * Показания трех комнат за 50 периодов отправки State
+     */
+    private static List<String> readings(long seed) {
+        List<String> readings = new ArrayList<>();
+        DeviceSimulator simulator = new DeviceSimulator(
+                new DeviceSimulator.Settings(seed, 5, 100, 0.2, 0, 0, 1024, 10, 64),
+                (id, frame) -> {
+                    State state = parse(frame).getState();
+                    readings.add(id + ":" + state.getTemperature() + "/" + state.getHumidity() + "/" + state.getPressure());
+                });
+        for (String room : List.of("101", "102", "103")) {
+            simulator.register(room);
+        }
+        advance(simulator, 500);
+        assertTrue(readings.size() >= 120);
+        return readings;
+    }
+
+    private static DeviceSimulator.Settings settings(long seed, long stateIntervalMs, double errorRate, double dropRate) {
+        return new DeviceSimulator.Settings(seed, 5, stateIntervalMs, 0, errorRate, dropRate, 1024, 10, 64);
+    }
+
+    private static byte[] setState(States state) {
+        return ClientMessage.newBuilder().setSetState(SetState.newBuilder().setState(state)).build().toByteArray();
+    }
+
+    private static ControllerResponse parse(byte[] frame) {
+        try {
+            return ControllerResponse.parseFrom(frame);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void advance(DeviceSimulator simulator, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            simulator.tick();
+        }
+    }
+}
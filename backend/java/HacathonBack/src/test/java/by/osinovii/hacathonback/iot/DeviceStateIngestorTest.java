@@ -0,0 +1,58 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.config.ProtobufPayloadConverter;
+import by.osinovii.hacathonback.iot.proto.ChannelStates;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.LighStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DeviceStateIngestorTest {
+
+    @Test
+    public void testStateIsPublishedAsJson() throws Exception {
+        List<Message<?>> sent = new ArrayList<>();
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        // Конвертеры в порядке WebSocketConfig: protobuf первым, затем Jackson
+        template.setMessageConverter(new CompositeMessageConverter(
+                List.of(new ProtobufPayloadConverter(), new MappingJackson2MessageConverter())));
+        DeviceStateIngestor ingestor = new DeviceStateIngestor(template, mock(TelemetryService.class),
+                mock(DeviceStateRegistry.class));
+
+        ingestor.ingest("101", State.newBuilder()
+                .setLightOn(LighStates.On)
+                .setDoorLock(DoorLockStates.Close)
+                .setChannel1(ChannelStates.ChannelOff)
+                .setTemperature(22.5f)
+                .build());
+
+        assertEquals(1, sent.size());
+        Message<?> message = sent.get(0);
+        assertEquals("/topic/devices/101/state", SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        assertEquals(MimeTypeUtils.APPLICATION_JSON,
+                MimeTypeUtils.parseMimeType(message.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString()));
+
+        JsonNode json = new ObjectMapper().readTree((byte[]) message.getPayload());
+        assertEquals("101", json.get("roomNumber").asText());
+        assertTrue(json.get("devices").get("lightOn").asBoolean());
+        assertTrue(json.get("devices").get("doorLocked").asBoolean());
+        assertFalse(json.get("devices").get("channel1On").asBoolean());
+        assertEquals(22.5, json.get("temperature").asDouble(), 1e-6);
+    }
+}
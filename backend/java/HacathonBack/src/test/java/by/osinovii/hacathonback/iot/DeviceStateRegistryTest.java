@@ -0,0 +1,118 @@
+package by.osinovii.hacathonback.iot;
+
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.iot.proto.ChannelStates;
+import by.osinovii.hacathonback.iot.proto.DoorLockStates;
+import by.osinovii.hacathonback.iot.proto.LighStates;
+import by.osinovii.hacathonback.iot.proto.State;
+import by.osinovii.hacathonback.iot.proto.States;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class DeviceStateRegistryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private RoomRegistry roomRegistry;
+    private DeviceStateRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        roomRegistry = new RoomRegistry();
+        roomRegistry.rebuild(IntStream.rangeClosed(101, 103)
+                .mapToObj(number -> room((long) number, String.valueOf(number)))
+                .toList());
+        registry = new DeviceStateRegistry(jdbcTemplate, roomRegistry, 16, 2);
+    }
+
+    @Test
+    public void testStateAndCommandsUpdateBits() {
+        assertTrue(registry.getState("101").isEmpty());
+        registry.apply("101", States.LightOn);
+
+        DeviceStateRegistry.DeviceState state = registry.getState("101").orElseThrow();
+        assertEquals(true, state.lightOn());
+        assertNull(state.doorLocked());
+
+        registry.apply("101", State.newBuilder()
+                .setLightOn(LighStates.Off)
+                .setDoorLock(DoorLockStates.Close)
+                .setChannel1(ChannelStates.ChannelOn)
+                .setChannel2(ChannelStates.ChannelOff)
+                .build());
+        assertEquals(new DeviceStateRegistry.DeviceState(false, true, true, false),
+                registry.getState("101").orElseThrow());
+
+        // Повтор того же состояния ничего не меняет
+        assertFalse(registry.apply("101", States.DoorLockClose));
+        registry.onCompleted(new IoTCommand(1, "101", IoTAction.DOOR_OPEN, 0, 0), new IoTResponse(1, true, "ok"), null);
+        assertEquals(false, registry.getState("101").orElseThrow().doorLocked());
+    }
+
+    @Test
+    public void testUnknownRoomsAreIgnored() {
+        assertFalse(registry.apply("999", States.LightOn));
+        assertTrue(registry.getState("999").isEmpty());
+        assertEquals(0, registry.pendingCount());
+
+        // Комната, появившаяся в реестре позже, получает слот
+        roomRegistry.put(room(999L, "999"));
+        assertTrue(registry.apply("999", States.LightOn));
+        assertEquals(true, registry.getState("999").orElseThrow().lightOn());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBurstIsWrittenOncePerRoomInBatches() {
+        for (int i = 0; i < 100; i++) {
+            registry.apply("101", i % 2 == 0 ? States.LightOn : States.LightOff);
+            registry.apply("102", i % 2 == 0 ? States.Channel1On : States.Channel1Off);
+        }
+        registry.apply("103", States.DoorLockOpen);
+        assertEquals(3, registry.pendingCount());
+
+        registry.flush();
+
+        // Три комнаты пакетами по две строки
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(0, registry.pendingCount());
+
+        clearInvocations(jdbcTemplate);
+        registry.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        registry.apply("101", States.LightOn);
+        registry.flush();
+        assertEquals(1, registry.pendingCount());
+
+        reset(jdbcTemplate);
+        registry.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(0, registry.pendingCount());
+    }
+
+    private static Room room(Long id, String roomNumber) {
+        Room room = new Room();
+        room.setId(id);
+        room.setRoomNumber(roomNumber);
+        room.setRoomType("STANDARD");
+        room.setStatus("AVAILABLE");
+        return room;
+    }
+}
@@ -0,0 +1,167 @@
+package by.osinovii.hacathonback.iot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IoTGatewayTest {
+
+    /**
+     * Транспорт, ответы которого тест завершает вручную
+     */
+    private static final class ManualTransport implements IoTTransport {
+        final List<IoTCommand> sent = new ArrayList<>();
+        final List<CompletableFuture<IoTResponse>> replies = new ArrayList<>();
+
+        @Override
+        public synchronized CompletableFuture<IoTResponse> send(IoTCommand command) {
+            sent.add(command);
+            CompletableFuture<IoTResponse> reply = new CompletableFuture<>();
+            replies.add(reply);
+            return reply;
+        }
+
+        @Override
+        public String name() {
+            return "manual";
+        }
+
+        void reply(int index) {
+            replies.get(index).complete(new IoTResponse(sent.get(index).correlationId(), true, "ok"));
+        }
+    }
+
+    @Test
+    public void testCommandsOfDifferentGroupsArePipelined() {
+        ManualTransport transport = new ManualTransport();
+        IoTGateway gateway = new IoTGateway(transport, List.of(), 4, 1000, 64);
+
+        CompletableFuture<IoTResponse> door = gateway.submit("101", IoTAction.DOOR_OPEN);
+        CompletableFuture<IoTResponse> light = gateway.submit("101", IoTAction.LIGHT_ON);
+
+        assertEquals(2, transport.sent.size(), "Команды разных групп отправляются без ожидания ответа");
+        assertNotEquals(transport.sent.get(0).correlationId(), transport.sent.get(1).correlationId());
+
+        transport.reply(1);
+        assertTrue(light.isDone());
+        assertFalse(door.isDone());
+        transport.reply(0);
+        assertTrue(door.join().success());
+        assertEquals(0, gateway.pendingCount("101"));
+    }
+
+    @Test
+    public void testRedundantCommandsAreCoalesced() {
+        ManualTransport transport = new ManualTransport();
+        IoTGateway gateway = new IoTGateway(transport, List.of(), 4, 1000, 64);
+
+        CompletableFuture<IoTResponse> first = gateway.submit("101", IoTAction.DOOR_CLOSE);
+        // Повтор выполняющейся команды не отправляется повторно
+        assertSame(first, gateway.submit("101", IoTAction.DOOR_CLOSE));
+
+        // Пока дверь закрывается, открытие ждет в очереди; его повтор получает тот же результат
+        CompletableFuture<IoTResponse> open = gateway.submit("101", IoTAction.DOOR_OPEN);
+        assertSame(open, gateway.submit("101", IoTAction.DOOR_OPEN));
+
+        // Закрытие отменяет ждущее открытие и совпадает с выполняющейся командой
+        CompletableFuture<IoTResponse> close = gateway.submit("101", IoTAction.DOOR_CLOSE);
+        assertSame(first, close);
+        CompletionException error = assertThrows(CompletionException.class, open::join);
+        assertInstanceOf(IoTCommandSupersededException.class, error.getCause(),
+                "Вызывающие замененную команду не получают результат другого действия");
+
+        transport.reply(0);
+        assertEquals(1, transport.sent.size());
+        assertTrue(close.join().success());
+        assertEquals(0, gateway.pendingCount("101"));
+    }
+
+    @Test
+    public void testSupersedingCommandRunsOnItsOwn() {
+        ManualTransport transport = new ManualTransport();
+        List<IoTCommand> completed = new ArrayList<>();
+        IoTGateway gateway = new IoTGateway(transport, List.of(new IoTCommandListener() {
+            @Override
+            public void onSent(IoTCommand command) {
+            }
+
+            @Override
+            public void onCompleted(IoTCommand command, IoTResponse response, Throwable error) {
+                completed.add(command);
+            }
+        }), 4, 1000, 64);
+
+        gateway.submit("101", IoTAction.SET_TEMPERATURE, 20);
+        CompletableFuture<IoTResponse> warmer = gateway.submit("101", IoTAction.SET_TEMPERATURE, 21);
+        CompletableFuture<IoTResponse> warmest = gateway.submit("101", IoTAction.SET_TEMPERATURE, 22);
+        assertNotSame(warmer, warmest);
+        assertTrue(warmer.isCompletedExceptionally());
+        assertEquals(21, completed.get(0).value(), "Замена команды сообщается наблюдателям");
+
+        transport.reply(0);
+        assertEquals(2, transport.sent.size());
+        assertEquals(22, transport.sent.get(1).value(), "Из очереди уходит последняя команда группы");
+        assertNotEquals(completed.get(0).correlationId(), transport.sent.get(1).correlationId());
+        transport.reply(1);
+        assertEquals(transport.sent.get(1).correlationId(), warmest.join().correlationId());
+    }
+
+    @Test
+    public void testRequestsAreReportedWithServingCommand() {
+        ManualTransport transport = new ManualTransport();
+        // Наблюдаемые события: "тип:correlationId:guestId"
+        List<String> events = new ArrayList<>();
+        IoTGateway gateway = new IoTGateway(transport, List.of(new IoTCommandListener() {
+            @Override
+            public void onRequested(IoTCommand command, long guestId) {
+                events.add("requested:" + command.correlationId() + ":" + guestId);
+            }
+
+            @Override
+            public void onSent(IoTCommand command) {
+                events.add("sent:" + command.correlationId() + ":" + command.guestId());
+            }
+
+            @Override
+            public void onCompleted(IoTCommand command, IoTResponse response, Throwable error) {
+                events.add("completed:" + command.correlationId() + ":" + command.guestId());
+            }
+        }), 4, 1000, 64);
+
+        gateway.submit("101", IoTAction.DOOR_OPEN, 0, 7);
+        // Повтор другого гостя схлопывается с выполняющейся командой и получает ее correlationId
+        gateway.submit("101", IoTAction.DOOR_OPEN, 0, 8);
+        long correlationId = transport.sent.get(0).correlationId();
+        transport.reply(0);
+
+        assertEquals(List.of(
+                "requested:" + correlationId + ":7",
+                "sent:" + correlationId + ":7",
+                "requested:" + correlationId + ":8",
+                "completed:" + correlationId + ":7"), events);
+    }
+
+    @Test
+    public void testWindowLimitsInFlightCommandsAndTimeoutFails() {
+        ManualTransport transport = new ManualTransport();
+        IoTGateway gateway = new IoTGateway(transport, List.of(), 1, 50, 64);
+
+        CompletableFuture<IoTResponse> door = gateway.submit("101", IoTAction.DOOR_OPEN);
+        CompletableFuture<IoTResponse> light = gateway.submit("101", IoTAction.LIGHT_ON);
+        assertEquals(1, transport.sent.size());
+
+        CompletionException error = assertThrows(CompletionException.class, door::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+
+        // После таймаута окно освобождается и уходит следующая команда
+        assertEquals(2, transport.sent.size());
+        transport.reply(1);
+        assertTrue(light.join().success());
+    }
+}
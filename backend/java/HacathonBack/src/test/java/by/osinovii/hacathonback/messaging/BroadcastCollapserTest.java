@@ -0,0 +1,121 @@
+package by.osinovii.hacathonback.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastCollapserTest {
+
+    private static final long FRESHNESS_MS = 200;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // Назначения разосланных сообщений в порядке отправки
+    private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+    private final BroadcastCollapser collapser = new BroadcastCollapser(
+            new SimpMessagingTemplate((message, timeout) ->
+                    sent.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))),
+            registry, FRESHNESS_MS);
+
+    @AfterEach
+    public void tearDown() {
+        collapser.shutdown();
+    }
+
+    @Test
+    public void testRequestsDuringComputationCollapseIntoOneRerun() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        Supplier<Object> slowList = () -> {
+            computations.incrementAndGet();
+            await(release);
+            return "rooms";
+        };
+
+        Thread first = Thread.ofPlatform().start(() -> collapser.broadcast("/topic/admin/rooms", slowList));
+        waitUntil(() -> computations.get() == 1);
+        for (int i = 0; i < 10; i++) {
+            collapser.broadcast("/topic/admin/rooms", slowList);
+        }
+        release.countDown();
+        first.join();
+
+        assertEquals("/topic/admin/rooms", sent.poll(1, TimeUnit.SECONDS));
+        assertEquals("/topic/admin/rooms", sent.poll(FRESHNESS_MS * 5, TimeUnit.MILLISECONDS),
+                "Запросы во время вычисления обслуживаются одной повторной рассылкой");
+        assertNull(sent.poll(FRESHNESS_MS * 2, TimeUnit.MILLISECONDS));
+        assertEquals(2, computations.get());
+
+        assertEquals(11, registry.get("broadcast.requests").tag("destination", "/topic/admin/rooms")
+                .functionCounter().count());
+        assertEquals(2, registry.get("broadcast.computations").tag("destination", "/topic/admin/rooms")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void testRequestWithinFreshnessWindowIsDeferred() throws Exception {
+        collapser.broadcast("/topic/admin/stats", () -> "stats");
+        assertEquals("/topic/admin/stats", sent.poll(1, TimeUnit.SECONDS));
+
+        long requested = System.nanoTime();
+        collapser.broadcast("/topic/admin/stats", () -> "stats");
+        assertNull(sent.poll(FRESHNESS_MS / 4, TimeUnit.MILLISECONDS), "Ответ свежий - рассылка откладывается");
+        assertEquals("/topic/admin/stats", sent.poll(FRESHNESS_MS * 5, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - requested >= TimeUnit.MILLISECONDS.toNanos(FRESHNESS_MS / 2));
+    }
+
+    @Test
+    public void testSlowRerunDoesNotBlockOtherTopics() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        collapser.broadcast("/topic/admin/guests", () -> "guests");
+        collapser.broadcast("/topic/admin/stats", () -> "stats");
+        assertEquals(2, drain(2));
+
+        // Повторные рассылки обоих топиков; список гостей при этом "зависает"
+        collapser.broadcast("/topic/admin/guests", () -> {
+            await(release);
+            return "guests";
+        });
+        collapser.broadcast("/topic/admin/stats", () -> "stats");
+        try {
+            assertEquals("/topic/admin/stats", sent.poll(FRESHNESS_MS * 5, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+        }
+        assertEquals("/topic/admin/guests", sent.poll(1, TimeUnit.SECONDS));
+    }
+
+    private int drain(int expected) throws InterruptedException {
+        int received = 0;
+        while (received < expected && sent.poll(1, TimeUnit.SECONDS) != null) {
+            received++;
+        }
+        return received;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.get()) {
+            assertTrue(System.nanoTime() < deadline, "Условие не выполнилось за 5 с");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package by.osinovii.hacathonback.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class StompMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StompMetrics stompMetrics = new StompMetrics(registry);
+
+    @Test
+    public void testNormalizeKeepsCardinalityLow() {
+        assertEquals("/topic/devices/{id}/state", StompMetrics.normalize("/topic/devices/101/state"));
+        assertEquals("/user/queue/admin/error", StompMetrics.normalize("/user/admin/queue/admin/error"));
+        assertEquals("/user/queue/messages", StompMetrics.normalize("/user/queue/messages"));
+        assertEquals("/app/device/{id}/state", StompMetrics.normalize("/app/device/{roomNumber}/state"));
+        assertEquals("/topic/admin/rooms", StompMetrics.normalize("/topic/admin/rooms"));
+    }
+
+    @Test
+    public void testUnknownDestinationsAreTaggedAsOther() {
+        stompMetrics.registerDestination("/app/device/{roomNumber}/state");
+        stompMetrics.recordFrame("inbound", "/app/device/101/state", 10);
+        stompMetrics.recordFrame("inbound", "/app/anything-1", 10);
+        stompMetrics.recordFrame("inbound", "/app/anything-else", 10);
+        stompMetrics.recordFrame("outbound", "/user/queue/door-status", 10);
+
+        assertEquals(1, registry.get("stomp.frame.size").tag("destination", "/app/device/{id}/state")
+                .summary().count());
+        assertEquals(2, registry.get("stomp.frame.size").tag("destination", "other").summary().count());
+        assertEquals(1, registry.get("stomp.frame.size").tag("destination", "/user/queue/door-status")
+                .summary().count());
+
+        StompChannelMetricsInterceptor inbound =
+                new StompChannelMetricsInterceptor(stompMetrics, StompChannelMetricsInterceptor.Direction.INBOUND);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/topic/random-a"), null);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub-1", "/queue/random-b"), null);
+        assertEquals(2.0, registry.get("stomp.subscriptions.destination").tag("destination", "other")
+                .gauge().value());
+        assertEquals(1, registry.find("stomp.subscriptions.destination").gauges().size());
+    }
+
+    @Test
+    public void testSubscriptionsAreCountedPerDestination() {
+        StompChannelMetricsInterceptor inbound =
+                new StompChannelMetricsInterceptor(stompMetrics, StompChannelMetricsInterceptor.Direction.INBOUND);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/topic/rooms/101"), null);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub-1", "/topic/admin/rooms"), null);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s2", "sub-0", "/topic/rooms/102"), null);
+
+        assertEquals(2, stompMetrics.subscriptionCount("/topic/rooms/1"));
+        assertEquals(3.0, registry.get("stomp.subscriptions").gauge().value());
+
+        inbound.preSend(frame(SimpMessageType.UNSUBSCRIBE, "s2", "sub-0", null), null);
+        inbound.preSend(frame(SimpMessageType.DISCONNECT, "s1", null, null), null);
+        assertEquals(0, stompMetrics.subscriptionCount("/topic/rooms/1"));
+        assertEquals(0.0, registry.get("stomp.subscriptions").gauge().value());
+    }
+
+    @Test
+    public void testErrorRepliesMarkHandlerOutcome() {
+        StompMetrics.HandlerInvocation ok = stompMetrics.startHandler();
+        stompMetrics.handlerReplied(Map.of("success", true, "message", "Дверь открыта"));
+        stompMetrics.stopHandler(ok, "/app/guest/door/open", null);
+
+        StompMetrics.HandlerInvocation failed = stompMetrics.startHandler();
+        stompMetrics.handlerReplied(Map.of("success", false, "message", "Устройство не отвечает"));
+        stompMetrics.stopHandler(failed, "/app/guest/door/open", null);
+
+        StompMetrics.HandlerInvocation legacy = stompMetrics.startHandler();
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(StompMetrics.ERROR_REPLY_HEADER, Boolean.TRUE);
+        stompMetrics.handlerReplied(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        stompMetrics.stopHandler(legacy, "/app/guest/door/open", null);
+
+        StompMetrics.HandlerInvocation thrown = stompMetrics.startHandler();
+        stompMetrics.stopHandler(thrown, "/app/guest/door/open", new IllegalStateException());
+
+        // Ответы вне обработчика не учитываются
+        stompMetrics.handlerReplied(Map.of("success", false));
+
+        Timer success = registry.get("stomp.handler").tag("outcome", "success").timer();
+        assertEquals(1, success.count());
+        assertEquals(3, registry.get("stomp.handler").tag("outcome", "error").timers().stream()
+                .mapToLong(Timer::count).sum());
+        assertNull(stompMetrics.currentHandler());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepliesSentThroughTemplateAreClassified() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new SimpMessagingTemplate((message, timeout) -> true));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MessageMappingMetricsAspect(stompMetrics, mock(ObjectProvider.class)));
+        SimpMessagingTemplate template = factory.getProxy();
+
+        StompMetrics.HandlerInvocation ok = stompMetrics.startHandler();
+        template.convertAndSend("/topic/admin/room-updated", Map.of("success", true));
+        stompMetrics.stopHandler(ok, "/app/admin/room/update-status", null);
+        assertEquals(1, registry.get("stomp.handler").tag("outcome", "success").timer().count());
+
+        StompMetrics.HandlerInvocation failed = stompMetrics.startHandler();
+        template.convertAndSendToUser("admin", "/queue/admin/error", Map.of("success", false));
+        stompMetrics.stopHandler(failed, "/app/admin/room/update-status", null);
+        assertEquals(1, registry.get("stomp.handler").tag("outcome", "error").timer().count());
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId, String subscriptionId,
+                                         String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage("{}".getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
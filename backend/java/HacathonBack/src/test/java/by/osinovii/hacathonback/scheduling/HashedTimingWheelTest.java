@@ -0,0 +1,78 @@
+package by.osinovii.hacathonback.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedTimingWheelTest {
+
+    @Test
+    public void testTimersFireOnDeadlineTick() {
+        HashedTimingWheel wheel = new HashedTimingWheel("test", 10, 8);
+        List<String> fired = new ArrayList<>();
+        HashedTimingWheel.Timer first = wheel.newTimer(() -> fired.add("first"));
+        HashedTimingWheel.Timer second = wheel.newTimer(() -> fired.add("second"));
+
+        first.schedule(30);
+        // 200 мс - больше одного оборота колеса (8 тиков по 10 мс)
+        second.schedule(200);
+
+        advance(wheel, 2);
+        assertTrue(fired.isEmpty());
+        advance(wheel, 1);
+        assertEquals(List.of("first"), fired);
+        assertFalse(first.isScheduled());
+
+        advance(wheel, 16);
+        assertEquals(List.of("first"), fired);
+        advance(wheel, 1);
+        assertEquals(List.of("first", "second"), fired);
+    }
+
+    @Test
+    public void testRescheduleAndCancelReuseTimer() {
+        HashedTimingWheel wheel = new HashedTimingWheel("test", 10, 8);
+        int[] runs = new int[1];
+        HashedTimingWheel.Timer[] timer = new HashedTimingWheel.Timer[1];
+        // Периодическая задача перепланирует собственный таймер
+        timer[0] = wheel.newTimer(() -> {
+            runs[0]++;
+            timer[0].schedule(20);
+        });
+
+        timer[0].schedule(50);
+        timer[0].schedule(10);
+        advance(wheel, 1);
+        assertEquals(1, runs[0]);
+        advance(wheel, 4);
+        assertEquals(3, runs[0]);
+
+        timer[0].cancel();
+        advance(wheel, 10);
+        assertEquals(3, runs[0]);
+    }
+
+    @Test
+    public void testWorkerThreadTicks() throws Exception {
+        HashedTimingWheel wheel = new HashedTimingWheel("test", 5, 64);
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.newTimer(latch::countDown).schedule(20);
+        wheel.start();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    private static void advance(HashedTimingWheel wheel, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+}
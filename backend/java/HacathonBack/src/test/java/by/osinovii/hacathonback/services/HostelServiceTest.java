@@ -19,11 +19,14 @@ import static org.junit.jupiter.api.Assertions.*;
 public class HostelServiceTest {
 
     @Autowired
-    private HostelService hostelService;
+    private RoomService roomService;
+
+    @Autowired
+    private GuestService guestService;
 
     @Test
     public void testGetAllRooms() {
-        List<Room> rooms = hostelService.getAllRooms();
+        List<Room> rooms = roomService.getAllRooms();
         assertNotNull(rooms);
         assertFalse(rooms.isEmpty());
         
@@ -46,7 +49,7 @@ public class HostelServiceTest {
 
     @Test
     public void testGetAllGuests() {
-        List<Guest> guests = hostelService.getAllGuests();
+        List<Guest> guests = guestService.getAllGuests();
         assertNotNull(guests);
         assertFalse(guests.isEmpty());
         
@@ -70,7 +73,7 @@ public class HostelServiceTest {
     @Test
     public void testSaveAndFindGuest() {
         // Сначала получим комнату для гостя
-        List<Room> rooms = hostelService.getAllRooms();
+        List<Room> rooms = roomService.getAllRooms();
         Room room = rooms.stream()
                 .filter(r -> "AVAILABLE".equals(r.getStatus()))
                 .findFirst()
@@ -87,11 +90,11 @@ public class HostelServiceTest {
         newGuest.setCheckOutDate(LocalDate.now().plusDays(3));
         
         // Сохраняем
-        Guest savedGuest = hostelService.saveGuest(newGuest);
+        Guest savedGuest = guestService.saveGuest(newGuest);
         assertNotNull(savedGuest.getId());
         
         // Пробуем найти по id
-        Optional<Guest> foundGuest = hostelService.findGuestById(savedGuest.getId());
+        Optional<Guest> foundGuest = guestService.findGuestById(savedGuest.getId());
         assertTrue(foundGuest.isPresent());
         assertEquals("Тест", foundGuest.get().getFirstName());
         assertEquals("Тестов", foundGuest.get().getLastName());
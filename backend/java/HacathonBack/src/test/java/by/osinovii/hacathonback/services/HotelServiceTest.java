@@ -0,0 +1,50 @@
+package by.osinovii.hacathonback.services;
+
+import by.osinovii.hacathonback.climate.ClimateControlService;
+import by.osinovii.hacathonback.iot.IoTAction;
+import by.osinovii.hacathonback.iot.IoTGateway;
+import by.osinovii.hacathonback.iot.IoTResponse;
+import by.osinovii.hacathonback.telemetry.TelemetryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HotelServiceTest {
+
+    private final CompletableFuture<IoTResponse> device = new CompletableFuture<>();
+    private HotelService hotelService;
+
+    @BeforeEach
+    public void setUp() {
+        IoTGateway ioTGateway = mock(IoTGateway.class);
+        when(ioTGateway.submit(eq("101"), any(IoTAction.class), anyDouble(), anyLong())).thenReturn(device);
+        hotelService = new HotelService(mock(GuestService.class), mock(RoomService.class), ioTGateway,
+                mock(TelemetryService.class), mock(ClimateControlService.class));
+    }
+
+    @Test
+    public void testDoorCommandDoesNotWaitForDevice() {
+        CompletableFuture<Map<String, Object>> response = hotelService.simulateDoorOpen(1L, "101");
+        assertFalse(response.isDone(), "Ответ собирается, когда устройство ответит");
+
+        device.complete(new IoTResponse(1, true, "ok"));
+        assertEquals(Boolean.TRUE, response.join().get("success"));
+        assertEquals("OPEN", response.join().get("doorStatus"));
+    }
+
+    @Test
+    public void testDeviceTimeoutBecomesErrorReply() {
+        CompletableFuture<Map<String, Object>> response = hotelService.simulateDoorClose(1L, "101");
+        device.completeExceptionally(new TimeoutException());
+
+        assertEquals(Boolean.FALSE, response.join().get("success"));
+        assertEquals("UNKNOWN", response.join().get("doorStatus"));
+        assertTrue(response.join().get("message").toString().contains("не ответило"));
+    }
+}
@@ -0,0 +1,40 @@
+package by.osinovii.hacathonback.services;
+
+import by.osinovii.hacathonback.climate.ClimateControlService;
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomChangeLog;
+import by.osinovii.hacathonback.index.RoomRegistry;
+import by.osinovii.hacathonback.repositories.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RoomServiceTest {
+
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final RoomRegistry roomRegistry = mock(RoomRegistry.class);
+    private final RoomService roomService = new RoomService(roomRepository, roomRegistry,
+            mock(HotelStatsService.class), mock(RoomChangeLog.class), mock(ClimateControlService.class));
+
+    @Test
+    public void testVersionConflictIsDetectedInsideSaveRoom() {
+        Room room = new Room();
+        room.setId(7L);
+        room.setRoomNumber("101");
+        when(roomRegistry.statusOf(7L)).thenReturn(Optional.of("OCCUPIED"));
+        when(roomRegistry.priceCentsOf(7L)).thenReturn(OptionalLong.empty());
+        // Конфликт версий выявляется при записи в БД (flush), а не при save в контексте
+        when(roomRepository.saveAndFlush(room))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Room.class, 7L));
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> roomService.saveRoom(room));
+        assertTrue(error.getMessage().contains("изменена другим запросом"));
+        verify(roomRegistry).evict(7L);
+        verify(roomRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,85 @@
+package by.osinovii.hacathonback.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollupBlockTest {
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        RollupBlock block = new RollupBlock(Resolution.MINUTE, 3_600_000L);
+        block.add(5, 60, values(21.5f, 22.25f, 21.9f));
+        block.add(0, 30, values(-3.07f, 40.01f, 18f));
+
+        byte[] data = block.encode();
+        RollupBlock decoded = RollupBlock.decode(Resolution.MINUTE, 3_600_000L, data);
+
+        assertEquals(2, decoded.size());
+        assertEquals(3_600_000L, decoded.timeAt(0));
+        assertEquals(3_600_000L + 5 * 60_000L, decoded.timeAt(1));
+        assertEquals(30, decoded.countAt(0));
+        assertEquals(-3.07f, decoded.valueAt(0, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.MIN)), 0.005);
+        assertEquals(22.25f, decoded.valueAt(1, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.MAX)), 0.005);
+        assertEquals(1013.25f, decoded.valueAt(1, RollupBlock.column(RollupBlock.PRESSURE, RollupBlock.AVG)), 0.005);
+    }
+
+    @Test
+    public void testMergeCombinesSameBucket() {
+        RollupBlock first = new RollupBlock(Resolution.HOUR, 0);
+        first.add(3, 1, values(20f, 20f, 20f));
+        RollupBlock second = new RollupBlock(Resolution.HOUR, 0);
+        second.add(3, 3, values(18f, 24f, 24f));
+
+        first.merge(second);
+
+        assertEquals(1, first.size());
+        assertEquals(4, first.countAt(0));
+        assertEquals(18f, first.valueAt(0, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.MIN)));
+        assertEquals(24f, first.valueAt(0, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.MAX)));
+        assertEquals(23f, first.valueAt(0, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.AVG)), 1e-4);
+    }
+
+    @Test
+    public void testRoomRollupsCloseBlocksAtBoundary() {
+        RoomRollups rollups = new RoomRollups();
+        List<RollupBlock> closed = new ArrayList<>();
+
+        // Показание раз в 30 секунд в течение 61 минуты: закрывается один минутный блок (час)
+        for (long time = 0; time <= 61 * 60_000L; time += 30_000L) {
+            rollups.add(time, 20 + time / 60_000f, 40, 1000, closed::add);
+        }
+
+        assertEquals(1, closed.size());
+        RollupBlock hour = closed.get(0);
+        assertEquals(Resolution.MINUTE, hour.getResolution());
+        assertEquals(60, hour.size());
+        assertEquals(2, hour.countAt(0));
+        assertEquals(20.25f, hour.valueAt(0, RollupBlock.column(RollupBlock.TEMPERATURE, RollupBlock.AVG)), 1e-4);
+
+        RollupBlock hourly = rollups.snapshot(Resolution.HOUR);
+        assertEquals(2, hourly.size());
+        assertEquals(120, hourly.countAt(0));
+    }
+
+    @Test
+    public void testResolutionForWindow() {
+        assertEquals(Resolution.MINUTE, Resolution.forWindow(0, 6 * 3_600_000L, 500));
+        assertEquals(Resolution.HOUR, Resolution.forWindow(0, 7 * 86_400_000L, 500));
+        assertEquals(Resolution.DAY, Resolution.forWindow(0, 365 * 86_400_000L, 500));
+    }
+
+    private static float[] values(float min, float max, float avg) {
+        float[] values = new float[RollupBlock.METRICS * 3];
+        for (int metric = 0; metric < RollupBlock.METRICS; metric++) {
+            float offset = metric == RollupBlock.PRESSURE ? 991.35f : 0;
+            values[RollupBlock.column(metric, RollupBlock.MIN)] = min + offset;
+            values[RollupBlock.column(metric, RollupBlock.MAX)] = max + offset;
+            values[RollupBlock.column(metric, RollupBlock.AVG)] = avg + offset;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,125 @@
+package by.osinovii.hacathonback.telemetry;
+
+import by.osinovii.hacathonback.entities.TelemetryRollup;
+import by.osinovii.hacathonback.repositories.TelemetryRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TelemetryRollupServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    // Строки таблицы telemetry_rollups по ключу "комната/разрешение/начало блока"
+    private final Map<String, TelemetryRollup> rows = new HashMap<>();
+    private TelemetryRollupRepository repository;
+    private TelemetryRollupService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        repository = mock(TelemetryRollupRepository.class);
+        when(repository.findByRoomNumberAndResolutionAndBlockStartBetweenOrderByBlockStartAsc(
+                any(), any(), any(), any())).thenAnswer(invocation -> rows.values().stream()
+                .filter(row -> row.getRoomNumber().equals(invocation.getArgument(0))
+                        && row.getResolution() == invocation.getArgument(1)
+                        && row.getBlockStart() >= (Long) invocation.getArgument(2)
+                        && row.getBlockStart() <= (Long) invocation.getArgument(3))
+                .sorted(Comparator.comparing(TelemetryRollup::getBlockStart))
+                .toList());
+        when(repository.findByResolutionAndBlockStartAndRoomNumberIn(any(), any(), any()))
+                .thenAnswer(invocation -> rows.values().stream()
+                        .filter(row -> row.getResolution() == invocation.getArgument(0)
+                                && row.getBlockStart().equals(invocation.getArgument(1))
+                                && ((Collection<String>) invocation.getArgument(2)).contains(row.getRoomNumber()))
+                        .toList());
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            List<TelemetryRollup> saved = new ArrayList<>();
+            for (TelemetryRollup row : (Iterable<TelemetryRollup>) invocation.getArgument(0)) {
+                rows.put(row.getRoomNumber() + "/" + row.getResolution() + "/" + row.getBlockStart(), row);
+                saved.add(row);
+            }
+            return saved;
+        });
+        service = new TelemetryRollupService(repository);
+    }
+
+    @Test
+    public void testOpenBlocksAreSavedInPartsWithoutDoubleCounting() {
+        // Показание раз в 30 секунд в течение 5 минут: 11 показаний в интервалах 0-5
+        for (long time = 0; time <= 300_000L; time += 30_000L) {
+            service.ingest("101", time, 20, 40, 1000);
+        }
+        service.checkpoint();
+        service.flush();
+        assertEquals(11, savedCount(Resolution.MINUTE, 0));
+        assertEquals(11, savedCount(Resolution.HOUR, 0));
+
+        // Продолжение того же интервала 5 и новый интервал 6
+        service.ingest("101", 315_000L, 24, 40, 1000);
+        service.ingest("101", 360_000L, 22, 40, 1000);
+
+        TelemetryRollupService.ClimateHistory history = service.getHistory("101", 0, HOUR - 1, 500);
+        assertEquals(Resolution.MINUTE, history.resolution());
+        assertEquals(7, history.times().length);
+        assertEquals(2, history.counts()[5], "Интервал объединяется из сохраненной части и открытого блока");
+        assertEquals(22f, history.temperatureAvg()[5], 1e-4);
+        assertEquals(13, sum(history.counts()));
+
+        service.checkpoint();
+        service.flush();
+        assertEquals(13, savedCount(Resolution.MINUTE, 0));
+        assertEquals(13, sum(service.getHistory("101", 0, HOUR - 1, 500).counts()));
+    }
+
+    @Test
+    public void testBlocksBeingSavedStayVisibleInHistory() {
+        for (long time = 0; time < 180_000L; time += 60_000L) {
+            service.ingest("101", time, 20, 40, 1000);
+        }
+        service.checkpoint();
+
+        // История, запрошенная во время сохранения (до фиксации), видит сохраняемые блоки
+        List<Integer> seenDuringSave = new ArrayList<>();
+        doAnswer(invocation -> {
+            seenDuringSave.add(sum(service.getHistory("101", 0, HOUR - 1, 500).counts()));
+            for (TelemetryRollup row : invocation.<Iterable<TelemetryRollup>>getArgument(0)) {
+                rows.put(row.getRoomNumber() + "/" + row.getResolution() + "/" + row.getBlockStart(), row);
+            }
+            return List.of();
+        }).when(repository).saveAll(any());
+        service.flush();
+
+        assertEquals(List.of(3, 3, 3), seenDuringSave, "Сохраняются блоки всех трех разрешений");
+        assertEquals(3, sum(service.getHistory("101", 0, HOUR - 1, 500).counts()));
+    }
+
+    private int savedCount(Resolution resolution, long blockStart) {
+        TelemetryRollup row = rows.get("101/" + resolution + "/" + blockStart);
+        assertNotNull(row);
+        RollupBlock block = RollupBlock.decode(resolution, blockStart, row.getData());
+        int total = 0;
+        for (int i = 0; i < block.size(); i++) {
+            total += block.countAt(i);
+        }
+        return total;
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,98 @@
+package by.osinovii.hacathonback.telemetry;
+
+import by.osinovii.hacathonback.entities.Room;
+import by.osinovii.hacathonback.index.RoomRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TelemetryStoreTest {
+
+    @Test
+    public void testLatestReadingAndTrend() {
+        TelemetryStore store = new TelemetryStore(registryOf("101"), 4, 8);
+        assertTrue(store.climate("101", 4).isEmpty());
+
+        // Температура растет на 1 градус каждые 15 минут, история перезаписывается по кругу
+        for (int i = 0; i < 20; i++) {
+            store.record("101", i * 900_000L, 20 + i, 40, 1000);
+        }
+
+        TelemetryStore.Climate climate = store.climate("101", 4).orElseThrow();
+        assertEquals(19 * 900_000L, climate.timeMillis());
+        assertEquals(39f, climate.temperature());
+        assertEquals(4, climate.samples());
+        assertEquals(4.0, climate.temperaturePerHour(), 1e-6);
+        assertEquals(0.0, climate.humidityPerHour(), 1e-6);
+    }
+
+    @Test
+    public void testRoomsBeyondCapacityAreDropped() {
+        TelemetryStore store = new TelemetryStore(registryOf("101", "102"), 1, 4);
+        assertTrue(store.record("101", 1, 21, 40, 1000));
+        assertFalse(store.record("102", 1, 21, 40, 1000));
+        assertTrue(store.climate("102", 4).isEmpty());
+        assertEquals(21f, store.climate("101", 1).orElseThrow().temperature());
+    }
+
+    @Test
+    public void testUnknownRoomsGetNoSlot() {
+        RoomRegistry registry = registryOf("101");
+        TelemetryStore store = new TelemetryStore(registry, 2, 4);
+        assertFalse(store.record("999", 1, 21, 40, 1000));
+        assertTrue(store.climate("999", 4).isEmpty());
+        assertEquals(0, store.roomCount());
+
+        // Комната, появившаяся в реестре позже, получает слот
+        registry.put(room(2L, "999"));
+        assertTrue(store.record("999", 1, 21, 40, 1000));
+        assertEquals(1, store.roomCount());
+    }
+
+    @Test
+    public void testReaderNeverSeesTornReading() throws Exception {
+        TelemetryStore store = new TelemetryStore(registryOf("101"), 1, 2);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Писатель записывает одинаковые значения во все поля показания
+        Thread writer = new Thread(() -> {
+            long i = 1;
+            while (running.get()) {
+                store.record("101", i, i % 1000, i % 1000, i % 1000);
+                i++;
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                store.climate("101", 1).ifPresent(climate -> {
+                    assertEquals(climate.temperature(), climate.humidity());
+                    assertEquals(climate.temperature(), climate.pressure());
+                });
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    private static RoomRegistry registryOf(String... roomNumbers) {
+        RoomRegistry registry = new RoomRegistry();
+        registry.rebuild(IntStream.range(0, roomNumbers.length)
+                .mapToObj(i -> room(i + 1L, roomNumbers[i]))
+                .toList());
+        return registry;
+    }
+
+    private static Room room(Long id, String roomNumber) {
+        Room room = new Room();
+        room.setId(id);
+        room.setRoomNumber(roomNumber);
+        room.setRoomType("STANDARD");
+        room.setStatus("AVAILABLE");
+        return room;
+    }
+}
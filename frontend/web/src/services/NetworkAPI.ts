@@ -2,7 +2,7 @@ import type { Room, RoomWithSensors } from '../types/RoomTypes';
 import type { Guest } from '../types/GuestTypes';
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
-import type { IMessage } from '@stomp/stompjs';
+import type { IMessage, StompSubscription } from '@stomp/stompjs';
 
 type MessageHandlers = {
   onRoomData?: (rooms: RoomWithSensors[]) => void;
@@ -24,6 +24,8 @@ class NetworkAPI {
   private messageHandlers: MessageHandlers = {};
   private pendingMessages: { action: string; data: any }[] = [];
   private reconnectTimeout: number | null = null;
+  // Подписки на топики отображаемых комнат и гостей: destination -> подписка
+  private topicSubscriptions = new Map<string, StompSubscription>();
 
   constructor() {
     // STOMP client will be initialized when needed
@@ -67,10 +69,11 @@ class NetworkAPI {
         this.isConnected = true;
         this.connectionAttempts = 0;
         
-        // Subscribe to topic for messages
-        this.stompClient?.subscribe('/topic/messages', (message: IMessage) => {
-          this.handleIncomingMessage(message);
-        });
+        // Ответы на запросы этой сессии и новые гости. На изменения комнат и гостей
+        // подписываемся по одной, когда они появляются в списке (см. handleIncomingMessage)
+        this.topicSubscriptions.clear();
+        this.subscribeTopic('/user/queue/messages');
+        this.subscribeTopic('/topic/guests');
         
         // Send any pending messages
         this.flushPendingMessages();
@@ -102,6 +105,22 @@ class NetworkAPI {
     }
   }
   
+  // Подписка на топик (повторная подписка на тот же топик не создается)
+  private subscribeTopic(destination: string) {
+    if (!this.stompClient?.connected || this.topicSubscriptions.has(destination)) {
+      return;
+    }
+    const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
+      this.handleIncomingMessage(message);
+    });
+    this.topicSubscriptions.set(destination, subscription);
+  }
+
+  private unsubscribeTopic(destination: string) {
+    this.topicSubscriptions.get(destination)?.unsubscribe();
+    this.topicSubscriptions.delete(destination);
+  }
+
   // Handle incoming STOMP messages
   private handleIncomingMessage(message: IMessage) {
     try {
@@ -128,11 +147,13 @@ class NetworkAPI {
           if (parsedMessage.data?.rooms && Array.isArray(parsedMessage.data.rooms) && this.messageHandlers.onRoomData) {
             // Преобразуем данные комнат и добавляем недостающие поля
             const rooms = parsedMessage.data.rooms.map(this.preprocessRoom);
+            rooms.forEach((room: RoomWithSensors) => this.subscribeTopic(`/topic/rooms/${room.id}`));
             this.messageHandlers.onRoomData(rooms);
           }
           
           if (parsedMessage.data?.guests && Array.isArray(parsedMessage.data.guests) && this.messageHandlers.onGuestData) {
             const guests = parsedMessage.data.guests.map(this.preprocessGuest);
+            guests.forEach((guest: Guest) => this.subscribeTopic(`/topic/guests/${guest.id}`));
             this.messageHandlers.onGuestData(guests);
           }
           break;
@@ -147,6 +168,7 @@ class NetworkAPI {
           console.log('New room message received');
           if (parsedMessage.data && this.messageHandlers.onRoomAdded) {
             const newRoom = this.preprocessRoom(parsedMessage.data);
+            this.subscribeTopic(`/topic/rooms/${newRoom.id}`);
             this.messageHandlers.onRoomAdded(newRoom);
           }
           break;
@@ -154,6 +176,7 @@ class NetworkAPI {
           console.log('Room deletion message received');
           if (parsedMessage.data?.id && this.messageHandlers.onRoomDeleted) {
             // Обрабатываем удаление комнаты
+            this.unsubscribeTopic(`/topic/rooms/${parsedMessage.data.id}`);
             this.messageHandlers.onRoomDeleted(BigInt(parsedMessage.data.id));
           }
           break;
@@ -168,12 +191,14 @@ class NetworkAPI {
           console.log('New guest message received');
           if (parsedMessage.data && this.messageHandlers.onGuestAdded) {
             const newGuest = this.preprocessGuest(parsedMessage.data);
+            this.subscribeTopic(`/topic/guests/${newGuest.id}`);
             this.messageHandlers.onGuestAdded(newGuest);
           }
           break;
         case 'delete_guest':
           console.log('Guest deletion message received');
           if (parsedMessage.data?.id && this.messageHandlers.onGuestDeleted) {
+            this.unsubscribeTopic(`/topic/guests/${parsedMessage.data.id}`);
             this.messageHandlers.onGuestDeleted(BigInt(parsedMessage.data.id));
           }
           break;